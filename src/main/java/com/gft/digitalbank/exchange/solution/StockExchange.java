@@ -1,12 +1,21 @@
 package com.gft.digitalbank.exchange.solution;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 
 import javax.jms.ConnectionFactory;
+import javax.jms.Session;
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -14,10 +23,27 @@ import javax.naming.NamingException;
 import com.gft.digitalbank.exchange.Exchange;
 import com.gft.digitalbank.exchange.listener.ProcessingListener;
 import com.gft.digitalbank.exchange.model.SolutionResult;
+import com.gft.digitalbank.exchange.model.Transaction;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.solution.journal.JournalReader;
+import com.gft.digitalbank.exchange.solution.journal.MessageJournal;
+import com.gft.digitalbank.exchange.solution.journal.SyncPolicy;
+import com.gft.digitalbank.exchange.solution.message.BatchConsumption;
 import com.gft.digitalbank.exchange.solution.message.MessageProcessor;
+import com.gft.digitalbank.exchange.solution.pipeline.MessagePipeline;
+import com.gft.digitalbank.exchange.solution.stream.BlockingPublisher;
+import com.gft.digitalbank.exchange.solution.stream.ConflatingPublisher;
+import com.gft.digitalbank.exchange.solution.stream.Flow;
 import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+import com.gft.digitalbank.exchange.solution.transaction.GapPolicy;
 import com.gft.digitalbank.exchange.solution.transaction.MessageOrderAssuranceBuffer;
 import com.gft.digitalbank.exchange.solution.transaction.TransactionEngine;
+import com.gft.digitalbank.exchange.solution.transaction.book.DepthUpdate;
+import com.gft.digitalbank.exchange.solution.util.IntObjectHashMap;
+import com.gft.digitalbank.exchange.solution.util.SerialExecutor;
+import com.gft.digitalbank.exchange.solution.util.ShardedExecutor;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+import com.google.common.base.Preconditions;
 
 import lombok.extern.log4j.Log4j;
 
@@ -50,6 +76,57 @@ public class StockExchange implements Exchange, Observer {
     /** Executor pool */
     private ExecutorService executor;
     
+    /** Number of dedicated engine threads, product engines run on shared executor pool if 0 */
+    private int engineThreads;
+    
+    /** Engine threads owning product books (null if product engines run on shared executor pool) */
+    private ShardedExecutor engineExecutor;
+    
+    /** Optional ring buffer pipeline replacing executors between ingestion, sequencing and matching */
+    private MessagePipeline pipeline;
+    
+    /** Optional settings of batched consumption of broker messages */
+    private BatchConsumption batchConsumption;
+    
+    /** Dictionary of symbol codes of binary messages */
+    private final SymbolDictionary symbolDictionary = new SymbolDictionary();
+    
+    /** Publisher streaming executed transactions */
+    private final BlockingPublisher<Transaction> transactionPublisher = new BlockingPublisher<>(BlockingPublisher.DEFAULT_BUFFER_SIZE);
+    
+    /** Publisher streaming changes of price levels */
+    private final ConflatingPublisher<DepthUpdate> depthPublisher = new ConflatingPublisher<>();
+    
+    /** Buffer assuring order of messages */
+    private MessageOrderAssuranceBuffer orderAssuranceBuffer;
+    
+    /** Size of reorder window in ids, brokers racing ahead of the window are paused */
+    private int reorderWindowSize = MessageOrderAssuranceBuffer.DEFAULT_WINDOW_SIZE;
+    
+    /** Policy applied when message is missing longer than gap timeout */
+    private GapPolicy gapPolicy = GapPolicy.LOG;
+    
+    /** Timeout of missing message in milliseconds */
+    private long gapTimeoutMillis = 1000;
+    
+    /** Thread applying gap policy periodically, so it is applied also when no messages arrive */
+    private ScheduledExecutorService gapChecker;
+    
+    /** Directory of journal segments, messages are not journaled if null */
+    private Path journalDirectory;
+    
+    /** Policy of forcing journal segments */
+    private SyncPolicy journalSyncPolicy = SyncPolicy.NONE;
+    
+    /** Journal of sequenced messages (null if messages are not journaled) */
+    private MessageJournal journal;
+    
+    /** Id of the last journaled message of this and replayed session, 0 if nothing was journaled */
+    private IntSupplier journalProgress;
+    
+    /** Shutdown notifications of brokers finished in journaled session */
+    private Collection<ShutdownNotification> journaledShutdowns = Collections.emptyList();
+    
     @Override
     public void register(ProcessingListener processingListener) {
         this.processingListener = processingListener;
@@ -68,6 +145,86 @@ public class StockExchange implements Exchange, Observer {
         this.executor = executor;
     }
 
+    public void setEngineThreads(int engineThreads) {
+        this.engineThreads = engineThreads;
+    }
+
+    public void setPipeline(MessagePipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public void setBatchConsumption(BatchConsumption batchConsumption) {
+        this.batchConsumption = batchConsumption;
+    }
+
+    public void setReorderWindowSize(int reorderWindowSize) {
+        this.reorderWindowSize = reorderWindowSize;
+    }
+
+    public void setGapPolicy(GapPolicy gapPolicy, long gapTimeoutMillis) {
+        this.gapPolicy = gapPolicy;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+    }
+
+    /**
+     * Sets journal of sequenced messages. Journal directory belongs to single session: on start journaled messages are replayed to rebuild
+     * order books and only messages following the last journaled id are processed. Brokers which sent shutdown notification in journaled
+     * session are finished again after start, so processing of completed journal ends right after start with rebuilt result.
+     * 
+     * Messages are acknowledged only after they are journaled, so journal requires batched consumption with CLIENT_ACKNOWLEDGE. Messages
+     * not journaled at crash are delivered again after restart.
+     * 
+     * Sync policy trades latency for durability. Segments are forced in thread sequencing messages, so BATCH costs write to storage device
+     * per released batch (per message under light load) and MESSAGE per message. With NONE (default) journaled records survive crash of
+     * the process but records not yet written by operating system are lost when operating system fails, while messages are already
+     * acknowledged.
+     * 
+     * @param journalDirectory directory of journal segments
+     * @param journalSyncPolicy policy of forcing journal segments
+     */
+    public void setJournal(Path journalDirectory, SyncPolicy journalSyncPolicy) {
+        this.journalDirectory = journalDirectory;
+        this.journalSyncPolicy = journalSyncPolicy;
+    }
+
+    /**
+     * Returns dictionary of symbol codes used by binary messages, producers register their codes in it before start.
+     * 
+     * @return dictionary of symbol codes
+     */
+    public SymbolDictionary getSymbolDictionary() {
+        return symbolDictionary;
+    }
+
+    /**
+     * Returns publisher streaming executed transactions as they happen. Subscribers should subscribe before start to receive all
+     * transactions, publisher completes when processing is done.
+     * 
+     * @return publisher of executed transactions
+     */
+    public Flow.Publisher<Transaction> getTransactionPublisher() {
+        return transactionPublisher;
+    }
+
+    /**
+     * Returns publisher streaming new state of changed price levels of all products. Slow subscriber receives only the latest state of
+     * every level, publisher completes when processing is done.
+     * 
+     * @return publisher of changes of price levels
+     */
+    public Flow.Publisher<DepthUpdate> getDepthPublisher() {
+        return depthPublisher;
+    }
+
+    /**
+     * Returns buffer assuring order of messages, i.e. to read its gap and depth metrics.
+     * 
+     * @return buffer assuring order of messages (null before start)
+     */
+    public MessageOrderAssuranceBuffer getOrderAssuranceBuffer() {
+        return orderAssuranceBuffer;
+    }
+
     @Override
     public void start() {
         setUpConnectionFactory();
@@ -76,8 +233,14 @@ public class StockExchange implements Exchange, Observer {
         setUpBrokerMessageListener();
         setUpTransactionEngineShutdownListener();
         setUpMessageProcessor();
+        setUpGapChecker();
+        
+        if (pipeline != null) {
+            pipeline.start();
+        }
         
         messageProcessor.start();
+        finishJournaledBrokers();
     }
     
     @Override
@@ -87,7 +250,21 @@ public class StockExchange implements Exchange, Observer {
         transactionEngine.deleteObserver(this);
         transactionEngine.shutdown();
         messageProcessor.stop();
+        gapChecker.shutdownNow();
         executor.shutdownNow();
+        
+        if (journal != null) {
+            journal.close();
+        }
+        
+        if (engineExecutor != null) {
+            engineExecutor.shutdown();
+        }
+        
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+        
         processingListener.processingDone(solution);
     }
     
@@ -123,14 +300,104 @@ public class StockExchange implements Exchange, Observer {
      * Method creates TransactionEngine instance.
      */
     private void setUpTransactionEngine() {
-        transactionEngine = new TransactionEngine(executor, destinations);
+        if (pipeline != null) {
+            transactionEngine = new TransactionEngine(pipeline::engineFor, destinations, new IntObjectHashMap<>());
+        } else if (engineThreads > 0) {
+            engineExecutor = new ShardedExecutor(engineThreads);
+            transactionEngine = new TransactionEngine(engineExecutor::shardFor, destinations, new IntObjectHashMap<>());
+        } else {
+            transactionEngine = new TransactionEngine(executor, destinations);
+        }
+
+        transactionEngine.setSymbolDictionary(symbolDictionary);
+        transactionEngine.setTransactionPublisher(transactionPublisher);
+        transactionEngine.setDepthPublisher(depthPublisher);
     }
     
     /**
      * Method creates BrokerMessageListener instance.
      */
     private void setUpBrokerMessageListener() {
-        brokerMessageListener = new MessageOrderAssuranceBuffer(transactionEngine, executor);
+        int lastJournaledId = setUpJournal();
+        BrokerMessageListener sequencedListener = journal != null ? journal : transactionEngine;
+        
+        if (pipeline != null) {
+            orderAssuranceBuffer = new MessageOrderAssuranceBuffer(sequencedListener, Runnable::run, reorderWindowSize);
+        } else {
+            orderAssuranceBuffer = new MessageOrderAssuranceBuffer(sequencedListener, new SerialExecutor(executor), reorderWindowSize);
+        }
+        
+        orderAssuranceBuffer.setGapPolicy(gapPolicy);
+        orderAssuranceBuffer.setGapTimeout(gapTimeoutMillis, TimeUnit.MILLISECONDS);
+        
+        if (lastJournaledId > 0) {
+            orderAssuranceBuffer.setExpectedOrderId(lastJournaledId + 1);
+        }
+        
+        if (journal != null) {
+            journalProgress = () -> Math.max(lastJournaledId, journal.getLastMessageId());
+        }
+        
+        brokerMessageListener = orderAssuranceBuffer;
+    }
+    
+    /**
+     * Method replays messages of existing journal into TransactionEngine and opens journal for new messages.
+     * 
+     * @return id of the last replayed message, 0 if nothing was replayed or messages are not journaled
+     */
+    private int setUpJournal() {
+        if (journalDirectory == null) {
+            return 0;
+        }
+        
+        Preconditions.checkState(batchConsumption != null && batchConsumption.getAcknowledgeMode() == Session.CLIENT_ACKNOWLEDGE,
+                "Journal requires batched consumption with CLIENT_ACKNOWLEDGE");
+        
+        try {
+            JournalReader reader = new JournalReader(journalDirectory);
+            
+            reader.replay(transactionEngine);
+            journaledShutdowns = reader.getShutdownNotifications();
+            journal = new MessageJournal(transactionEngine, journalDirectory, MessageJournal.DEFAULT_SEGMENT_SIZE, journalSyncPolicy);
+            
+            return reader.getLastMessageId();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal can not be opened: " + journalDirectory, e);
+        }
+    }
+    
+    /**
+     * Method schedules gap check of order assurance buffer every half of gap timeout. In pipeline mode check is passed through the
+     * pipeline, as buffer is used only by sequencing stage.
+     */
+    private void setUpGapChecker() {
+        Runnable check = pipeline != null ? () -> pipeline.execute(orderAssuranceBuffer::checkGap) : orderAssuranceBuffer::checkGap;
+        long period = Math.max(1, gapTimeoutMillis / 2);
+        
+        gapChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "gap-checker");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        gapChecker.scheduleAtFixedRate(check, period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Method passes on shutdown notifications of brokers finished in journaled session. It is called when processing runs, so observer of
+     * TransactionEngine is notified if all brokers are finished. In pipeline mode notifications are passed through the pipeline, as buffer
+     * is used only by sequencing stage.
+     */
+    private void finishJournaledBrokers() {
+        for (ShutdownNotification shutdown : journaledShutdowns) {
+            if (pipeline != null) {
+                pipeline.execute(() -> orderAssuranceBuffer.onBrokerMessage(shutdown));
+            } else {
+                orderAssuranceBuffer.onBrokerMessage(shutdown);
+            }
+        }
     }
     
     private void setUpTransactionEngineShutdownListener() {
@@ -145,7 +412,14 @@ public class StockExchange implements Exchange, Observer {
         
         messageProcessor.setConnectionFactory(connectionFactory);
         messageProcessor.setExecutor(executor);
+        messageProcessor.setPipeline(pipeline);
+        messageProcessor.setBatchConsumption(batchConsumption);
+        messageProcessor.setSymbolDictionary(symbolDictionary);
         messageProcessor.setBrokerMessageListener(brokerMessageListener);
         messageProcessor.setDestinations(destinations);
+        messageProcessor.setJournalProgress(journalProgress);
+        messageProcessor.setSequenceProgress(orderAssuranceBuffer::getExpectedOrderId);
+        
+        orderAssuranceBuffer.setFlowControl(messageProcessor);
     }
 }
@@ -0,0 +1,240 @@
+package com.gft.digitalbank.exchange.solution.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.solution.message.codec.BinaryMessageCodec;
+import com.gft.digitalbank.exchange.solution.message.codec.MessageFields;
+import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Reader of segments written by MessageJournal. Replay passes journaled messages in their original order to listener, i.e. to new
+ * TransactionEngine, which rebuilds order books and transactions of the journaled session.
+ *
+ * Messages are passed in batches of at most batchSize messages, so engine hands over tasks to product engines in groups as it does for
+ * messages released by MessageOrderAssuranceBuffer.
+ *
+ * Every record is validated by its checksum. Reading of segment stops at the first invalid record, i.e. record cut off by crash at the
+ * end of the segment which was written at that time, and continues with the next segment written after restart.
+ *
+ * Journaled ShutdownNotifications are not passed to listener, engine would finish processing during replay. Reader collects them, so
+ * caller can mark brokers finished in the journaled session once it is ready to handle end of processing.
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Log4j
+public class JournalReader {
+
+    /** Default number of messages in batch */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /** Directory of segment files */
+    private final Path directory;
+
+    /** Maximal number of messages in batch */
+    private final int batchSize;
+
+    /** Number of replayed messages */
+    @Getter
+    private long replayedMessages;
+
+    /** The highest id of replayed ordered message, 0 if nothing was replayed */
+    @Getter
+    private int lastMessageId;
+
+    /** Number of messages in current batch */
+    private int batchMessages;
+
+    /** Checksum of records */
+    private final CRC32 crc = new CRC32();
+
+    /** Journaled shutdown notifications identified by broker */
+    private final Map<String, ShutdownNotification> shutdownNotifications = new LinkedHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param directory directory of segment files
+     */
+    public JournalReader(Path directory) {
+        this(directory, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param directory directory of segment files
+     * @param batchSize maximal number of messages in batch
+     */
+    public JournalReader(Path directory, int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "Batch size must be positive: %s", batchSize);
+
+        this.directory = Preconditions.checkNotNull(directory, "Directory is null");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns journaled shutdown notifications, the last one of every broker. Notifications are not passed to listener by replay.
+     *
+     * @return shutdown notifications in order of the journal
+     */
+    public Collection<ShutdownNotification> getShutdownNotifications() {
+        return shutdownNotifications.values();
+    }
+
+    /**
+     * Passes all journaled messages except shutdown notifications to listener. Nothing is replayed if directory does not exist.
+     *
+     * @param listener listener of replayed messages
+     *
+     * @return number of replayed messages, shutdown notifications are not counted
+     *
+     * @throws IOException if segment can not be read
+     */
+    public long replay(final BrokerMessageListener listener) throws IOException {
+        List<Path> segments = MessageJournal.listSegments(directory);
+
+        for (Path segment : segments) {
+            replaySegment(segment, listener);
+        }
+
+        endBatch(listener);
+
+        log.info("Replayed " + replayedMessages + " messages from " + segments.size() + " journal segments");
+
+        return replayedMessages;
+    }
+
+    /**
+     * Passes messages of single segment to listener. Reading stops at the end of records or at the first invalid record.
+     *
+     * @param path path of segment file
+     * @param listener listener of replayed messages
+     *
+     * @throws IOException if segment can not be read
+     */
+    private void replaySegment(final Path path, final BrokerMessageListener listener) throws IOException {
+        SymbolDictionary symbols = new SymbolDictionary();
+        BinaryMessageCodec codec = new BinaryMessageCodec(symbols);
+        MessageFields fields = new MessageFields();
+        MappedByteBuffer segment;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        while (segment.hasRemaining()) {
+            int start = segment.position();
+            byte type = segment.get(start);
+
+            if (type == MessageJournal.END_RECORD) {
+                return;
+            }
+
+            if (!isValid(segment, start)) {
+                log.warn("Invalid record at offset " + start + " of journal segment " + path + ", rest of the segment is ignored");
+                return;
+            }
+
+            segment.position(start + MessageJournal.RECORD_HEADER_LENGTH);
+
+            if (type == MessageJournal.MESSAGE_RECORD) {
+                replayMessage(codec.decode(segment, fields).toBrokerMessage(), listener);
+            } else {
+                int code = segment.getInt();
+                byte[] bytes = new byte[segment.getShort() & MessageJournal.MAX_SYMBOL_LENGTH];
+
+                segment.get(bytes);
+                symbols.register(code, new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Checks if record has known type, fits in the segment and matches its checksum.
+     *
+     * @param segment mapped segment
+     * @param start offset of the record
+     *
+     * @return true if record is valid
+     */
+    private boolean isValid(final MappedByteBuffer segment, final int start) {
+        int content = start + MessageJournal.RECORD_HEADER_LENGTH;
+        int end;
+
+        if (segment.get(start) == MessageJournal.MESSAGE_RECORD) {
+            end = content + BinaryMessageCodec.MESSAGE_LENGTH;
+        } else if (segment.get(start) == MessageJournal.SYMBOL_RECORD && start + MessageJournal.SYMBOL_HEADER_LENGTH <= segment.limit()) {
+            end = start + MessageJournal.SYMBOL_HEADER_LENGTH + (segment.getShort(content + 4) & MessageJournal.MAX_SYMBOL_LENGTH);
+        } else {
+            return false;
+        }
+
+        return end <= segment.limit() && segment.getInt(start + 1) == MessageJournal.checksum(crc, segment, content, end);
+    }
+
+    /**
+     * Passes message to listener. Batch is started before the first message and ended after batchSize messages, ShutdownNotification is
+     * only collected.
+     *
+     * @param message replayed message
+     * @param listener listener of replayed messages
+     */
+    private void replayMessage(final BrokerMessage message, final BrokerMessageListener listener) {
+        if (message instanceof ShutdownNotification) {
+            shutdownNotifications.remove(message.getBroker());
+            shutdownNotifications.put(message.getBroker(), (ShutdownNotification) message);
+            return;
+        }
+
+        replayedMessages++;
+        lastMessageId = Math.max(lastMessageId, message.getId());
+
+        if (batchMessages == 0) {
+            listener.onBatchStart();
+        }
+
+        if (message instanceof PositionOrder) {
+            listener.onBrokerMessage((PositionOrder) message);
+        } else if (message instanceof CancellationOrder) {
+            listener.onBrokerMessage((CancellationOrder) message);
+        } else if (message instanceof ModificationOrder) {
+            listener.onBrokerMessage((ModificationOrder) message);
+        }
+
+        if (++batchMessages == batchSize) {
+            endBatch(listener);
+        }
+    }
+
+    /**
+     * Ends current batch if there is any.
+     *
+     * @param listener listener of replayed messages
+     */
+    private void endBatch(final BrokerMessageListener listener) {
+        if (batchMessages > 0) {
+            listener.onBatchEnd();
+            batchMessages = 0;
+        }
+    }
+}
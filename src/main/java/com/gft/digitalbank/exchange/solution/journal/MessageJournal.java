@@ -0,0 +1,446 @@
+package com.gft.digitalbank.exchange.solution.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.solution.message.codec.BinaryMessageCodec;
+import com.gft.digitalbank.exchange.solution.message.codec.MessageFields;
+import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Write-ahead journal of sequenced broker messages. Journal is placed between MessageOrderAssuranceBuffer and TransactionEngine, every
+ * message is appended to journal before it is passed to wrapped listener, so journal has the same order as the engine.
+ *
+ * Messages are appended to memory mapped segment files, append is a copy into mapped page without system call. Segment has fixed size,
+ * when record does not fit in it, next segment is created. Records of segment (first byte is record type, 0 marks end of records, int
+ * checksum is CRC32 of the rest of the record):
+ *
+ * <pre>
+ * MESSAGE_RECORD  byte type, int checksum, message in format of BinaryMessageCodec
+ * SYMBOL_RECORD   byte type, int checksum, int code, unsigned short length, UTF-8 bytes of symbol
+ * </pre>
+ *
+ * Symbol codes of messages are defined by symbol records preceding their first use in the segment, so every segment can be read on its
+ * own. Type byte of record is written last, but stores into mapped segment reach storage device in any order when system crashes
+ * before segment is forced, so record cut off by crash can have valid type. JournalReader validates checksum of every record and stops
+ * reading of the segment at the first invalid one. Segments are forced according to SyncPolicy.
+ *
+ * Journal is not thread-safe, it has to be called by single thread, i.e. thread releasing messages from MessageOrderAssuranceBuffer.
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Log4j
+public class MessageJournal implements BrokerMessageListener, Closeable {
+
+    /** Default size of segment in bytes */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /** Minimal size of segment in bytes, the largest message with its symbols always fits in empty segment */
+    public static final int MIN_SEGMENT_SIZE = 1 << 18;
+
+    /** Type of record marking end of records in segment */
+    static final byte END_RECORD = 0;
+
+    /** Type of message record */
+    static final byte MESSAGE_RECORD = 1;
+
+    /** Type of symbol record */
+    static final byte SYMBOL_RECORD = 2;
+
+    /** Length of record header, i.e. type and checksum */
+    static final int RECORD_HEADER_LENGTH = 1 + 4;
+
+    /** Length of message record */
+    static final int MESSAGE_RECORD_LENGTH = RECORD_HEADER_LENGTH + BinaryMessageCodec.MESSAGE_LENGTH;
+
+    /** Length of symbol record without symbol bytes */
+    static final int SYMBOL_HEADER_LENGTH = RECORD_HEADER_LENGTH + 4 + 2;
+
+    /** Maximal length of symbol in bytes */
+    static final int MAX_SYMBOL_LENGTH = 0xFFFF;
+
+    /** Prefix of segment file name */
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    /** Suffix of segment file name */
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /** Offsets of broker, client and product codes in encoded message */
+    private static final int[] SYMBOL_OFFSETS = { 16, 20, 24 };
+
+    /** Reference to wrapped BrokerMessageListener */
+    private final BrokerMessageListener wrappedListener;
+
+    /** Directory of segment files */
+    private final Path directory;
+
+    /** Size of segment in bytes */
+    private final int segmentSize;
+
+    /** Policy of forcing segments */
+    private final SyncPolicy syncPolicy;
+
+    /** Dictionary of symbol codes used in journal */
+    private final SymbolDictionary symbols = new SymbolDictionary();
+
+    /** Encoder of messages */
+    private final BinaryMessageCodec codec = new BinaryMessageCodec(symbols);
+
+    /** Fields of appended message */
+    private final MessageFields fields = new MessageFields();
+
+    /** Encoded message */
+    private final ByteBuffer message = ByteBuffer.allocate(BinaryMessageCodec.MESSAGE_LENGTH);
+
+    /** Checksum of records */
+    private final CRC32 crc = new CRC32();
+
+    /** Symbol codes already defined in current segment */
+    private final BitSet segmentSymbols = new BitSet();
+
+    /** Index of current segment */
+    private int segmentIndex;
+
+    /** Channel of current segment */
+    private FileChannel channel;
+
+    /** Mapped current segment, position is end of records */
+    private MappedByteBuffer segment;
+
+    /** Are there records not forced to storage device? */
+    private boolean dirty;
+
+    /** Number of appended messages */
+    @Getter
+    private long appendedMessages;
+
+    /** The highest id of appended ordered message, 0 if nothing was appended, it can be read by any thread */
+    @Getter
+    private volatile int lastMessageId;
+
+    /**
+     * Constructor. Journal continues after existing segments of the directory, the first segment is created immediately.
+     *
+     * @param wrappedListener reference to transaction engine
+     * @param directory directory of segment files, it is created if it does not exist
+     * @param segmentSize size of segment in bytes
+     * @param syncPolicy policy of forcing segments
+     *
+     * @throws IOException if segment can not be created
+     */
+    public MessageJournal(BrokerMessageListener wrappedListener, Path directory, int segmentSize, SyncPolicy syncPolicy)
+            throws IOException {
+        Preconditions.checkArgument(segmentSize >= MIN_SEGMENT_SIZE, "Segment size must be at least %s: %s", MIN_SEGMENT_SIZE,
+                segmentSize);
+
+        this.wrappedListener = wrappedListener;
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.syncPolicy = Preconditions.checkNotNull(syncPolicy, "SyncPolicy is null");
+
+        List<Path> segments = listSegments(directory);
+
+        segmentIndex = segments.isEmpty() ? 0 : segmentIndex(segments.get(segments.size() - 1));
+
+        openSegment();
+    }
+
+    @Override
+    public void onBrokerMessage(final PositionOrder message) {
+        append(message);
+        wrappedListener.onBrokerMessage(message);
+    }
+
+    @Override
+    public void onBrokerMessage(final CancellationOrder message) {
+        append(message);
+        wrappedListener.onBrokerMessage(message);
+    }
+
+    @Override
+    public void onBrokerMessage(final ModificationOrder message) {
+        append(message);
+        wrappedListener.onBrokerMessage(message);
+    }
+
+    @Override
+    public void onBrokerMessage(final ShutdownNotification message) {
+        append(message);
+        wrappedListener.onBrokerMessage(message);
+    }
+
+    @Override
+    public void onBatchStart() {
+        wrappedListener.onBatchStart();
+    }
+
+    @Override
+    public void onBatchEnd() {
+        if (syncPolicy == SyncPolicy.BATCH) {
+            sync();
+        }
+
+        wrappedListener.onBatchEnd();
+    }
+
+    /**
+     * Forces appended records to storage device.
+     */
+    public void sync() {
+        if (dirty) {
+            segment.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Forces appended records and closes current segment. Messages can not be appended later.
+     */
+    @Override
+    public void close() {
+        if (segment == null) {
+            return;
+        }
+
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            log.error("Closing of journal segment failed: ", e);
+        }
+    }
+
+    /**
+     * Returns directory of segment files.
+     *
+     * @return directory of segment files
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns segment files of the directory in order of creation.
+     *
+     * @param directory directory of segment files
+     *
+     * @return paths of segment files, empty if directory does not exist
+     *
+     * @throws IOException if directory can not be read
+     */
+    static List<Path> listSegments(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+
+        List<Path> segments = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+
+        segments.sort((s1, s2) -> Integer.compare(segmentIndex(s1), segmentIndex(s2)));
+
+        return segments;
+    }
+
+    /**
+     * Returns index of segment from its file name.
+     *
+     * @param segment path of segment file
+     *
+     * @return index of segment
+     */
+    private static int segmentIndex(final Path segment) {
+        String name = segment.getFileName().toString();
+
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Appends message record preceded by definitions of its symbols not yet used in current segment.
+     *
+     * @param brokerMessage appended message
+     */
+    private void append(final BrokerMessage brokerMessage) {
+        Preconditions.checkState(segment != null, "Journal is closed");
+
+        message.clear();
+        codec.encode(fields.fill(brokerMessage), message);
+
+        if (segment.remaining() < MESSAGE_RECORD_LENGTH + newSymbolsLength()) {
+            rollSegment();
+        }
+
+        for (int offset : SYMBOL_OFFSETS) {
+            appendSymbol(message.getInt(offset));
+        }
+
+        int p = segment.position();
+
+        segment.position(p + RECORD_HEADER_LENGTH);
+        segment.put(message.array());
+        completeRecord(p, MESSAGE_RECORD);
+
+        appendedMessages++;
+        dirty = true;
+
+        if (!(brokerMessage instanceof ShutdownNotification) && brokerMessage.getId() > lastMessageId) {
+            lastMessageId = brokerMessage.getId();
+        }
+
+        if (syncPolicy == SyncPolicy.MESSAGE) {
+            sync();
+        }
+    }
+
+    /**
+     * Returns length of symbol records which have to precede encoded message in current segment.
+     *
+     * @return length of symbol records in bytes
+     */
+    private int newSymbolsLength() {
+        int length = 0;
+
+        for (int offset : SYMBOL_OFFSETS) {
+            int code = message.getInt(offset);
+
+            if (code != SymbolDictionary.NO_SYMBOL && !segmentSymbols.get(code)) {
+                length += SYMBOL_HEADER_LENGTH + symbolBytes(code).length;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Appends symbol record if symbol is not yet defined in current segment.
+     *
+     * @param code code of the symbol
+     */
+    private void appendSymbol(final int code) {
+        if (code == SymbolDictionary.NO_SYMBOL || segmentSymbols.get(code)) {
+            return;
+        }
+
+        byte[] bytes = symbolBytes(code);
+        int p = segment.position();
+
+        segment.position(p + RECORD_HEADER_LENGTH);
+        segment.putInt(code);
+        segment.putShort((short) bytes.length);
+        segment.put(bytes);
+        completeRecord(p, SYMBOL_RECORD);
+
+        segmentSymbols.set(code);
+    }
+
+    /**
+     * Writes checksum and type of record whose content ends at current position of segment.
+     *
+     * @param start offset of the record
+     * @param type type of the record
+     */
+    private void completeRecord(final int start, final byte type) {
+        segment.putInt(start + 1, checksum(crc, segment, start + RECORD_HEADER_LENGTH, segment.position()));
+        segment.put(start, type);
+    }
+
+    /**
+     * Computes checksum of bytes of buffer, position of the buffer is not changed.
+     *
+     * @param crc reused checksum
+     * @param buffer buffer
+     * @param from offset of the first byte
+     * @param to offset after the last byte
+     *
+     * @return CRC32 of the bytes
+     */
+    static int checksum(final CRC32 crc, final ByteBuffer buffer, final int from, final int to) {
+        ByteBuffer bytes = buffer.duplicate();
+
+        bytes.limit(to).position(from);
+        crc.reset();
+        crc.update(bytes);
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns UTF-8 bytes of symbol.
+     *
+     * @param code code of the symbol
+     *
+     * @return bytes of the symbol
+     */
+    private byte[] symbolBytes(final int code) {
+        byte[] bytes = symbols.symbol(code).getBytes(StandardCharsets.UTF_8);
+
+        Preconditions.checkArgument(bytes.length <= MAX_SYMBOL_LENGTH, "Symbol too long: %s bytes", bytes.length);
+
+        return bytes;
+    }
+
+    /**
+     * Closes full segment and creates next one.
+     */
+    private void rollSegment() {
+        try {
+            closeSegment();
+            openSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Rolling of journal segment failed", e);
+        }
+    }
+
+    /**
+     * Creates and maps next segment file.
+     *
+     * @throws IOException if segment can not be created
+     */
+    private void openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, ++segmentIndex, SEGMENT_SUFFIX));
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentSymbols.clear();
+
+        log.info("Journal segment opened: " + path);
+    }
+
+    /**
+     * Forces and closes current segment. Mapping stays valid until buffer is garbage collected, there is no way to unmap it in Java 8.
+     *
+     * @throws IOException if segment can not be closed
+     */
+    private void closeSegment() throws IOException {
+        sync();
+
+        segment = null;
+        channel.close();
+        channel = null;
+    }
+}
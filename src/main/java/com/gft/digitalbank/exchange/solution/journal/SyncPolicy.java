@@ -0,0 +1,19 @@
+package com.gft.digitalbank.exchange.solution.journal;
+
+/**
+ * Policy of forcing journal segments to storage device. Appended records are in memory mapped pages, so they survive crash of the process
+ * with any policy, policy decides how many records can be lost when operating system fails.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public enum SyncPolicy {
+
+    /** Pages are written by operating system, segment is forced only when it is full or journal is closed */
+    NONE,
+
+    /** Segment is forced after every batch released by MessageOrderAssuranceBuffer, under light load it is forced per message */
+    BATCH,
+
+    /** Segment is forced after every message, it costs write to storage device per message */
+    MESSAGE
+}
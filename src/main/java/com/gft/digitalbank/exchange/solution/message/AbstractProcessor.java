@@ -1,10 +1,13 @@
 package com.gft.digitalbank.exchange.solution.message;
 
 import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
 
 import javax.jms.ConnectionFactory;
 
+import com.gft.digitalbank.exchange.solution.pipeline.MessagePipeline;
 import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
 import com.google.common.base.Preconditions;
 
 import lombok.Getter;
@@ -31,6 +34,29 @@ public abstract class AbstractProcessor {
     @Setter @Getter
     protected Executor executor;
     
+    /** Optional pipeline processing received messages instead of executor */
+    @Setter @Getter
+    protected MessagePipeline pipeline;
+    
+    /** Optional settings of batched consumption, messages are delivered to asynchronous listener if not set */
+    @Setter @Getter
+    protected BatchConsumption batchConsumption;
+    
+    /** Dictionary of symbol codes used by binary messages */
+    @Setter @Getter
+    protected SymbolDictionary symbolDictionary;
+    
+    /** Optional supplier of id of the last journaled message, messages are acknowledged only after they are journaled if set */
+    @Setter @Getter
+    protected IntSupplier journalProgress;
+    
+    /**
+     * Optional supplier of id of the next message expected by order assurance buffer. Consumers of broker are drained when it reaches id
+     * of shutdown notification of the broker, as all messages of the broker have lower ids.
+     */
+    @Setter @Getter
+    protected IntSupplier sequenceProgress;
+    
     /** Is engine started? */
     protected boolean started;
     
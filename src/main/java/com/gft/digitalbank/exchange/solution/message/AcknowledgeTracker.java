@@ -0,0 +1,163 @@
+package com.gft.digitalbank.exchange.solution.message;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+
+/**
+ * Tracker of messages of single consumer, which are acknowledged only after they are journaled. Tracker is placed between lane of the
+ * consumer and order assurance buffer, it counts messages handed over to the buffer and remembers the highest id among them. Journal
+ * appends messages in order of ids, so all handed over messages are journaled when id of the last journaled message reaches the highest
+ * id.
+ *
+ * Acknowledgement in CLIENT_ACKNOWLEDGE session acknowledges all messages received by the session, so message is acknowledged only when
+ * every message received by the consumer is journaled. Messages not acknowledged at crash are delivered again, the journaled ones are
+ * ignored by order assurance buffer.
+ *
+ * Messages are handed over by single lane (or sequencing stage of pipeline), received messages are counted by receiving thread of the
+ * consumer.
+ *
+ * @author Arkadiusz Cieslak
+ */
+class AcknowledgeTracker implements BrokerMessageListener {
+
+    /** Time of single wait for journal */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /** Reference to wrapped BrokerMessageListener */
+    private final BrokerMessageListener wrappedListener;
+
+    /** Supplier of id of the last journaled message */
+    private final IntSupplier journalProgress;
+
+    /** Number of messages handed over to wrapped listener, written only by lane */
+    private volatile long handedOverMessages;
+
+    /** The highest id of handed over messages, written only by lane */
+    private volatile int highestId;
+
+    /** Number of received messages, used only by receiving thread */
+    private long receivedMessages;
+
+    /** The last received message which is not acknowledged, written by receiving thread */
+    private volatile Message pendingMessage;
+
+    /**
+     * Constructor.
+     *
+     * @param wrappedListener reference to order assurance buffer
+     * @param journalProgress supplier of id of the last journaled message
+     */
+    AcknowledgeTracker(BrokerMessageListener wrappedListener, IntSupplier journalProgress) {
+        this.wrappedListener = wrappedListener;
+        this.journalProgress = journalProgress;
+    }
+
+    @Override
+    public void onBrokerMessage(final PositionOrder message) {
+        onHandOver(message);
+        wrappedListener.onBrokerMessage(message);
+        handedOverMessages++;
+    }
+
+    @Override
+    public void onBrokerMessage(final CancellationOrder message) {
+        onHandOver(message);
+        wrappedListener.onBrokerMessage(message);
+        handedOverMessages++;
+    }
+
+    @Override
+    public void onBrokerMessage(final ModificationOrder message) {
+        onHandOver(message);
+        wrappedListener.onBrokerMessage(message);
+        handedOverMessages++;
+    }
+
+    @Override
+    public void onBrokerMessage(final ShutdownNotification message) {
+        wrappedListener.onBrokerMessage(message);
+    }
+
+    /**
+     * Records received batch of messages, its last message is acknowledged when all received messages are journaled.
+     *
+     * @param last the last message of the batch
+     * @param count number of messages in the batch
+     */
+    void onReceived(final Message last, final int count) {
+        receivedMessages += count;
+        pendingMessage = last;
+    }
+
+    /**
+     * Acknowledges received messages if all of them are journaled, waiting for journal at most given time.
+     *
+     * @param timeoutMillis maximal time of waiting in milliseconds, 0 for no waiting
+     *
+     * @throws JMSException if message can not be acknowledged
+     */
+    void acknowledge(final long timeoutMillis) throws JMSException {
+        if (pendingMessage == null) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        while (!isJournaled()) {
+            if (System.nanoTime() - deadline >= 0) {
+                return;
+            }
+
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+
+        acknowledgeAll();
+    }
+
+    /**
+     * Acknowledges all received messages. It is called directly at the end of processing, when no more messages of the consumer are
+     * journaled.
+     *
+     * @throws JMSException if message can not be acknowledged
+     */
+    void acknowledgeAll() throws JMSException {
+        Message message = pendingMessage;
+
+        if (message != null) {
+            message.acknowledge();
+            pendingMessage = null;
+        }
+    }
+
+    /**
+     * Checks if all received messages were handed over and journaled. Message which can not be decoded is never handed over, so messages
+     * of its session are acknowledged only at the end of processing.
+     *
+     * @return true if all received messages are journaled
+     */
+    private boolean isJournaled() {
+        return handedOverMessages == receivedMessages && journalProgress.getAsInt() >= highestId;
+    }
+
+    /**
+     * Updates the highest id before message is handed over.
+     *
+     * @param message handed over message
+     */
+    private void onHandOver(final BrokerMessage message) {
+        if (message.getId() > highestId) {
+            highestId = message.getId();
+        }
+    }
+}
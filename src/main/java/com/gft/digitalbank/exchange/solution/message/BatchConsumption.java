@@ -0,0 +1,62 @@
+package com.gft.digitalbank.exchange.solution.message;
+
+import javax.jms.Session;
+
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+
+/**
+ * Settings of batched consumption of broker messages. Processor receives messages in dedicated loop instead of asynchronous listener and
+ * acknowledges them in groups: batch ends when it has batchSize messages or when no message arrives within linger time after the last
+ * one. Destination can be drained by many consumers, every consumer has its own session and receiving loop.
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Getter
+public class BatchConsumption {
+
+    /** Acknowledge mode of the session, CLIENT_ACKNOWLEDGE or DUPS_OK_ACKNOWLEDGE */
+    private final int acknowledgeMode;
+
+    /** Maximal number of messages in batch */
+    private final int batchSize;
+
+    /** Time of waiting for next message of the batch in milliseconds */
+    private final long lingerMillis;
+
+    /** Number of consumers per destination */
+    private final int consumerCount;
+
+    /**
+     * Constructor.
+     *
+     * @param acknowledgeMode acknowledge mode of the session, CLIENT_ACKNOWLEDGE or DUPS_OK_ACKNOWLEDGE
+     * @param batchSize maximal number of messages in batch
+     * @param lingerMillis time of waiting for next message of the batch in milliseconds
+     */
+    public BatchConsumption(int acknowledgeMode, int batchSize, long lingerMillis) {
+        this(acknowledgeMode, batchSize, lingerMillis, 1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param acknowledgeMode acknowledge mode of the session, CLIENT_ACKNOWLEDGE or DUPS_OK_ACKNOWLEDGE
+     * @param batchSize maximal number of messages in batch
+     * @param lingerMillis time of waiting for next message of the batch in milliseconds
+     * @param consumerCount number of consumers per destination
+     */
+    public BatchConsumption(int acknowledgeMode, int batchSize, long lingerMillis, int consumerCount) {
+        Preconditions.checkArgument(acknowledgeMode == Session.CLIENT_ACKNOWLEDGE || acknowledgeMode == Session.DUPS_OK_ACKNOWLEDGE,
+                "Unsupported acknowledge mode: %s", acknowledgeMode);
+        Preconditions.checkArgument(batchSize > 0, "Batch size must be positive: %s", batchSize);
+        Preconditions.checkArgument(lingerMillis >= 0, "Linger time must not be negative: %s", lingerMillis);
+        Preconditions.checkArgument(consumerCount > 0, "Number of consumers must be positive: %s", consumerCount);
+
+        this.acknowledgeMode = acknowledgeMode;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.consumerCount = consumerCount;
+    }
+}
@@ -1,18 +1,55 @@
 package com.gft.digitalbank.exchange.solution.message;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.jms.Connection;
 import javax.jms.Destination;
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
 import javax.jms.Session;
 
+import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+import com.gft.digitalbank.exchange.solution.util.SerialExecutor;
+
+import com.google.common.base.Preconditions;
+
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j;
 
 /**
  * Class processes orders coming from single JMS Broker.
  * 
+ * By default messages are delivered to asynchronous listener and acknowledged one by one. With batched consumption processor receives
+ * messages in dedicated thread and acknowledges every batch once. Shutdown notification is the last message of the broker, so it ends the
+ * batch and is acknowledged before it is passed on (processing of the notification stops the processor).
+ * 
+ * Batched consumption can use many consumers of the destination, every one with its own session on shared connection and its own serial
+ * lane, so messages of single consumer (i.e. JMS message group pinned to it by broker) keep their order. Shutdown notification is passed
+ * on only when all consumers are drained and their lanes have handed over all earlier messages, so no message of the broker is processed
+ * after the notification.
+ * 
+ * Consumer is drained when order assurance buffer expects id of the shutdown notification (see sequenceProgress): all messages of the
+ * broker have lower ids, so all of them were received. Without sequence progress consumer is drained when it receives nothing for drain
+ * timeout after the notification, message delayed longer by the broker is lost.
+ * 
+ * When journal progress is set, messages are acknowledged only after they are journaled (see AcknowledgeTracker), so messages waiting in
+ * lanes or in order assurance buffer at crash are delivered again. Shutdown notification is then acknowledged at the end of processing
+ * (method finish), connection stays open until then.
+ * 
+ * Processor is paused by stopping its connection, which stops all its consumers. Consumer holding message awaited by the order assurance
+ * buffer would be stopped as well, so processor with many consumers is never paused. Idle time of consumer is not counted during pause, as
+ * stopped consumer receives nothing even if it has prefetched messages.
+ * 
  * @author Arkadiusz Cieslak
  */
 @Log4j
@@ -25,8 +62,54 @@ public class BrokerMessageProcessor extends AbstractProcessor {
     /** Reference to JSM connection object */
     private Connection connection;
     
-    /** Reference to JSM session object */
-    private Session session;
+    /** Sessions of consumers */
+    private final List<Session> sessions = new ArrayList<>();
+
+    /** Serial lanes decoding and dispatching messages, one per consumer */
+    private final List<Executor> lanes = new ArrayList<>();
+
+    /** Trackers of acknowledgement of journaled messages, one per consumer (empty if journal progress is not set) */
+    private final List<AcknowledgeTracker> trackers = new ArrayList<>();
+
+    /** Number of consumers which are not drained after shutdown notification */
+    private final AtomicInteger activeConsumers = new AtomicInteger();
+
+    /** Received shutdown notification waiting for consumers to drain */
+    private volatile Message shutdownNotification;
+
+    /** Listener of consumer which received shutdown notification */
+    private volatile MessageListener shutdownListener;
+
+    /** Id of received shutdown notification, decoded only if sequence progress is set */
+    private volatile int shutdownId;
+
+    /** Time (nano time) when shutdown notification was received */
+    private volatile long shutdownReceivedAt;
+
+    /** Default drain timeout in milliseconds */
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 1000;
+
+    /** Time without messages after shutdown notification after which consumer is drained, used only without sequence progress */
+    @Setter @Getter
+    private long drainTimeoutMillis = DEFAULT_DRAIN_TIMEOUT_MILLIS;
+
+    /** Timeout of waiting for the first message of batch, receiving loop checks if it should stop after the timeout */
+    private static final long POLL_MILLIS = 100;
+
+    /** Is receiving loop running? */
+    private volatile boolean receiving;
+
+    /** Can delivery be paused? Only processor with single consumer is paused */
+    private volatile boolean pausable;
+
+    /** Is delivery paused? */
+    private volatile boolean paused;
+
+    /** Is connection closed? */
+    private boolean closed;
+
+    /** Number of pauses, receiving loop compares it before and after receive to detect pause during receive */
+    private final AtomicLong pauseCount = new AtomicLong();
 
     /**
      * Constructor.
@@ -41,30 +124,367 @@ public class BrokerMessageProcessor extends AbstractProcessor {
 
     @Override
     protected void doStart() {
+        Preconditions.checkState(journalProgress == null || batchConsumption != null
+                && batchConsumption.getAcknowledgeMode() == Session.CLIENT_ACKNOWLEDGE,
+                "Journaled messages require batched consumption with CLIENT_ACKNOWLEDGE");
+
         try {
             connection = connectionFactory.createConnection();
             
             connection.start();
             
-            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            int acknowledgeMode = batchConsumption != null ? batchConsumption.getAcknowledgeMode() : Session.AUTO_ACKNOWLEDGE;
+            int consumerCount = batchConsumption != null ? batchConsumption.getConsumerCount() : 1;
             
-            Destination     destination = session.createQueue(destinationName);
-            MessageConsumer consumer    = session.createConsumer(destination);
+            List<MessageConsumer> consumers = new ArrayList<>();
+            List<OrderMessageListener> listeners = new ArrayList<>();
             
-            consumer.setMessageListener(new OrderMessageListener(brokerMessageListener, this, executor));
+            for (int i = 0; i < consumerCount; i++) {
+                Session         session     = connection.createSession(false, acknowledgeMode);
+                Destination     destination = session.createQueue(destinationName);
+                
+                sessions.add(session);
+                consumers.add(session.createConsumer(destination));
+                listeners.add(createMessageListener(createTracker()));
+            }
+            
+            activeConsumers.set(consumerCount);
+            pausable = consumerCount == 1;
+            
+            for (int i = 0; i < consumerCount; i++) {
+                if (batchConsumption != null) {
+                    startReceiver(consumers.get(i), listeners.get(i), trackers.isEmpty() ? null : trackers.get(i), i);
+                } else {
+                    consumers.get(i).setMessageListener(listeners.get(i));
+                }
+            }
         } catch (JMSException e) {
             log.error("JMSException in method doStart", e);
         }
     }
 
+    /**
+     * Starts thread receiving messages in batches.
+     * 
+     * @param consumer consumer of the destination
+     * @param listener listener of received messages
+     * @param tracker tracker of acknowledgement of journaled messages, null if messages are not journaled
+     * @param index index of the consumer
+     */
+    private void startReceiver(final MessageConsumer consumer, final OrderMessageListener listener, final AcknowledgeTracker tracker,
+            final int index) {
+        Thread receiver = new Thread(() -> receiveMessages(consumer, listener, tracker), processorName + "-receiver-" + index);
+
+        receiving = true;
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Receiving loop, it ends when processor is stopped or when consumer is drained after shutdown notification. Consumer which received
+     * nothing is checked if it is drained, idle time is measured from the later of its last message and the notification.
+     * 
+     * With journal, received batch is acknowledged when it is journaled, receiver waits for it at most poll time and continues receiving
+     * otherwise (i.e. gap is filled by later message of the same consumer), then it is acknowledged together with later batches.
+     * 
+     * @param consumer consumer of the destination
+     * @param listener listener of received messages
+     * @param tracker tracker of acknowledgement of journaled messages, null if messages are not journaled
+     */
+    private void receiveMessages(final MessageConsumer consumer, final OrderMessageListener listener, final AcknowledgeTracker tracker) {
+        long idleSince = System.nanoTime();
+
+        try {
+            while (receiving) {
+                long pauses = pauseCount.get();
+                Message message = consumer.receive(POLL_MILLIS);
+
+                if (message != null ? receiveBatch(consumer, listener, message, tracker) : isDrained(idleSince)) {
+                    onConsumerDrained();
+                    return;
+                }
+
+                if (message != null || paused || pauseCount.get() != pauses) {
+                    idleSince = System.nanoTime();
+                }
+
+                if (tracker != null) {
+                    tracker.acknowledge(message != null ? POLL_MILLIS : 0);
+                }
+            }
+        } catch (JMSException e) {
+            if (receiving) {
+                // failed consumer can not deliver more messages, it must not hold back shutdown notification received by others
+                log.error("JMSException in receiving loop, consumer is treated as drained", e);
+                onConsumerDrained();
+            }
+        }
+    }
+
+    /**
+     * Checks if consumer which received nothing is drained. With sequence progress it is drained when order assurance buffer expects the
+     * shutdown notification, otherwise when it is idle for drain timeout after the notification.
+     * 
+     * @param idleSince time (nano time) of the last message of the consumer or of the last pause
+     * 
+     * @return true if consumer is drained
+     */
+    private boolean isDrained(final long idleSince) {
+        if (shutdownNotification == null) {
+            return false;
+        }
+
+        if (sequenceProgress != null) {
+            return sequenceProgress.getAsInt() >= shutdownId;
+        }
+
+        long idleNanos = System.nanoTime() - Math.max(idleSince, shutdownReceivedAt);
+
+        return !paused && idleNanos >= TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+    }
+
+    /**
+     * Receives batch of messages and acknowledges it, with journal the batch is passed to tracker of acknowledgement instead.
+     * 
+     * @param consumer consumer of the destination
+     * @param listener listener of received messages
+     * @param first the first message of the batch
+     * @param tracker tracker of acknowledgement of journaled messages, null if messages are not journaled
+     * 
+     * @return true if batch ended with shutdown notification
+     * 
+     * @throws JMSException if message can not be received or acknowledged
+     */
+    private boolean receiveBatch(final MessageConsumer consumer, final OrderMessageListener listener, final Message first,
+            final AcknowledgeTracker tracker) throws JMSException {
+        Message message = first;
+        Message last = null;
+        int count = 0;
+
+        while (message != null) {
+            if (isShutdownNotification(message)) {
+                if (tracker == null) {
+                    message.acknowledge();
+                } else if (last != null) {
+                    tracker.onReceived(last, count);
+                }
+
+                if (sequenceProgress != null) {
+                    shutdownId = listener.decode(message, listener.getMessageHandler(message)).getId();
+                }
+
+                shutdownReceivedAt = System.nanoTime();
+                shutdownListener = listener;
+                shutdownNotification = message;
+
+                return true;
+            }
+
+            listener.onMessage(message);
+            last = message;
+            message = ++count < batchConsumption.getBatchSize() ? nextMessage(consumer) : null;
+        }
+
+        if (tracker == null) {
+            last.acknowledge();
+        } else {
+            tracker.onReceived(last, count);
+        }
+
+        return false;
+    }
+
+    /**
+     * Passes on shutdown notification when the last consumer is drained or failed. Notification goes through all lanes, so it is passed
+     * after all messages handed over to the lanes before.
+     */
+    private void onConsumerDrained() {
+        if (activeConsumers.decrementAndGet() > 0) {
+            return;
+        }
+
+        Message message = shutdownNotification;
+        MessageListener listener = shutdownListener;
+
+        if (message == null) {
+            log.error("All consumers of " + destinationName + " failed before shutdown notification, broker can not be finished");
+            return;
+        }
+
+        if (lanes.size() <= 1) {
+            listener.onMessage(message);
+            return;
+        }
+
+        AtomicInteger arrivals = new AtomicInteger(lanes.size());
+
+        for (Executor lane : lanes) {
+            lane.execute(() -> {
+                if (arrivals.decrementAndGet() == 0) {
+                    listener.onMessage(message);
+                }
+            });
+        }
+    }
+
+    /**
+     * Receives next message of the batch, waiting at most linger time.
+     * 
+     * @param consumer consumer of the destination
+     * 
+     * @return next message or null if batch ends
+     * 
+     * @throws JMSException if message can not be received
+     */
+    private Message nextMessage(final MessageConsumer consumer) throws JMSException {
+        Message message = consumer.receiveNoWait();
+
+        if (message == null && batchConsumption.getLingerMillis() > 0) {
+            message = consumer.receive(batchConsumption.getLingerMillis());
+        }
+
+        return message;
+    }
+
+    /**
+     * Checks if message is shutdown notification.
+     * 
+     * @param message JMS message
+     * 
+     * @return true if message is shutdown notification
+     * 
+     * @throws JMSException if message property can not be read
+     */
+    private static boolean isShutdownNotification(final Message message) throws JMSException {
+        return MessageType.SHUTDOWN_NOTIFICATION.name().equals(message.getStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME));
+    }
+
+    /**
+     * Creates tracker of acknowledgement of journaled messages of single consumer, if journal progress is set.
+     * 
+     * @return listener of decoded messages of the consumer, tracker or broker message listener of the processor
+     */
+    private BrokerMessageListener createTracker() {
+        if (journalProgress == null) {
+            return brokerMessageListener;
+        }
+
+        AcknowledgeTracker tracker = new AcknowledgeTracker(brokerMessageListener, journalProgress);
+
+        trackers.add(tracker);
+
+        return tracker;
+    }
+
+    /**
+     * Creates listener of received messages of single consumer, it publishes messages into pipeline if pipeline is set or passes them to
+     * new serial lane.
+     * 
+     * @param listener listener of decoded messages of the consumer
+     * 
+     * @return message listener
+     */
+    private OrderMessageListener createMessageListener(final BrokerMessageListener listener) {
+        if (pipeline != null) {
+            return new OrderMessageListener(listener, this, pipeline);
+        }
+
+        Executor lane = new SerialExecutor(executor);
+
+        lanes.add(lane);
+
+        return new OrderMessageListener(listener, this, lane);
+    }
+
+    /**
+     * Pauses delivery of messages by stopping the connection. It can not be called by the thread delivering messages of this processor.
+     * Processor with many consumers is not paused.
+     */
+    public void pause() {
+        if (!pausable) {
+            return;
+        }
+
+        paused = true;
+        pauseCount.incrementAndGet();
+
+        try {
+            connection.stop();
+        } catch (JMSException e) {
+            log.error("JMSException in method pause", e);
+        }
+    }
+
+    /**
+     * Resumes delivery of messages paused by method pause.
+     */
+    public void resume() {
+        if (!pausable) {
+            return;
+        }
+
+        try {
+            connection.start();
+        } catch (JMSException e) {
+            log.error("JMSException in method resume", e);
+        }
+
+        paused = false;
+    }
+
+    /**
+     * Acknowledges messages held back until the end of processing and closes connection. It is called when processing of all brokers ends,
+     * it does nothing if messages are not journaled.
+     */
+    public void finish() {
+        if (journalProgress == null) {
+            return;
+        }
+
+        receiving = false;
+
+        try {
+            for (AcknowledgeTracker tracker : trackers) {
+                tracker.acknowledgeAll();
+            }
+
+            if (shutdownNotification != null) {
+                shutdownNotification.acknowledge();
+            }
+        } catch (JMSException e) {
+            log.error("JMSException in method finish", e);
+        }
+
+        close();
+    }
+
     @Override
     protected void doStop() {
+        receiving = false;
+        
+        if (journalProgress == null) {
+            close();
+        }
+    }
+
+    /**
+     * Closes sessions and connection.
+     */
+    private synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
         try {
-            session.close();
+            for (Session session : sessions) {
+                session.close();
+            }
+            
             connection.close();
         } catch (JMSException e) {
-            log.error("JMSException in method doStop", e);
+            log.error("JMSException in method close", e);
         }
-        
     }
 }
@@ -3,19 +3,24 @@ package com.gft.digitalbank.exchange.solution.message;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import com.gft.digitalbank.exchange.solution.transaction.BrokerFlowControl;
 import com.gft.digitalbank.exchange.solution.util.SerialExecutor;
 import com.google.common.base.Preconditions;
 
 import lombok.Setter;
 
 /**
- * Class for processing messages from defined brokers.
+ * Class for processing messages from defined brokers. Every consumer of broker processor decodes and dispatches its messages in its own
+ * serial lane, so messages of single consumer keep their order while destinations are decoded in parallel (global order is restored by
+ * MessageOrderAssuranceBuffer). It also controls flow of brokers: processors are paused and resumed in separate serial executor, because
+ * stopping JMS connection waits for its message listeners.
  * 
  * @author Arkadiusz Cieslak
  */
-public class MessageProcessor extends AbstractProcessor {
+public class MessageProcessor extends AbstractProcessor implements BrokerFlowControl {
     
     /** List of broker destinations */
     @Setter
@@ -24,7 +29,8 @@ public class MessageProcessor extends AbstractProcessor {
     /** Map of broker processors identified by broker destination name */
     private Map<String, BrokerMessageProcessor> brokerProcessors;
     
-    private Executor serialExecutor;
+    /** Serial executor pausing and resuming broker processors */
+    private Executor flowControlExecutor;
     
     /**
      * Default constructor.
@@ -37,7 +43,7 @@ public class MessageProcessor extends AbstractProcessor {
     protected void doStart() {
         Preconditions.checkNotNull(destinations, "Destinations not set");
         
-        serialExecutor = new SerialExecutor(executor);
+        flowControlExecutor = new SerialExecutor(executor);
         
         brokerProcessors = destinations
                 .stream()
@@ -57,15 +63,44 @@ public class MessageProcessor extends AbstractProcessor {
         
         processor.setConnectionFactory(connectionFactory);
         processor.setBrokerMessageListener(brokerMessageListener);
-        processor.setExecutor(serialExecutor);
+        processor.setExecutor(executor);
+        processor.setPipeline(pipeline);
+        processor.setBatchConsumption(batchConsumption);
+        processor.setSymbolDictionary(symbolDictionary);
+        processor.setJournalProgress(journalProgress);
+        processor.setSequenceProgress(sequenceProgress);
         processor.start();
         
         return processor;
     }
     
+    @Override
+    public void pauseBroker(final String broker) {
+        onBrokerProcessor(broker, BrokerMessageProcessor::pause);
+    }
+
+    @Override
+    public void resumeBroker(final String broker) {
+        onBrokerProcessor(broker, BrokerMessageProcessor::resume);
+    }
+
+    /**
+     * Submits action on broker processor in flow control executor.
+     * 
+     * @param broker name of the broker (destination)
+     * @param action action on processor
+     */
+    private void onBrokerProcessor(final String broker, final Consumer<BrokerMessageProcessor> action) {
+        BrokerMessageProcessor processor = brokerProcessors != null ? brokerProcessors.get(broker) : null;
+
+        if (processor != null) {
+            flowControlExecutor.execute(() -> action.accept(processor));
+        }
+    }
+
     @Override
     protected void doStop() {
+        brokerProcessors.values().forEach(BrokerMessageProcessor::finish);
         brokerProcessors.clear();
-        serialExecutor = null;
     }
 }
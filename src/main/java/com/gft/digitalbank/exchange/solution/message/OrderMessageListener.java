@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executor;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -11,17 +12,22 @@ import javax.jms.TextMessage;
 
 import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
 import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.solution.message.codec.BinaryMessageCodec;
+import com.gft.digitalbank.exchange.solution.message.codec.JsonMessageDecoder;
+import com.gft.digitalbank.exchange.solution.message.codec.MessageFormat;
 import com.gft.digitalbank.exchange.solution.message.handler.CancellationOrderHandler;
 import com.gft.digitalbank.exchange.solution.message.handler.MessageHandler;
 import com.gft.digitalbank.exchange.solution.message.handler.ModificationOrderHandler;
 import com.gft.digitalbank.exchange.solution.message.handler.PositionOrderHandler;
 import com.gft.digitalbank.exchange.solution.message.handler.ShutdownNotificationHandler;
+import com.gft.digitalbank.exchange.solution.pipeline.MessagePipeline;
 import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
 import com.google.common.base.Preconditions;
-import com.google.gson.Gson;
 
 /**
- * Message listener for processing broker messages.
+ * Message listener for processing broker messages. Messages are JSON TextMessages or, if message format property is BINARY,
+ * BytesMessages decoded by BinaryMessageCodec.
  * 
  * @author Arkadiusz Cieslak
  */
@@ -36,8 +42,14 @@ public class OrderMessageListener implements MessageListener {
     /** Object for executing message handling mechanizm */
     private Executor executor;
 
-    /** Static object for deserializing JSON data */
-    private static final Gson GSON = new Gson();
+    /** Optional pipeline decoding and dispatching messages instead of executor */
+    private MessagePipeline pipeline;
+
+    /** Decoders of JSON data, decoder keeps parsing state so every thread has its own */
+    private static final ThreadLocal<JsonMessageDecoder> DECODER = ThreadLocal.withInitial(JsonMessageDecoder::new);
+
+    /** Codecs of binary data, one per thread */
+    private final ThreadLocal<BinaryMessageCodec> binaryCodec;
 
     /** Map of MessageHandlers identified by handled MessageType */
     private static final Map<MessageType, MessageHandler<? extends BrokerMessage>> MESSAGE_HANDLERS = new HashMap<>();
@@ -45,6 +57,9 @@ public class OrderMessageListener implements MessageListener {
     /** Name of property defining message type */
     public static final String MESSAGE_TYPE_PROPERTY_NAME = "messageType";
 
+    /** Name of property defining message format (MessageFormat), JSON if not set */
+    public static final String MESSAGE_FORMAT_PROPERTY_NAME = "messageFormat";
+
     static {
         MESSAGE_HANDLERS.put(MessageType.CANCEL, new CancellationOrderHandler());
         MESSAGE_HANDLERS.put(MessageType.MODIFICATION, new ModificationOrderHandler());
@@ -59,33 +74,113 @@ public class OrderMessageListener implements MessageListener {
         this.brokerMessageListener = brokerMessageListener;
         this.brokerMessageProcessor = processor;
         this.executor = executor;
+        this.binaryCodec = createBinaryCodec(processor);
+    }
+
+    /**
+     * Constructor.
+     */
+    public OrderMessageListener(BrokerMessageListener brokerMessageListener, BrokerMessageProcessor processor, MessagePipeline pipeline) {
+        this.brokerMessageListener = brokerMessageListener;
+        this.brokerMessageProcessor = processor;
+        this.pipeline = pipeline;
+        this.binaryCodec = createBinaryCodec(processor);
+    }
+
+    /**
+     * Creates codecs of binary messages using symbol dictionary of the processor.
+     * 
+     * @param processor broker message processor
+     * 
+     * @return thread local codecs
+     */
+    private static ThreadLocal<BinaryMessageCodec> createBinaryCodec(BrokerMessageProcessor processor) {
+        SymbolDictionary dictionary = processor != null && processor.getSymbolDictionary() != null ? processor.getSymbolDictionary()
+                : new SymbolDictionary();
+
+        return ThreadLocal.withInitial(() -> new BinaryMessageCodec(dictionary));
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void onMessage(Message message) {
+        if (pipeline != null) {
+            pipeline.publish(this, message);
+            return;
+        }
+
         executor.execute(() -> {
             try {
-                Preconditions.checkArgument(message instanceof TextMessage, "Invalid message type");
+                MessageHandler<BrokerMessage> handler = getMessageHandler(message);
+
+                dispatch(handler, decode(message, handler));
+            } catch (JMSException e) {
+
+            }
+        });
+    }
 
-                MessageType mt = MessageType.valueOf(message.getStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME));
-                Preconditions.checkNotNull(mt, "MessageType is null");
+    /**
+     * Returns handler of the message based on message type property.
+     * 
+     * @param message JMS message
+     * 
+     * @return message handler
+     * 
+     * @throws JMSException if message property can not be read
+     */
+    @SuppressWarnings("unchecked")
+    public MessageHandler<BrokerMessage> getMessageHandler(Message message) throws JMSException {
+        Preconditions.checkArgument(message instanceof TextMessage || message instanceof BytesMessage, "Invalid message type");
 
-                MessageHandler<BrokerMessage> handler = (MessageHandler<BrokerMessage>) MESSAGE_HANDLERS.get(mt);
-                Preconditions.checkNotNull(handler, "MessageHandler is null");
+        MessageType mt = MessageType.valueOf(message.getStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME));
+        Preconditions.checkNotNull(mt, "MessageType is null");
 
-                BrokerMessage bm = deserializeBrokerMessage(((TextMessage) message).getText(), handler.getMessageClass());
-                Preconditions.checkNotNull(bm, "BrokerMessage is null");
+        MessageHandler<BrokerMessage> handler = (MessageHandler<BrokerMessage>) MESSAGE_HANDLERS.get(mt);
+        Preconditions.checkNotNull(handler, "MessageHandler is null");
 
-                handler.handleMessage(brokerMessageListener, brokerMessageProcessor, bm);
+        return handler;
+    }
 
-            } catch (JMSException e) {
+    /**
+     * Decodes broker message from JMS message.
+     * 
+     * @param message JMS message
+     * @param handler handler of the message
+     * 
+     * @return decoded broker message
+     * 
+     * @throws JMSException if message body can not be read
+     */
+    public BrokerMessage decode(Message message, MessageHandler<BrokerMessage> handler) throws JMSException {
+        String format = message.getStringProperty(MESSAGE_FORMAT_PROPERTY_NAME);
+        BrokerMessage bm;
 
-            }
-        });
+        if (format != null && MessageFormat.valueOf(format) == MessageFormat.BINARY) {
+            Preconditions.checkArgument(message instanceof BytesMessage, "Binary message is not BytesMessage");
+
+            bm = binaryCodec.get().decode((BytesMessage) message, handler.getMessageClass());
+        } else {
+            Preconditions.checkArgument(message instanceof TextMessage, "JSON message is not TextMessage");
+
+            bm = deserializeBrokerMessage(((TextMessage) message).getText(), handler.getMessageClass());
+        }
+
+        Preconditions.checkNotNull(bm, "BrokerMessage is null");
+
+        return bm;
+    }
+
+    /**
+     * Dispatches decoded broker message to BrokerMessageListener.
+     * 
+     * @param handler handler of the message
+     * @param bm decoded broker message
+     */
+    public void dispatch(MessageHandler<BrokerMessage> handler, BrokerMessage bm) {
+        handler.handleMessage(brokerMessageListener, brokerMessageProcessor, bm);
     }
 
     private <T extends BrokerMessage> T deserializeBrokerMessage(String serializedObj, Class<T> messageClass) {
-        return GSON.fromJson(serializedObj, messageClass);
+        return DECODER.get().decode(serializedObj, messageClass);
     }
 }
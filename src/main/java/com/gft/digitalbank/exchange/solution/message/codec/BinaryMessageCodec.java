@@ -0,0 +1,187 @@
+package com.gft.digitalbank.exchange.solution.message.codec;
+
+import java.nio.ByteBuffer;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+import com.google.common.base.Preconditions;
+
+/**
+ * Codec of fixed layout binary format of broker messages. Every message has MESSAGE_LENGTH bytes (big-endian):
+ *
+ * <pre>
+ *  0  byte  format version
+ *  1  byte  message type (ordinal + 1, 0 if missing)
+ *  2  byte  side (ordinal + 1, 0 if missing)
+ *  3  byte  flags (bit 0: details present)
+ *  4  int   id
+ *  8  long  timestamp
+ * 16  int   broker code
+ * 20  int   client code
+ * 24  int   product code
+ * 28  int   amount
+ * 32  int   price
+ * 36  int   cancelled or modified order id
+ * </pre>
+ *
+ * Broker, client and product are codes of SymbolDictionary shared with message producers, so decoding resolves them to existing strings
+ * without creating any. Codec keeps its buffers, so single instance can be used only by one thread at a time.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class BinaryMessageCodec {
+
+    /** Length of encoded message in bytes */
+    public static final int MESSAGE_LENGTH = 40;
+
+    /** Version of the format */
+    public static final byte VERSION = 1;
+
+    /** Flag of present order details */
+    private static final int DETAILS_FLAG = 1;
+
+    /** Message types */
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+
+    /** Order sides */
+    private static final Side[] SIDES = Side.values();
+
+    /** Dictionary of symbol codes */
+    private final SymbolDictionary dictionary;
+
+    /** Fields filled by decode(BytesMessage, Class) */
+    private final MessageFields fields = new MessageFields();
+
+    /** Buffer of message body */
+    private final byte[] body = new byte[MESSAGE_LENGTH + 1];
+
+    /** View of message body */
+    private final ByteBuffer bodyBuffer = ByteBuffer.wrap(body, 0, MESSAGE_LENGTH);
+
+    /**
+     * Constructor.
+     *
+     * @param dictionary dictionary of symbol codes
+     */
+    public BinaryMessageCodec(SymbolDictionary dictionary) {
+        this.dictionary = Preconditions.checkNotNull(dictionary, "SymbolDictionary is null");
+    }
+
+    /**
+     * Decodes message of given class from body of JMS message.
+     *
+     * @param message JMS message
+     * @param messageClass class of the message
+     *
+     * @return decoded message
+     *
+     * @throws JMSException if message body can not be read
+     */
+    public <T extends BrokerMessage> T decode(final BytesMessage message, final Class<T> messageClass) throws JMSException {
+        int length = message.readBytes(body);
+
+        Preconditions.checkArgument(length == MESSAGE_LENGTH, "Invalid length of binary message: %s", length);
+
+        bodyBuffer.clear();
+
+        return decode(bodyBuffer, fields).toBrokerMessage(messageClass);
+    }
+
+    /**
+     * Decodes message at current position of the buffer into flyweight object. Position is advanced by MESSAGE_LENGTH.
+     *
+     * @param source buffer with encoded message
+     * @param target reusable object filled with message fields
+     *
+     * @return target
+     */
+    public MessageFields decode(final ByteBuffer source, final MessageFields target) {
+        Preconditions.checkArgument(source.remaining() >= MESSAGE_LENGTH, "Binary message truncated: %s", source.remaining());
+
+        int p = source.position();
+
+        Preconditions.checkArgument(source.get(p) == VERSION, "Unsupported version of binary message: %s", source.get(p));
+
+        MessageType messageType = constant(MESSAGE_TYPES, source.get(p + 1));
+        int referencedId = source.getInt(p + 36);
+
+        target.clear();
+        target.setMessageType(messageType);
+        target.setSide(constant(SIDES, source.get(p + 2)));
+        target.setDetails((source.get(p + 3) & DETAILS_FLAG) != 0);
+        target.setId(source.getInt(p + 4));
+        target.setTimestamp(source.getLong(p + 8));
+        target.setBroker(dictionary.symbol(source.getInt(p + 16)));
+        target.setClient(dictionary.symbol(source.getInt(p + 20)));
+        target.setProduct(dictionary.symbol(source.getInt(p + 24)));
+        target.setAmount(source.getInt(p + 28));
+        target.setPrice(source.getInt(p + 32));
+
+        if (messageType == MessageType.CANCEL) {
+            target.setCancelledOrderId(referencedId);
+        } else if (messageType == MessageType.MODIFICATION) {
+            target.setModifiedOrderId(referencedId);
+        }
+
+        source.position(p + MESSAGE_LENGTH);
+
+        return target;
+    }
+
+    /**
+     * Encodes message at current position of the buffer. Position is advanced by MESSAGE_LENGTH, symbols missing in dictionary are added.
+     *
+     * @param source message fields
+     * @param target buffer with at least MESSAGE_LENGTH bytes remaining
+     */
+    public void encode(final MessageFields source, final ByteBuffer target) {
+        Preconditions.checkArgument(target.remaining() >= MESSAGE_LENGTH, "Buffer too small: %s", target.remaining());
+
+        int p = target.position();
+        int referencedId = source.getMessageType() == MessageType.CANCEL ? source.getCancelledOrderId() : source.getModifiedOrderId();
+
+        target.put(p, VERSION);
+        target.put(p + 1, ordinal(source.getMessageType()));
+        target.put(p + 2, ordinal(source.getSide()));
+        target.put(p + 3, (byte) (source.isDetails() ? DETAILS_FLAG : 0));
+        target.putInt(p + 4, source.getId());
+        target.putLong(p + 8, source.getTimestamp());
+        target.putInt(p + 16, dictionary.intern(source.getBroker()));
+        target.putInt(p + 20, dictionary.intern(source.getClient()));
+        target.putInt(p + 24, dictionary.intern(source.getProduct()));
+        target.putInt(p + 28, source.getAmount());
+        target.putInt(p + 32, source.getPrice());
+        target.putInt(p + 36, referencedId);
+        target.position(p + MESSAGE_LENGTH);
+    }
+
+    /**
+     * Returns enum constant coded as ordinal + 1.
+     *
+     * @param values constants of the enum
+     * @param code code of the constant
+     *
+     * @return constant or null if code is 0
+     */
+    private static <E extends Enum<E>> E constant(final E[] values, final byte code) {
+        Preconditions.checkArgument(code >= 0 && code <= values.length, "Invalid code of constant: %s", code);
+
+        return code == 0 ? null : values[code - 1];
+    }
+
+    /**
+     * Returns code of enum constant.
+     *
+     * @param value constant
+     *
+     * @return ordinal + 1 or 0 if constant is null
+     */
+    private static byte ordinal(final Enum<?> value) {
+        return (byte) (value == null ? 0 : value.ordinal() + 1);
+    }
+}
@@ -0,0 +1,592 @@
+package com.gft.digitalbank.exchange.solution.message.codec;
+
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.model.orders.Side;
+
+/**
+ * Streaming decoder of broker messages in JSON format. Text is parsed in single pass straight into MessageFields, without reflection and
+ * without intermediate tree: numbers and enum constants are read in place, only string values (broker, client, product) are allocated.
+ * Unknown fields are skipped as by reflective binding. Numbers have to be integers within range of their field, values out of range are
+ * rejected with IllegalArgumentException, unlike reflective binding numbers with fraction or exponent (i.e. 100.0) are rejected as well.
+ *
+ * Decoder keeps parsing state and its own MessageFields, so single instance can be used only by one thread at a time.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class JsonMessageDecoder {
+
+    /** Names of decoded fields, index in array is the key code */
+    private static final String[] KEYS = { "messageType", "id", "timestamp", "broker", "client", "product", "side", "details", "amount",
+            "price", "cancelledOrderId", "modifiedOrderId" };
+
+    /** Code of key messageType */
+    private static final int MESSAGE_TYPE = 0;
+
+    /** Code of key id */
+    private static final int ID = 1;
+
+    /** Code of key timestamp */
+    private static final int TIMESTAMP = 2;
+
+    /** Code of key broker */
+    private static final int BROKER = 3;
+
+    /** Code of key client */
+    private static final int CLIENT = 4;
+
+    /** Code of key product */
+    private static final int PRODUCT = 5;
+
+    /** Code of key side */
+    private static final int SIDE = 6;
+
+    /** Code of key details */
+    private static final int DETAILS = 7;
+
+    /** Code of key amount */
+    private static final int AMOUNT = 8;
+
+    /** Code of key price */
+    private static final int PRICE = 9;
+
+    /** Code of key cancelledOrderId */
+    private static final int CANCELLED_ORDER_ID = 10;
+
+    /** Code of key modifiedOrderId */
+    private static final int MODIFIED_ORDER_ID = 11;
+
+    /** Code of unknown key */
+    private static final int UNKNOWN = -1;
+
+    /** Message types */
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+
+    /** Order sides */
+    private static final Side[] SIDES = Side.values();
+
+    /** Fields filled by decode(CharSequence, Class) */
+    private final MessageFields fields = new MessageFields();
+
+    /** Buffer of string values containing escape sequences */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /** Decoded text */
+    private CharSequence json;
+
+    /** Position of the next character */
+    private int pos;
+
+    /** Start of the last string token (inclusive) */
+    private int tokenStart;
+
+    /** End of the last string token (exclusive) */
+    private int tokenEnd;
+
+    /** Did the last string token contain escape sequences? */
+    private boolean tokenEscaped;
+
+    /**
+     * Decodes message of given class.
+     *
+     * @param json message text
+     * @param messageClass class of the message
+     *
+     * @return decoded message
+     */
+    public <T extends BrokerMessage> T decode(final CharSequence json, final Class<T> messageClass) {
+        decode(json, fields);
+
+        return fields.toBrokerMessage(messageClass);
+    }
+
+    /**
+     * Decodes message into flyweight object. All fields of the flyweight are overwritten, fields missing in text are reset.
+     *
+     * @param json message text
+     * @param target reusable object filled with message fields
+     *
+     * @return target
+     */
+    public MessageFields decode(final CharSequence json, final MessageFields target) {
+        this.json = json;
+        this.pos = 0;
+
+        target.clear();
+
+        try {
+            expect('{');
+            readObject(target, false);
+            skipWhitespace();
+
+            if (pos != json.length()) {
+                throw error();
+            }
+        } finally {
+            this.json = null;
+        }
+
+        return target;
+    }
+
+    /**
+     * Reads members of the object, opening brace is already consumed.
+     *
+     * @param target filled fields
+     * @param details is it object of order details?
+     */
+    private void readObject(final MessageFields target, final boolean details) {
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+
+        while (true) {
+            expect('"');
+            readString();
+
+            int key = matchKey(details);
+
+            expect(':');
+            readValue(target, key);
+
+            char c = next();
+
+            if (c == '}') {
+                return;
+            } else if (c != ',') {
+                throw error();
+            }
+        }
+    }
+
+    /**
+     * Reads value of the member and stores it in target fields.
+     *
+     * @param target filled fields
+     * @param key code of the member key
+     */
+    private void readValue(final MessageFields target, final int key) {
+        switch (key) {
+        case MESSAGE_TYPE:
+            target.setMessageType(readEnum(MESSAGE_TYPES));
+            break;
+        case ID:
+            target.setId(readInt());
+            break;
+        case TIMESTAMP:
+            target.setTimestamp(readLong());
+            break;
+        case BROKER:
+            target.setBroker(readStringValue());
+            break;
+        case CLIENT:
+            target.setClient(readStringValue());
+            break;
+        case PRODUCT:
+            target.setProduct(readStringValue());
+            break;
+        case SIDE:
+            target.setSide(readEnum(SIDES));
+            break;
+        case DETAILS:
+            if (readNull()) {
+                target.setDetails(false);
+            } else {
+                expect('{');
+                target.setDetails(true);
+                readObject(target, true);
+            }
+            break;
+        case AMOUNT:
+            target.setAmount(readInt());
+            break;
+        case PRICE:
+            target.setPrice(readInt());
+            break;
+        case CANCELLED_ORDER_ID:
+            target.setCancelledOrderId(readInt());
+            break;
+        case MODIFIED_ORDER_ID:
+            target.setModifiedOrderId(readInt());
+            break;
+        default:
+            skipValue();
+        }
+    }
+
+    /**
+     * Finds code of the last string token among keys of the message or of order details.
+     *
+     * @param details is it key of order details?
+     *
+     * @return key code or UNKNOWN
+     */
+    private int matchKey(final boolean details) {
+        for (int key = 0; key < KEYS.length; key++) {
+            boolean detailsKey = key == AMOUNT || key == PRICE;
+
+            if (detailsKey == details && tokenEquals(KEYS[key])) {
+                return key;
+            }
+        }
+
+        return UNKNOWN;
+    }
+
+    /**
+     * Compares the last string token with given text, token with escape sequences is compared in its unescaped form.
+     *
+     * @param text compared text
+     *
+     * @return true if token is equal to text
+     */
+    private boolean tokenEquals(final String text) {
+        if (tokenEscaped) {
+            return text.contentEquals(buffer);
+        }
+
+        if (tokenEnd - tokenStart != text.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < text.length(); i++) {
+            if (json.charAt(tokenStart + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads enum constant given by its name.
+     *
+     * @param values constants of the enum
+     *
+     * @return constant or null if value is null
+     */
+    private <E extends Enum<E>> E readEnum(final E[] values) {
+        if (readNull()) {
+            return null;
+        }
+
+        expect('"');
+        readString();
+
+        for (E value : values) {
+            if (tokenEquals(value.name())) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown constant " + json.subSequence(tokenStart, tokenEnd) + " at position " + tokenStart);
+    }
+
+    /**
+     * Reads string value.
+     *
+     * @return string or null if value is null
+     */
+    private String readStringValue() {
+        if (readNull()) {
+            return null;
+        }
+
+        expect('"');
+        readString();
+
+        return tokenEscaped ? buffer.toString() : json.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    /**
+     * Reads integer number within int range, number may be also quoted.
+     *
+     * @return number, 0 if value is null
+     */
+    private int readInt() {
+        int start = pos;
+        long value = readLong();
+
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Number out of int range at position " + start);
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * Reads integer number within long range (minimal long value excluded), number may be also quoted.
+     *
+     * @return number, 0 if value is null
+     */
+    private long readLong() {
+        if (readNull()) {
+            return 0;
+        }
+
+        boolean quoted = peek() == '"';
+
+        if (quoted) {
+            pos++;
+        }
+
+        boolean negative = pos < json.length() && json.charAt(pos) == '-';
+
+        if (negative) {
+            pos++;
+        }
+
+        int start = pos;
+        long value = 0;
+
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+
+            if (c < '0' || c > '9') {
+                break;
+            }
+
+            if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                throw new IllegalArgumentException("Number out of long range at position " + start);
+            }
+
+            value = value * 10 + (c - '0');
+            pos++;
+        }
+
+        if (pos == start) {
+            throw error();
+        }
+
+        if (quoted && next() != '"') {
+            throw error();
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads null literal if it is the next value.
+     *
+     * @return true if null was read
+     */
+    private boolean readNull() {
+        if (peek() != 'n') {
+            return false;
+        }
+
+        readLiteral("null");
+
+        return true;
+    }
+
+    /**
+     * Reads literal.
+     *
+     * @param literal expected literal
+     */
+    private void readLiteral(final String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (pos >= json.length() || json.charAt(pos++) != literal.charAt(i)) {
+                throw error();
+            }
+        }
+    }
+
+    /**
+     * Reads string token, opening quote is already consumed. Token without escape sequences is only marked in the text, token with escape
+     * sequences is unescaped into buffer.
+     */
+    private void readString() {
+        tokenStart = pos;
+        tokenEscaped = false;
+
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+
+            if (c == '"') {
+                tokenEnd = pos++;
+                return;
+            } else if (c == '\\') {
+                readEscapedString();
+                return;
+            }
+
+            pos++;
+        }
+
+        throw error();
+    }
+
+    /**
+     * Reads rest of string token containing escape sequences into buffer.
+     */
+    private void readEscapedString() {
+        buffer.setLength(0);
+        buffer.append(json, tokenStart, pos);
+        tokenEscaped = true;
+
+        while (pos < json.length()) {
+            char c = json.charAt(pos++);
+
+            if (c == '"') {
+                tokenEnd = pos - 1;
+                return;
+            } else if (c != '\\') {
+                buffer.append(c);
+                continue;
+            }
+
+            if (pos >= json.length()) {
+                break;
+            }
+
+            c = json.charAt(pos++);
+
+            switch (c) {
+            case 'b':
+                buffer.append('\b');
+                break;
+            case 'f':
+                buffer.append('\f');
+                break;
+            case 'n':
+                buffer.append('\n');
+                break;
+            case 'r':
+                buffer.append('\r');
+                break;
+            case 't':
+                buffer.append('\t');
+                break;
+            case 'u':
+                if (pos + 4 > json.length()) {
+                    throw error();
+                }
+
+                buffer.append((char) Integer.parseInt(json.subSequence(pos, pos + 4).toString(), 16));
+                pos += 4;
+                break;
+            default:
+                buffer.append(c);
+            }
+        }
+
+        throw error();
+    }
+
+    /**
+     * Skips value of any type.
+     */
+    private void skipValue() {
+        char c = next();
+
+        switch (c) {
+        case '"':
+            readString();
+            break;
+        case '{':
+            skipContainer('}');
+            break;
+        case '[':
+            skipContainer(']');
+            break;
+        default:
+            while (pos < json.length() && ",}] \t\r\n".indexOf(json.charAt(pos)) < 0) {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Skips rest of object or array, opening bracket is already consumed.
+     *
+     * @param close closing bracket
+     */
+    private void skipContainer(final char close) {
+        if (peek() == close) {
+            pos++;
+            return;
+        }
+
+        while (true) {
+            if (close == '}') {
+                expect('"');
+                readString();
+                expect(':');
+            }
+
+            skipValue();
+
+            char c = next();
+
+            if (c == close) {
+                return;
+            } else if (c != ',') {
+                throw error();
+            }
+        }
+    }
+
+    /**
+     * Consumes the next non-whitespace character, which has to be equal to expected one.
+     *
+     * @param expected expected character
+     */
+    private void expect(final char expected) {
+        if (next() != expected) {
+            throw error();
+        }
+    }
+
+    /**
+     * Consumes the next non-whitespace character.
+     *
+     * @return consumed character
+     */
+    private char next() {
+        skipWhitespace();
+
+        if (pos >= json.length()) {
+            throw error();
+        }
+
+        return json.charAt(pos++);
+    }
+
+    /**
+     * Returns the next non-whitespace character without consuming it.
+     *
+     * @return next character or 0 at the end of text
+     */
+    private char peek() {
+        skipWhitespace();
+
+        return pos < json.length() ? json.charAt(pos) : 0;
+    }
+
+    /**
+     * Skips whitespace characters.
+     */
+    private void skipWhitespace() {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return;
+            }
+
+            pos++;
+        }
+    }
+
+    /**
+     * Creates exception describing invalid text at current position.
+     *
+     * @return exception
+     */
+    private IllegalArgumentException error() {
+        return new IllegalArgumentException("Invalid JSON at position " + pos);
+    }
+}
@@ -0,0 +1,187 @@
+package com.gft.digitalbank.exchange.solution.message.codec;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Reusable flat representation of all broker message types. Decoders fill the same object for every message, so fields of single message
+ * can be read without creating model objects. Model message is created only on demand.
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Getter
+@Setter
+public class MessageFields {
+
+    /** Type of the message */
+    private MessageType messageType;
+
+    /** Message id */
+    private int id;
+
+    /** Message timestamp */
+    private long timestamp;
+
+    /** Broker name */
+    private String broker;
+
+    /** Client name (PositionOrder) */
+    private String client;
+
+    /** Product name (PositionOrder) */
+    private String product;
+
+    /** Order side (PositionOrder) */
+    private Side side;
+
+    /** Are order details present? (PositionOrder, ModificationOrder) */
+    private boolean details;
+
+    /** Order amount (details) */
+    private int amount;
+
+    /** Order price (details) */
+    private int price;
+
+    /** Id of cancelled order (CancellationOrder) */
+    private int cancelledOrderId;
+
+    /** Id of modified order (ModificationOrder) */
+    private int modifiedOrderId;
+
+    /**
+     * Resets all fields to default values.
+     */
+    public void clear() {
+        messageType = null;
+        id = 0;
+        timestamp = 0;
+        broker = null;
+        client = null;
+        product = null;
+        side = null;
+        details = false;
+        amount = 0;
+        price = 0;
+        cancelledOrderId = 0;
+        modifiedOrderId = 0;
+    }
+
+    /**
+     * Sets fields of model message, fields which message does not have are reset.
+     *
+     * @param message broker message
+     *
+     * @return this object
+     */
+    public MessageFields fill(final BrokerMessage message) {
+        clear();
+
+        id = message.getId();
+        timestamp = message.getTimestamp();
+        broker = message.getBroker();
+
+        if (message instanceof PositionOrder) {
+            PositionOrder order = (PositionOrder) message;
+
+            messageType = MessageType.ORDER;
+            client = order.getClient();
+            product = order.getProduct();
+            side = order.getSide();
+            fillDetails(order.getDetails());
+        } else if (message instanceof CancellationOrder) {
+            messageType = MessageType.CANCEL;
+            cancelledOrderId = ((CancellationOrder) message).getCancelledOrderId();
+        } else if (message instanceof ModificationOrder) {
+            ModificationOrder order = (ModificationOrder) message;
+
+            messageType = MessageType.MODIFICATION;
+            modifiedOrderId = order.getModifiedOrderId();
+            fillDetails(order.getDetails());
+        } else {
+            messageType = MessageType.SHUTDOWN_NOTIFICATION;
+        }
+
+        return this;
+    }
+
+    /**
+     * Creates model message of type given by messageType field.
+     *
+     * @return broker message
+     */
+    public BrokerMessage toBrokerMessage() {
+        Preconditions.checkState(messageType != null, "MessageType is null");
+
+        switch (messageType) {
+        case ORDER:
+            return toBrokerMessage(PositionOrder.class);
+        case CANCEL:
+            return toBrokerMessage(CancellationOrder.class);
+        case MODIFICATION:
+            return toBrokerMessage(ModificationOrder.class);
+        default:
+            return toBrokerMessage(ShutdownNotification.class);
+        }
+    }
+
+    /**
+     * Creates model message of given class.
+     *
+     * @param messageClass class of the message
+     *
+     * @return broker message
+     */
+    public <T extends BrokerMessage> T toBrokerMessage(final Class<T> messageClass) {
+        BrokerMessage message;
+
+        if (messageClass == PositionOrder.class) {
+            message = PositionOrder.builder().id(id).timestamp(timestamp).broker(broker).client(client).side(side).product(product)
+                    .details(toOrderDetails()).build();
+        } else if (messageClass == CancellationOrder.class) {
+            message = CancellationOrder.builder().id(id).timestamp(timestamp).broker(broker).cancelledOrderId(cancelledOrderId).build();
+        } else if (messageClass == ModificationOrder.class) {
+            message = ModificationOrder.builder().id(id).timestamp(timestamp).broker(broker).modifiedOrderId(modifiedOrderId)
+                    .details(toOrderDetails()).build();
+        } else if (messageClass == ShutdownNotification.class) {
+            message = ShutdownNotification.builder().id(id).timestamp(timestamp).broker(broker).build();
+        } else {
+            throw new IllegalArgumentException("Unsupported message class: " + messageClass);
+        }
+
+        return messageClass.cast(message);
+    }
+
+    /**
+     * Sets fields of order details.
+     *
+     * @param orderDetails order details, may be null
+     */
+    private void fillDetails(final OrderDetails orderDetails) {
+        details = orderDetails != null;
+
+        if (details) {
+            amount = orderDetails.getAmount();
+            price = orderDetails.getPrice();
+        }
+    }
+
+    /**
+     * Creates order details.
+     *
+     * @return order details or null if message has no details
+     */
+    private OrderDetails toOrderDetails() {
+        return details ? OrderDetails.builder().amount(amount).price(price).build() : null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.gft.digitalbank.exchange.solution.message.codec;
+
+/**
+ * Wire format of broker message, selected by message property.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public enum MessageFormat {
+
+    /** JSON text carried in TextMessage (default) */
+    JSON,
+
+    /** Fixed layout binary encoding carried in BytesMessage (BinaryMessageCodec) */
+    BINARY
+}
@@ -0,0 +1,41 @@
+package com.gft.digitalbank.exchange.solution.pipeline;
+
+import javax.jms.Message;
+
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.solution.message.OrderMessageListener;
+import com.gft.digitalbank.exchange.solution.message.handler.MessageHandler;
+
+/**
+ * Preallocated entry of message pipeline ring. Fields are filled by consecutive stages of the pipeline.
+ *
+ * @author Arkadiusz Cieslak
+ */
+class MessageEvent {
+
+    /** Listener which received the message (set by ingestion) */
+    OrderMessageListener listener;
+
+    /** Received JMS message (set by ingestion) */
+    Message message;
+
+    /** Handler of the message (set by decoding stage) */
+    MessageHandler<BrokerMessage> handler;
+
+    /** Decoded broker message, null if decoding failed (set by decoding stage) */
+    BrokerMessage brokerMessage;
+
+    /** Task run by sequencing stage instead of message, null for message entry (set by ingestion) */
+    Runnable task;
+
+    /**
+     * Releases references held by the entry.
+     */
+    void clear() {
+        listener = null;
+        message = null;
+        handler = null;
+        brokerMessage = null;
+        task = null;
+    }
+}
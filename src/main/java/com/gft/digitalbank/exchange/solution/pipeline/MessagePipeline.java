@@ -0,0 +1,210 @@
+package com.gft.digitalbank.exchange.solution.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import com.gft.digitalbank.exchange.solution.message.OrderMessageListener;
+import com.gft.digitalbank.exchange.solution.util.ring.BatchEventProcessor;
+import com.gft.digitalbank.exchange.solution.util.ring.RingBuffer;
+import com.gft.digitalbank.exchange.solution.util.ring.RingExecutor;
+import com.gft.digitalbank.exchange.solution.util.ring.Sequence;
+import com.gft.digitalbank.exchange.solution.util.ring.WaitStrategy;
+import com.google.common.base.Preconditions;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Pipeline of message processing built on ring buffers. JMS listeners publish received messages into ring, decoding stage decodes them in
+ * batches and sequencing stage (following decoding on the same ring) passes decoded messages to order assurance buffer and transaction
+ * engine in its own thread. Matching stage are engine threads owning product books, they receive tasks through ring executors.
+ *
+ * Decoding stage can run in many threads, every decoder decodes entries with sequence equal to its lane modulo number of decoders and
+ * sequencing stage waits for all of them, so entries are still dispatched in order of publication.
+ *
+ * Every stage runs in dedicated thread and waits for entries using configured wait strategy.
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Log4j
+public class MessagePipeline {
+
+    /** Ring of received messages */
+    private final RingBuffer<MessageEvent> ringBuffer;
+
+    /** Decoding stage, one processor per decoding thread */
+    private final List<BatchEventProcessor<MessageEvent>> decoders = new ArrayList<>();
+
+    /** Sequencing and routing stage */
+    private final BatchEventProcessor<MessageEvent> sequencer;
+
+    /** Threads of decoding and sequencing stages */
+    private final List<Thread> threads = new ArrayList<>();
+
+    /** Matching stage, engine threads owning product books */
+    private final RingExecutor[] engines;
+
+    /**
+     * Constructor.
+     *
+     * @param bufferSize size of every ring buffer, power of 2
+     * @param engineCount number of engine threads
+     * @param waitStrategy strategy of waiting for entries used by all stages
+     */
+    public MessagePipeline(int bufferSize, int engineCount, WaitStrategy waitStrategy) {
+        this(bufferSize, 1, engineCount, waitStrategy);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bufferSize size of every ring buffer, power of 2
+     * @param decoderCount number of decoding threads
+     * @param engineCount number of engine threads
+     * @param waitStrategy strategy of waiting for entries used by all stages
+     */
+    public MessagePipeline(int bufferSize, int decoderCount, int engineCount, WaitStrategy waitStrategy) {
+        Preconditions.checkArgument(decoderCount > 0, "Number of decoders must be positive: %s", decoderCount);
+        Preconditions.checkArgument(engineCount > 0, "Number of engines must be positive: %s", engineCount);
+
+        ringBuffer = new RingBuffer<>(bufferSize, MessageEvent::new, waitStrategy);
+
+        Sequence[] decoderSequences = new Sequence[decoderCount];
+
+        for (int i = 0; i < decoderCount; i++) {
+            final int lane = i;
+            BatchEventProcessor<MessageEvent> decoder = new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(),
+                    (event, sequence, endOfBatch) -> {
+                        if (sequence % decoderCount == lane) {
+                            decode(event, sequence, endOfBatch);
+                        }
+                    });
+
+            decoders.add(decoder);
+            decoderSequences[i] = decoder.getSequence();
+            threads.add(new Thread(decoder, decoderCount == 1 ? "pipeline-decoder" : "pipeline-decoder-" + i));
+        }
+
+        sequencer = new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(decoderSequences), this::dispatch);
+        ringBuffer.addGatingSequences(sequencer.getSequence());
+
+        threads.add(new Thread(sequencer, "pipeline-sequencer"));
+        engines = new RingExecutor[engineCount];
+
+        for (int i = 0; i < engineCount; i++) {
+            engines[i] = new RingExecutor("pipeline-engine-" + i, bufferSize, waitStrategy);
+        }
+    }
+
+    /**
+     * Starts threads of all stages.
+     */
+    public void start() {
+        for (RingExecutor engine : engines) {
+            engine.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Publishes received message into the pipeline. Method can be called by many JMS threads, it waits if ring is full.
+     *
+     * @param listener listener which received the message
+     * @param message JMS message
+     */
+    public void publish(final OrderMessageListener listener, final Message message) {
+        long sequence = ringBuffer.next();
+        MessageEvent event = ringBuffer.get(sequence);
+
+        event.listener = listener;
+        event.message = message;
+
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Publishes task into the pipeline, task is run by sequencing stage in order with messages, i.e. periodic gap check of order assurance
+     * buffer which is not thread-safe in pipeline mode. Method can be called by any thread, it waits if ring is full.
+     *
+     * @param task task run by sequencing stage
+     */
+    public void execute(final Runnable task) {
+        long sequence = ringBuffer.next();
+
+        ringBuffer.get(sequence).task = task;
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Returns serial executor of engine thread owning product book.
+     *
+     * @param productName name of product
+     *
+     * @return executor of engine thread
+     */
+    public Executor engineFor(final String productName) {
+        int h = productName.hashCode();
+
+        return engines[Math.floorMod(h ^ (h >>> 16), engines.length)];
+    }
+
+    /**
+     * Stops threads of all stages. Entries waiting in rings are not processed.
+     */
+    public void shutdown() {
+        decoders.forEach(BatchEventProcessor::halt);
+        sequencer.halt();
+
+        for (RingExecutor engine : engines) {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Decoding stage handler.
+     *
+     * @param event entry
+     * @param sequence sequence of the entry
+     * @param endOfBatch true if entry is the last one of available batch
+     */
+    private void decode(MessageEvent event, long sequence, boolean endOfBatch) {
+        if (event.task != null) {
+            return;
+        }
+
+        try {
+            event.handler = event.listener.getMessageHandler(event.message);
+            event.brokerMessage = event.listener.decode(event.message, event.handler);
+        } catch (JMSException | RuntimeException e) {
+            log.error("Error in decoding message " + sequence + ": ", e);
+
+            event.brokerMessage = null;
+        }
+    }
+
+    /**
+     * Sequencing stage handler.
+     *
+     * @param event entry
+     * @param sequence sequence of the entry
+     * @param endOfBatch true if entry is the last one of available batch
+     */
+    private void dispatch(MessageEvent event, long sequence, boolean endOfBatch) {
+        try {
+            if (event.task != null) {
+                event.task.run();
+            } else if (event.brokerMessage != null) {
+                event.listener.dispatch(event.handler, event.brokerMessage);
+            }
+        } finally {
+            event.clear();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.gft.digitalbank.exchange.solution.stream;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Publisher with bounded buffer per subscriber. Items can be submitted by many threads, they are delivered in order of submission to
+ * every subscriber as far as it requested them. Delivery runs in executor of the publisher (common fork join pool by default), so
+ * producers do not run code of subscribers, and signals to single subscriber are serialized.
+ *
+ * When buffer of subscriber is full, submitting thread waits until subscriber requests more items or cancels, so slow subscriber slows
+ * down producers instead of growing the buffer. Producer waits at most max wait time for single item, subscriber whose buffer stays
+ * full so long is dropped: it receives onError and no more items, so subscriber which never requests items can not stop producers.
+ *
+ * @param <T> type of items
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class BlockingPublisher<T> implements Flow.Publisher<T> {
+
+    /** Default size of buffer per subscriber */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /** Default maximal time of waiting for free space in buffer of subscriber in milliseconds */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 1000;
+
+    /** Time of waiting for free space in buffer before checking cancellation again */
+    private static final long OFFER_MILLIS = 10;
+
+    /** Executor delivering items to subscribers */
+    private final Executor executor;
+
+    /** Size of buffer per subscriber */
+    private final int bufferSize;
+
+    /** Maximal time of waiting for free space in buffer of subscriber in milliseconds */
+    private final long maxWaitMillis;
+
+    /** Active subscriptions */
+    private final List<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /** Is publisher closed? */
+    private volatile boolean closed;
+
+    /**
+     * Constructor, items are delivered in common fork join pool.
+     *
+     * @param bufferSize size of buffer per subscriber
+     */
+    public BlockingPublisher(final int bufferSize) {
+        this(ForkJoinPool.commonPool(), bufferSize, DEFAULT_MAX_WAIT_MILLIS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param executor executor delivering items to subscribers
+     * @param bufferSize size of buffer per subscriber
+     * @param maxWaitMillis maximal time of waiting for free space in buffer of subscriber in milliseconds
+     */
+    public BlockingPublisher(final Executor executor, final int bufferSize, final long maxWaitMillis) {
+        Preconditions.checkNotNull(executor, "Executor is null");
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive: %s", bufferSize);
+        Preconditions.checkArgument(maxWaitMillis >= 0, "Max wait time must not be negative: %s", maxWaitMillis);
+
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+        Preconditions.checkNotNull(subscriber, "Subscriber is null");
+
+        BufferedSubscription subscription = new BufferedSubscription(subscriber);
+
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+
+        if (closed) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Checks if there is any active subscriber, so producer can skip creating of items nobody receives.
+     *
+     * @return true if there is at least one subscriber
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Submits item to all subscribers. Method waits while buffer of any subscriber is full, subscriber is dropped after max wait time.
+     *
+     * @param item submitted item
+     */
+    public void submit(final T item) {
+        Preconditions.checkNotNull(item, "Item is null");
+
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.offer(item);
+        }
+    }
+
+    /**
+     * Closes publisher. Subscribers receive onComplete after all submitted items, later subscribers are completed immediately.
+     */
+    public void close() {
+        closed = true;
+
+        for (BufferedSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Subscription with bounded FIFO buffer of items.
+     */
+    private class BufferedSubscription extends DemandSubscription<T> {
+
+        /** Items waiting for demand */
+        private final BlockingQueue<T> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        /**
+         * Constructor.
+         *
+         * @param subscriber subscriber
+         */
+        private BufferedSubscription(final Flow.Subscriber<? super T> subscriber) {
+            super(subscriber, subscriptions, executor);
+        }
+
+        /**
+         * Adds item to buffer and starts delivery. Subscription fails if there is no free space within max wait time.
+         *
+         * @param item submitted item
+         */
+        private void offer(final T item) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+            try {
+                while (!isCancelled() && !buffer.offer(item, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        fail(new IllegalStateException("Subscriber did not request items within " + maxWaitMillis + " ms, it is dropped"));
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            drain();
+        }
+
+        @Override
+        protected T poll() {
+            return buffer.poll();
+        }
+
+        @Override
+        protected boolean isBufferEmpty() {
+            return buffer.isEmpty();
+        }
+
+        @Override
+        protected void clearBuffer() {
+            buffer.clear();
+        }
+    }
+}
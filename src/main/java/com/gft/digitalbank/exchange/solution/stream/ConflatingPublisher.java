@@ -0,0 +1,141 @@
+package com.gft.digitalbank.exchange.solution.stream;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Publisher which conflates items per key. Every subscriber keeps only the latest not delivered item of every key, so slow subscriber
+ * receives one item with the latest state instead of all intermediate ones. Pending keys are delivered in order of their first change,
+ * the latest item of the key replaces older one in place. Producers never wait, buffer of subscriber is bounded by number of keys.
+ *
+ * Items can be submitted by many threads. Delivery runs in thread which submits item or requests more items, and signals to single
+ * subscriber are serialized.
+ *
+ * @param <T> type of items
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class ConflatingPublisher<T> implements Flow.Publisher<T> {
+
+    /** Active subscriptions */
+    private final List<ConflatingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /** Is publisher closed? */
+    private volatile boolean closed;
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+        Preconditions.checkNotNull(subscriber, "Subscriber is null");
+
+        ConflatingSubscription subscription = new ConflatingSubscription(subscriber);
+
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+
+        if (closed) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Checks if there is any active subscriber, so producer can skip creating of items nobody receives.
+     *
+     * @return true if there is at least one subscriber
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Submits item to all subscribers. Not delivered item with the same key is replaced.
+     *
+     * @param key key of the item
+     * @param item submitted item
+     */
+    public void submit(final long key, final T item) {
+        Preconditions.checkNotNull(item, "Item is null");
+
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.offer(key, item);
+        }
+    }
+
+    /**
+     * Closes publisher. Subscribers receive onComplete after all pending items, later subscribers are completed immediately.
+     */
+    public void close() {
+        closed = true;
+
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Subscription keeping the latest item of every key.
+     */
+    private class ConflatingSubscription extends DemandSubscription<T> {
+
+        /** Latest not delivered items by key, in order of first change (guarded by itself) */
+        private final Map<Long, T> pending = new LinkedHashMap<>();
+
+        /**
+         * Constructor.
+         *
+         * @param subscriber subscriber
+         */
+        private ConflatingSubscription(final Flow.Subscriber<? super T> subscriber) {
+            super(subscriber, subscriptions, Runnable::run);
+        }
+
+        /**
+         * Stores item as the latest one of its key and delivers pending items.
+         *
+         * @param key key of the item
+         * @param item submitted item
+         */
+        private void offer(final long key, final T item) {
+            synchronized (pending) {
+                pending.put(key, item);
+            }
+
+            drain();
+        }
+
+        @Override
+        protected T poll() {
+            synchronized (pending) {
+                Iterator<T> it = pending.values().iterator();
+
+                if (!it.hasNext()) {
+                    return null;
+                }
+
+                T item = it.next();
+
+                it.remove();
+
+                return item;
+            }
+        }
+
+        @Override
+        protected boolean isBufferEmpty() {
+            synchronized (pending) {
+                return pending.isEmpty();
+            }
+        }
+
+        @Override
+        protected void clearBuffer() {
+            synchronized (pending) {
+                pending.clear();
+            }
+        }
+    }
+}
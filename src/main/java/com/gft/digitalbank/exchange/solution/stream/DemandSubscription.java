@@ -0,0 +1,188 @@
+package com.gft.digitalbank.exchange.solution.stream;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Subscription delivering items of its buffer as far as subscriber requested them. Delivery is started in executor of the publisher
+ * when item is added, more items are requested or the subscription is completed. Only one delivery task runs at a time, so signals to
+ * subscriber are serialized. Subclasses define the buffer, i.e. FIFO queue or map of conflated items.
+ *
+ * @param <T> type of items
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Log4j
+abstract class DemandSubscription<T> implements Flow.Subscription {
+
+    /** Subscriber */
+    private final Flow.Subscriber<? super T> subscriber;
+
+    /** Active subscriptions of the publisher, subscription removes itself when it is cancelled or terminated */
+    private final Collection<? extends DemandSubscription<T>> subscriptions;
+
+    /** Executor running delivery task */
+    private final Executor executor;
+
+    /** Number of requested and not delivered items */
+    private final AtomicLong requested = new AtomicLong();
+
+    /** Number of drain requests, only request which increments it from zero starts delivery task */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /** Is subscription cancelled or terminated? */
+    private volatile boolean cancelled;
+
+    /** Are all items submitted? */
+    private volatile boolean done;
+
+    /** Error signalled to subscriber */
+    private volatile Throwable error;
+
+    /**
+     * Constructor.
+     *
+     * @param subscriber subscriber
+     * @param subscriptions active subscriptions of the publisher
+     * @param executor executor running delivery task
+     */
+    DemandSubscription(final Flow.Subscriber<? super T> subscriber, final Collection<? extends DemandSubscription<T>> subscriptions,
+            final Executor executor) {
+        this.subscriber = subscriber;
+        this.subscriptions = subscriptions;
+        this.executor = executor;
+    }
+
+    @Override
+    public void request(final long n) {
+        if (n <= 0) {
+            error = new IllegalArgumentException("Number of requested items must be positive: " + n);
+        } else {
+            requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+        }
+
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        subscriptions.remove(this);
+        clearBuffer();
+    }
+
+    /**
+     * Checks if subscription is cancelled, terminated or failed.
+     *
+     * @return true if no more items are delivered
+     */
+    boolean isCancelled() {
+        return cancelled || error != null;
+    }
+
+    /**
+     * Fails the subscription, it is removed from the publisher at once and subscriber receives onError instead of remaining items.
+     *
+     * @param failure error signalled to subscriber
+     */
+    void fail(final Throwable failure) {
+        error = failure;
+        subscriptions.remove(this);
+        drain();
+    }
+
+    /**
+     * Marks all items as submitted, subscriber receives onComplete when buffer is drained.
+     */
+    void complete() {
+        done = true;
+        drain();
+    }
+
+    /**
+     * Starts delivery of buffered items unless delivery task is already running.
+     */
+    void drain() {
+        if (wip.getAndIncrement() == 0) {
+            executor.execute(this::deliverItems);
+        }
+    }
+
+    /**
+     * Delivery task, it delivers buffered items as far as they are requested, and terminal signal when buffer is drained. Task ends when
+     * there is no drain request left.
+     */
+    private void deliverItems() {
+        int missed = 1;
+
+        do {
+            if (!cancelled && error != null) {
+                cancel();
+                subscriber.onError(error);
+            }
+
+            boolean allSubmitted = done;
+            long r = requested.get();
+            long delivered = 0;
+
+            while (delivered != r && !cancelled) {
+                T item = poll();
+
+                if (item == null) {
+                    break;
+                }
+
+                deliver(item);
+                delivered++;
+            }
+
+            if (delivered != 0 && r != Long.MAX_VALUE) {
+                requested.addAndGet(-delivered);
+            }
+
+            if (!cancelled && allSubmitted && isBufferEmpty()) {
+                cancel();
+                subscriber.onComplete();
+            }
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Removes next item from the buffer.
+     *
+     * @return next item or null if buffer is empty
+     */
+    protected abstract T poll();
+
+    /**
+     * Checks if buffer is empty.
+     *
+     * @return true if there is no item to deliver
+     */
+    protected abstract boolean isBufferEmpty();
+
+    /**
+     * Removes all items from the buffer.
+     */
+    protected abstract void clearBuffer();
+
+    /**
+     * Delivers item to subscriber, subscription is cancelled if subscriber fails.
+     *
+     * @param item delivered item
+     */
+    private void deliver(final T item) {
+        try {
+            subscriber.onNext(item);
+        } catch (RuntimeException e) {
+            log.error("Subscriber failed in onNext, subscription cancelled: ", e);
+            cancel();
+        }
+    }
+}
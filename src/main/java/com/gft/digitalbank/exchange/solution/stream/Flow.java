@@ -0,0 +1,83 @@
+package com.gft.digitalbank.exchange.solution.stream;
+
+/**
+ * Interfaces of demand driven streams with the same contract as java.util.concurrent.Flow (reactive streams), which is not available in
+ * Java 8. Signals to single subscriber are serialized and subscriber receives at most as many items as it requested.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public final class Flow {
+
+    /**
+     * Private constructor.
+     */
+    private Flow() {
+    }
+
+    /**
+     * Producer of items received by subscribers.
+     *
+     * @param <T> type of items
+     */
+    public interface Publisher<T> {
+
+        /**
+         * Adds subscriber, subscriber receives onSubscribe before any other signal.
+         *
+         * @param subscriber subscriber
+         */
+        public void subscribe(final Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * Receiver of items.
+     *
+     * @param <T> type of items
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Method called before any other method of subscriber.
+         *
+         * @param subscription subscription used to request items or to cancel
+         */
+        public void onSubscribe(final Subscription subscription);
+
+        /**
+         * Method called with next item, only if item was requested.
+         *
+         * @param item next item
+         */
+        public void onNext(final T item);
+
+        /**
+         * Method called when subscription failed, no other method is called later.
+         *
+         * @param throwable cause of failure
+         */
+        public void onError(final Throwable throwable);
+
+        /**
+         * Method called when all items were received, no other method is called later.
+         */
+        public void onComplete();
+    }
+
+    /**
+     * Link between publisher and subscriber.
+     */
+    public interface Subscription {
+
+        /**
+         * Adds number of items subscriber is ready to receive.
+         *
+         * @param n number of items, has to be positive
+         */
+        public void request(final long n);
+
+        /**
+         * Stops delivery of items, items may still arrive for a while.
+         */
+        public void cancel();
+    }
+}
@@ -0,0 +1,24 @@
+package com.gft.digitalbank.exchange.solution.transaction;
+
+/**
+ * Interface for pausing and resuming consumption of broker messages. Methods are called by message processing threads, so
+ * implementations should not block.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public interface BrokerFlowControl {
+
+    /**
+     * Pauses consumption of messages from the broker.
+     *
+     * @param broker name of the broker (destination)
+     */
+    public void pauseBroker(final String broker);
+
+    /**
+     * Resumes consumption of messages from the broker.
+     *
+     * @param broker name of the broker (destination)
+     */
+    public void resumeBroker(final String broker);
+}
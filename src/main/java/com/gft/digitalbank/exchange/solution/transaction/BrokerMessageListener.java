@@ -39,4 +39,16 @@ public interface BrokerMessageListener {
      * @param message ShutdownNotification message
      */
     public void onBrokerMessage(final ShutdownNotification message);
+
+    /**
+     * Method called before batch of messages released together in order. Default implementation does nothing.
+     */
+    public default void onBatchStart() {
+    }
+
+    /**
+     * Method called after batch of messages released together in order. Default implementation does nothing.
+     */
+    public default void onBatchEnd() {
+    }
 }
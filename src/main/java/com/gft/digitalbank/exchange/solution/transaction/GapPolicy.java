@@ -0,0 +1,18 @@
+package com.gft.digitalbank.exchange.solution.transaction;
+
+/**
+ * Policy applied by MessageOrderAssuranceBuffer when head-of-line gap (missing message id) is open longer than timeout.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public enum GapPolicy {
+
+    /** Log warning once per gap and keep waiting for missing message */
+    LOG,
+
+    /** Skip missing ids up to next buffered message, missing message is ignored if it arrives later */
+    SKIP,
+
+    /** Stop processing of messages, buffer throws MessageGapException */
+    FAIL
+}
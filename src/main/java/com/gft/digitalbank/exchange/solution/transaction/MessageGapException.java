@@ -0,0 +1,21 @@
+package com.gft.digitalbank.exchange.solution.transaction;
+
+/**
+ * Exception thrown when missing message stops processing of messages (GapPolicy.FAIL).
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class MessageGapException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param missingId id of missing message
+     * @param gapMillis time of gap in milliseconds
+     */
+    public MessageGapException(int missingId, long gapMillis) {
+        super("Message " + missingId + " missing for " + gapMillis + " ms");
+    }
+}
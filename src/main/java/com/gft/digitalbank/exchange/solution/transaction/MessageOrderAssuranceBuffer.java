@@ -1,9 +1,13 @@
 package com.gft.digitalbank.exchange.solution.transaction;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
 import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
@@ -11,12 +15,34 @@ import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
 import com.gft.digitalbank.exchange.model.orders.PositionOrder;
 import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
 import com.gft.digitalbank.exchange.solution.util.SerialExecutor;
+import com.google.common.base.Preconditions;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j;
 
 /**
  * Buffer to assure message order. It suppose that messages are ordered by id.
  * 
+ * Ids are dense, so messages are kept in ring array indexed by id. Broker threads put messages into their slots with atomic writes and
+ * consumer (serial executor) advances expected id over contiguous filled slots without any lock. Messages which do not fit in the window
+ * ahead of expected id are kept in overflow map until the window reaches them. Slots are written only when empty and consumer releases
+ * message only if its id is the expected one, so duplicate delivered by concurrent brokers is never released in place of other id.
+ * 
+ * When flow control is set, broker which delivered message beyond the window is paused until the window reaches its message, so the
+ * buffer holds at most window size messages plus messages already prefetched by paused consumers.
+ * 
+ * Buffer tracks head-of-line gap: time since expected message is missing while later messages are waiting. Gap open longer than timeout
+ * is handled according to GapPolicy. Gap and buffer depth are exposed as metrics, so lost message can be told apart from slow exchange.
+ * Policy is applied when messages are processed, method checkGap can be called periodically to apply it also when no messages arrive.
+ * 
+ * Released messages are passed to wrapped listener in batches. Batch is ended after maxBatchSize messages even if next messages are
+ * waiting, so product engines receive work while long run of messages (i.e. window filled behind closed gap) is still released.
+ * 
  * @author Arkadiusz Cieslak
  */
+@Log4j
 public class MessageOrderAssuranceBuffer implements BrokerMessageListener {
 
     /** Reference to wrapped BrokerMessageListener */
@@ -25,11 +51,75 @@ public class MessageOrderAssuranceBuffer implements BrokerMessageListener {
     /** Serial executor */
     private final Executor executor;
 
-    /** Index of expected order id */
-    private int expectedOrderId = 1;
+    /** Default size of reorder window */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 16;
+
+    /** Default maximal number of messages released in single batch */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+
+    /** Index of expected order id, written only by consumer */
+    private volatile int expectedOrderId = 1;
+
+    /** Reorder window, message with given id is kept in slot id & windowMask */
+    private final AtomicReferenceArray<BrokerMessage> window;
+
+    /** Mask of slot index */
+    private final int windowMask;
+
+    /** Messages too far ahead of expected id to fit in the window (identified by message id) */
+    private final Map<Integer, BrokerMessage> overflow = new ConcurrentHashMap<>();
+
+    /** Paused brokers with the highest id of their overflowed message, it is also monitor of pausing and resuming */
+    private final Map<String, Integer> pausedBrokers = new ConcurrentHashMap<>();
+
+    /** Optional flow control of brokers, brokers are never paused if not set */
+    @Setter
+    private volatile BrokerFlowControl flowControl;
+
+    /** Value of gapOpenedAt when there is no gap */
+    private static final long NO_GAP = Long.MIN_VALUE;
+
+    /** Number of messages stored in buffer, duplicates removed without processing are subtracted */
+    private final LongAdder receivedMessages = new LongAdder();
+
+    /** Number of ignored messages: duplicates and messages which arrived after their id was processed or skipped */
+    private final LongAdder ignoredMessages = new LongAdder();
+
+    /** Number of messages passed to wrapped listener, written only by consumer */
+    private volatile long processedMessages;
+
+    /** Number of missing messages skipped by GapPolicy.SKIP */
+    @Getter
+    private volatile long skippedMessages;
+
+    /** Time (clock nanos) when current gap was opened, NO_GAP if there is no gap */
+    private volatile long gapOpenedAt = NO_GAP;
+
+    /** Longest closed gap in nanoseconds */
+    private volatile long maxGapNanos;
+
+    /** Was current gap already reported? */
+    private boolean gapReported;
+
+    /** Failure stopping processing (GapPolicy.FAIL) */
+    private volatile MessageGapException failure;
+
+    /** Policy applied to gap open longer than timeout */
+    @Setter
+    private volatile GapPolicy gapPolicy = GapPolicy.LOG;
+
+    /** Gap timeout in nanoseconds */
+    private volatile long gapTimeoutNanos = TimeUnit.SECONDS.toNanos(1);
+
+    /** Clock of gap tracking in nanoseconds */
+    @Setter(AccessLevel.PACKAGE)
+    private LongSupplier clock = System::nanoTime;
+
+    /** Maximal number of messages released in single batch, longer run of released messages is split into batches of this size */
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
 
-    /** Buffer for messages used to assure order of messages (map of messages identified by message id) */
-    private Map<Integer, BrokerMessage> messageBuffer = Collections.synchronizedMap(new HashMap<>(1024));
+    /** Task processing messages from the window */
+    private final Runnable processTask = this::processMessages;
 
     /**
      * Constructor.
@@ -38,8 +128,34 @@ public class MessageOrderAssuranceBuffer implements BrokerMessageListener {
      * @param executor provided executor
      */
     public MessageOrderAssuranceBuffer(BrokerMessageListener wrappedListener, Executor executor) {
+        this(wrappedListener, new SerialExecutor(executor), DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor for callers delivering messages from single thread, i.e. sequencing stage of MessagePipeline. Messages are processed in
+     * calling thread.
+     * 
+     * @param wrappedListener reference to transaction engine
+     */
+    public MessageOrderAssuranceBuffer(BrokerMessageListener wrappedListener) {
+        this(wrappedListener, Runnable::run, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param wrappedListener reference to transaction engine
+     * @param serialExecutor executor processing messages one by one
+     * @param windowSize size of reorder window in ids, power of 2
+     */
+    public MessageOrderAssuranceBuffer(BrokerMessageListener wrappedListener, Executor serialExecutor, int windowSize) {
+        Preconditions.checkArgument(windowSize > 0 && Integer.bitCount(windowSize) == 1, "Window size must be power of 2: %s",
+                windowSize);
+
         this.wrappedListener = wrappedListener;
-        this.executor = new SerialExecutor(executor);
+        this.executor = serialExecutor;
+        this.window = new AtomicReferenceArray<>(windowSize);
+        this.windowMask = windowSize - 1;
     }
 
     @Override
@@ -68,30 +184,358 @@ public class MessageOrderAssuranceBuffer implements BrokerMessageListener {
      * @param message PositionOrder message
      */
     private void onBrokerMessage(final BrokerMessage message) {
-        messageBuffer.put(message.getId(), message);
+        int id = message.getId();
+        int distance = id - expectedOrderId;
+
+        if (distance < 0 || !store(id, distance, message)) {
+            // message with this id was already processed or it is already buffered
+            ignoredMessages.increment();
+            return;
+        }
+
+        executor.execute(processTask);
+    }
+
+    /**
+     * Stores message in its slot of the window or in overflow map. Message is counted as received only when it fills empty place, so
+     * duplicate of buffered message is not stored. Slot can still hold duplicate of already processed id, which was written by producer
+     * that read old expected id, then message waits in overflow map until consumer removes the duplicate. Message whose id was processed
+     * meanwhile is removed again.
+     * 
+     * @param id id of the message
+     * @param distance distance of the id from expected id
+     * @param message received message
+     * 
+     * @return true if message was stored
+     */
+    private boolean store(final int id, final int distance, final BrokerMessage message) {
+        if (distance < window.length()) {
+            int slot = id & windowMask;
+
+            if (window.compareAndSet(slot, null, message)) {
+                receivedMessages.increment();
 
-        executor.execute(() -> processMessages());
+                if (id < expectedOrderId && window.compareAndSet(slot, message, null)) {
+                    receivedMessages.decrement();
+                    return false;
+                }
+
+                return true;
+            }
+
+            BrokerMessage stored = window.get(slot);
+
+            if (stored != null && stored.getId() == id) {
+                return false;
+            }
+        }
+
+        if (overflow.putIfAbsent(id, message) != null) {
+            return false;
+        }
+
+        receivedMessages.increment();
+
+        if (id < expectedOrderId && overflow.remove(id, message)) {
+            receivedMessages.decrement();
+            return false;
+        }
+
+        if (distance >= window.length()) {
+            pauseBroker(message.getBroker(), id);
+        }
+
+        return true;
     }
 
     /**
      * Process messages from buffer.
      */
     private void processMessages() {
-        while (messageBuffer.size() > 0) {
-            BrokerMessage message = messageBuffer.remove(expectedOrderId);
+        if (failure != null) {
+            throw failure;
+        }
+
+        wrappedListener.onBatchStart();
+
+        try {
+            releaseMessages();
+        } finally {
+            wrappedListener.onBatchEnd();
+        }
+
+        if (!pausedBrokers.isEmpty()) {
+            resumeBrokers();
+        }
+    }
+
+    /**
+     * Passes to wrapped listener all messages which are next in order.
+     */
+    private void releaseMessages() {
+        int batchMessages = 0;
+
+        while (true) {
+            int id = expectedOrderId;
+            int slot = id & windowMask;
+            BrokerMessage message = window.get(slot);
+
+            if (message != null && message.getId() != id) {
+                // duplicate of processed id written by producer which read old expected id
+                if (window.compareAndSet(slot, message, null)) {
+                    discardDuplicate();
+                }
+
+                continue;
+            }
 
             if (message != null) {
-                if (message instanceof PositionOrder) {
-                    wrappedListener.onBrokerMessage((PositionOrder) message);
-                } else if (message instanceof CancellationOrder) {
-                    wrappedListener.onBrokerMessage((CancellationOrder) message);
-                } else if (message instanceof ModificationOrder) {
-                    wrappedListener.onBrokerMessage((ModificationOrder) message);
+                // expected id is moved before the slot is emptied, so producer which finds the slot empty sees the id as processed
+                expectedOrderId = id + 1;
+                window.set(slot, null);
+            } else if (overflow.isEmpty() || (message = overflow.remove(id)) == null) {
+                if (getBufferedDepth() > 0 && onGap()) {
+                    continue;
                 }
 
-                expectedOrderId++;
-            } else {
                 break;
+            } else {
+                expectedOrderId = id + 1;
+            }
+
+            removeDuplicates(id, slot);
+            closeGap();
+
+            if (message instanceof PositionOrder) {
+                wrappedListener.onBrokerMessage((PositionOrder) message);
+            } else if (message instanceof CancellationOrder) {
+                wrappedListener.onBrokerMessage((CancellationOrder) message);
+            } else if (message instanceof ModificationOrder) {
+                wrappedListener.onBrokerMessage((ModificationOrder) message);
+            }
+
+            processedMessages++;
+
+            if (++batchMessages == maxBatchSize) {
+                wrappedListener.onBatchEnd();
+                wrappedListener.onBatchStart();
+                batchMessages = 0;
+            }
+        }
+    }
+
+    /**
+     * Removes duplicates of released message stored concurrently by producers which read old expected id.
+     * 
+     * @param id id of released message
+     * @param slot slot of the id
+     */
+    private void removeDuplicates(final int id, final int slot) {
+        BrokerMessage duplicate = window.get(slot);
+
+        if (duplicate != null && duplicate.getId() == id && window.compareAndSet(slot, duplicate, null)) {
+            discardDuplicate();
+        }
+
+        if (!overflow.isEmpty() && overflow.remove(id) != null) {
+            discardDuplicate();
+        }
+    }
+
+    /**
+     * Counts stored duplicate removed without processing.
+     */
+    private void discardDuplicate() {
+        receivedMessages.decrement();
+        ignoredMessages.increment();
+    }
+
+    /**
+     * Opens gap or applies gap policy if gap is open longer than timeout.
+     * 
+     * @return true if missing message was skipped
+     */
+    private boolean onGap() {
+        long now = clock.getAsLong();
+
+        if (gapOpenedAt == NO_GAP) {
+            gapOpenedAt = now;
+            gapReported = false;
+        }
+
+        long gapNanos = now - gapOpenedAt;
+
+        if (gapNanos < gapTimeoutNanos) {
+            return false;
+        }
+
+        switch (gapPolicy) {
+        case SKIP:
+            log.warn("Skipping missing message " + expectedOrderId);
+
+            skippedMessages++;
+            expectedOrderId++;
+
+            return true;
+        case FAIL:
+            failure = new MessageGapException(expectedOrderId, TimeUnit.NANOSECONDS.toMillis(gapNanos));
+
+            log.error("Processing of messages stopped: ", failure);
+
+            throw failure;
+        default:
+            if (!gapReported) {
+                log.warn("Message " + expectedOrderId + " missing for " + TimeUnit.NANOSECONDS.toMillis(gapNanos) + " ms, "
+                        + getBufferedDepth() + " messages waiting");
+
+                gapReported = true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Closes gap if it is open and updates the longest gap.
+     */
+    private void closeGap() {
+        if (gapOpenedAt != NO_GAP) {
+            maxGapNanos = Math.max(maxGapNanos, clock.getAsLong() - gapOpenedAt);
+            gapOpenedAt = NO_GAP;
+        }
+    }
+
+    /**
+     * Submits in executor check of head-of-line gap, so gap policy is applied also when no messages arrive.
+     */
+    public void checkGap() {
+        executor.execute(processTask);
+    }
+
+    /**
+     * Sets timeout of head-of-line gap.
+     * 
+     * @param timeout timeout
+     * @param unit unit of timeout
+     */
+    public void setGapTimeout(long timeout, TimeUnit unit) {
+        this.gapTimeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Sets maximal number of messages released in single batch.
+     * 
+     * @param maxBatchSize maximal number of messages in batch
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "Batch size must be positive: %s", maxBatchSize);
+
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Returns id of message expected by the buffer.
+     * 
+     * @return expected message id
+     */
+    public int getExpectedOrderId() {
+        return expectedOrderId;
+    }
+
+    /**
+     * Sets id of the first expected message, i.e. id following messages replayed from journal. Messages with lower ids are ignored. It has
+     * to be called before the first message.
+     * 
+     * @param orderId id of the first expected message
+     */
+    public void setExpectedOrderId(int orderId) {
+        Preconditions.checkArgument(orderId > 0, "Order id must be positive: %s", orderId);
+        Preconditions.checkState(receivedMessages.sum() == 0, "Messages were already received");
+
+        this.expectedOrderId = orderId;
+    }
+
+    /**
+     * Returns number of messages waiting in buffer.
+     * 
+     * @return number of buffered messages
+     */
+    public long getBufferedDepth() {
+        return Math.max(0, receivedMessages.sum() - processedMessages);
+    }
+
+    /**
+     * Returns number of ignored messages, i.e. duplicates delivered again by broker.
+     * 
+     * @return number of ignored messages
+     */
+    public long getIgnoredMessages() {
+        return ignoredMessages.sum();
+    }
+
+    /**
+     * Returns time of currently open head-of-line gap.
+     * 
+     * @return gap time in milliseconds, 0 if there is no gap
+     */
+    public long getGapOpenMillis() {
+        long openedAt = gapOpenedAt;
+
+        return openedAt == NO_GAP ? 0 : TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - openedAt);
+    }
+
+    /**
+     * Returns the longest head-of-line gap seen, including currently open one.
+     * 
+     * @return gap time in milliseconds
+     */
+    public long getMaxGapMillis() {
+        return Math.max(TimeUnit.NANOSECONDS.toMillis(maxGapNanos), getGapOpenMillis());
+    }
+
+    /**
+     * Checks if processing of messages was stopped by GapPolicy.FAIL.
+     * 
+     * @return true if processing was stopped
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Pauses broker which delivered message beyond the window.
+     * 
+     * @param broker name of the broker
+     * @param id id of overflowed message
+     */
+    private void pauseBroker(final String broker, final int id) {
+        BrokerFlowControl fc = flowControl;
+
+        if (fc == null) {
+            return;
+        }
+
+        synchronized (pausedBrokers) {
+            if (pausedBrokers.put(broker, id) == null) {
+                fc.pauseBroker(broker);
+            }
+        }
+    }
+
+    /**
+     * Resumes brokers whose overflowed messages fit in the window again.
+     */
+    private void resumeBrokers() {
+        synchronized (pausedBrokers) {
+            Iterator<Map.Entry<String, Integer>> it = pausedBrokers.entrySet().iterator();
+
+            while (it.hasNext()) {
+                Map.Entry<String, Integer> e = it.next();
+
+                if (e.getValue() - expectedOrderId < window.length()) {
+                    it.remove();
+                    flowControl.resumeBroker(e.getKey());
+                }
             }
         }
     }
@@ -1,78 +1,92 @@
 package com.gft.digitalbank.exchange.solution.transaction;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import org.apache.commons.collections.comparators.ComparatorChain;
 
 import com.gft.digitalbank.exchange.model.OrderBook;
-import com.gft.digitalbank.exchange.model.OrderEntry;
-import com.gft.digitalbank.exchange.model.Transaction;
-import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.transaction.book.BookOrder;
+import com.gft.digitalbank.exchange.solution.transaction.book.DepthUpdate;
+import com.gft.digitalbank.exchange.solution.transaction.book.OrderBookSnapshot;
+import com.gft.digitalbank.exchange.solution.transaction.book.PriceLadder;
 import com.gft.digitalbank.exchange.solution.util.MessageUtils;
-import com.gft.digitalbank.exchange.solution.util.SerialExecutor;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
 
 import lombok.Getter;
 
 /**
  * Transaction engine for single product.
  * 
+ * In batch mode cancellations and modifications of order inserted in the same batch are folded into the insertion, as long as no other
+ * message for the product comes between them. Folded order is added to the book only if it becomes marketable, so order cancelled
+ * before it could match never touches the book. Results are the same as of processing messages one by one.
+ * 
+ * After every task run by the executor (single message or whole batch) engine publishes new state of price levels changed by the task.
+ * 
  * @author Arkadiusz Cieslak
  */
 public class ProductTransactionEngine {
 
-    /** Comparator for comparing PositionOrders by price in ascending order */
-    private static final Comparator<PositionOrder> COMPARE_BY_PRICE = (o1, o2) -> Integer.compare(o1.getDetails().getPrice(),
-            o2.getDetails().getPrice());
-
-    /** Comparator for comparing PositionOrders by timestamp in ascending order */
-    private static final Comparator<PositionOrder> COMPARE_BY_TIMESTAMP = (o1, o2) -> Long.compare(o1.getTimestamp(), o2.getTimestamp());
-
     /** Name of the product */
     @Getter
     private String productName;
 
+    /** Dictionary of broker and client codes of orders */
+    private final SymbolDictionary symbols;
+
+    /** Code of the product */
+    private final int productId;
+
     /** Reference to transaction engine */
     private final TransactionEngine transactionEngine;
 
-    /** Sorted set of buy orders */
-    @SuppressWarnings("unchecked")
-    private SortedSet<PositionOrder> buyOrders = new TreeSet<>(
-            new ComparatorChain(Arrays.asList(COMPARE_BY_PRICE.reversed(), COMPARE_BY_TIMESTAMP)));
+    /** Price ladder of buy orders */
+    private final PriceLadder buyOrders = new PriceLadder(Side.BUY);
 
-    /** Sorted set of sell orders */
-    @SuppressWarnings("unchecked")
-    private SortedSet<PositionOrder> sellOrders = new TreeSet<>(new ComparatorChain(Arrays.asList(COMPARE_BY_PRICE, COMPARE_BY_TIMESTAMP)));
+    /** Price ladder of sell orders */
+    private final PriceLadder sellOrders = new PriceLadder(Side.SELL);
 
     /** Serial executor which queues tasks in order of submissions */
-    private Executor executor;
+    private final Executor executor;
     
     /** OrderBook build on buy and sell entries */
     @Getter
     private OrderBook orderBook;
     
-    /** Id generator for product transactions */
-    private final AtomicInteger transactionIdGenerator = new AtomicInteger(0);
+    /** Tasks collected in current batch, null if tasks are submitted directly (used only by thread submitting tasks) */
+    private List<Runnable> batch;
+
+    /** Last task of current batch if it is insertion of order, so following messages of the order can be folded into it */
+    private PendingOrder pending;
+
+    /** Number of cancellations and modifications folded into insertion without touching the book */
+    @Getter
+    private volatile long foldedMessages;
+
+    /** Transactions executed in the book, appended only by engine executor, position in the log gives transaction id */
+    @Getter
+    private final TransactionLog transactionLog;
 
     /**
      * Constructor.
      * 
      * @param productName name of the product
+     * @param symbols dictionary of broker and client codes of orders
      * @param engine reference to transaction engine
-     * @param executor provided executor
+     * @param executor serial executor owning the book, it has to execute tasks one by one in order of submission
      */
-    public ProductTransactionEngine(final String productName, final TransactionEngine engine, Executor executor) {
+    public ProductTransactionEngine(final String productName, final SymbolDictionary symbols, final TransactionEngine engine,
+            Executor executor) {
         this.productName = productName;
+        this.symbols = symbols;
+        this.productId = symbols.intern(productName);
+        this.transactionLog = new TransactionLog(productName, symbols);
         this.transactionEngine = engine;
-        this.executor = new SerialExecutor(executor);
+        this.executor = executor;
     }
 
     /**
@@ -80,11 +94,14 @@ public class ProductTransactionEngine {
      * 
      * @param order PositionOrder
      */
-    public void onPositionOrder(final PositionOrder order) {
-        executor.execute(() -> {
-            addPositionOrder(order);
-            processTransactions();
-        });
+    public void onPositionOrder(final BookOrder order) {
+        PendingOrder task = new PendingOrder(order);
+
+        submit(task);
+
+        if (batch != null) {
+            pending = task;
+        }
     }
 
     /**
@@ -92,27 +109,112 @@ public class ProductTransactionEngine {
      * 
      * @param order PositionOrder
      */
-    public void onCancelOrder(final PositionOrder order) {
-        executor.execute(() -> {
+    public void onCancelOrder(final BookOrder order) {
+        if (pending != null && pending.order == order) {
+            pending.cancelled = true;
+            pending = null;
+
+            return;
+        }
+
+        submit(() -> {
             removePositionOrder(order);
             processTransactions();
         });
     }
 
     /**
-     * Submits in executor processing of PositionOrder modification.
+     * Submits in executor processing of PositionOrder modification. Modification is ignored if order is no longer in the book.
      * 
-     * @param oldOrder old PositionOrder
-     * @param newOrder modified PositionOrder
+     * @param order modified PositionOrder
+     * @param modification modification message
      */
-    public void onModifyOrder(final PositionOrder oldOrder, final PositionOrder newOrder) {
-        executor.execute(() -> {
-            removePositionOrder(oldOrder);
-            addPositionOrder(newOrder);
-            processTransactions();
+    public void onModifyOrder(final BookOrder order, final ModificationOrder modification) {
+        if (pending != null && pending.order == order) {
+            pending.modifications.add(modification);
+
+            return;
+        }
+
+        submit(() -> {
+            if (removePositionOrder(order)) {
+                order.modify(modification.getDetails(), modification.getTimestamp());
+                addPositionOrder(order);
+                processTransactions();
+            }
         });
     }
     
+    /**
+     * Starts collecting of order tasks. Tasks are submitted to executor as single task at the end of the batch, but every order is still
+     * matched separately.
+     * 
+     * @return true if batch was started, false if it was already in progress
+     */
+    public boolean beginBatch() {
+        if (batch != null) {
+            return false;
+        }
+
+        batch = new ArrayList<>();
+
+        return true;
+    }
+
+    /**
+     * Submits in executor all tasks collected in current batch.
+     */
+    public void endBatch() {
+        List<Runnable> tasks = batch;
+
+        batch = null;
+        pending = null;
+
+        if (tasks != null && !tasks.isEmpty()) {
+            executor.execute(() -> {
+                tasks.forEach(Runnable::run);
+                publishDepthUpdates();
+            });
+        }
+    }
+
+    /**
+     * Submits order task directly to executor or collects it in current batch.
+     * 
+     * @param task order task
+     */
+    private void submit(final Runnable task) {
+        pending = null;
+
+        if (batch != null) {
+            batch.add(task);
+        } else {
+            executor.execute(() -> {
+                task.run();
+                publishDepthUpdates();
+            });
+        }
+    }
+
+    /**
+     * Submits in executor copying of the current book. Copy is taken between processing of two messages, so it is consistent, and it
+     * contains only primitive values, so matching is delayed only by copying of the ladders. OrderBook is built from the copy outside of
+     * the engine executor.
+     * 
+     * @return future completed with current OrderBook of the product
+     */
+    public CompletableFuture<OrderBook> onOrderBookSnapshot() {
+        CompletableFuture<OrderBookSnapshot> snapshot = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> snapshot.complete(new OrderBookSnapshot(productName, symbols, buyOrders, sellOrders)));
+        } catch (RuntimeException e) {
+            snapshot.completeExceptionally(e);
+        }
+
+        return snapshot.thenApplyAsync(OrderBookSnapshot::toOrderBook);
+    }
+
     /**
      * Submits in executor processing of Shutdown notification.
      * 
@@ -121,6 +223,7 @@ public class ProductTransactionEngine {
     public void onShutdown(final CountDownLatch doneSignal) {
         executor.execute(() -> {
             processTransactions();
+            publishDepthUpdates();
             toOrderBook();
             buyOrders.clear();
             sellOrders.clear();
@@ -130,11 +233,11 @@ public class ProductTransactionEngine {
     }
 
     /**
-     * Adds PositionOrder to proper sorted collection based on order side.
+     * Adds PositionOrder to proper price ladder based on order side.
      * 
      * @param order added order
      */
-    private void addPositionOrder(final PositionOrder order) {
+    private void addPositionOrder(final BookOrder order) {
         switch (order.getSide()) {
         case BUY:
             buyOrders.add(order);
@@ -146,83 +249,168 @@ public class ProductTransactionEngine {
     }
 
     /**
-     * Removes PositionOrder from proper sorted collection based on order side.
+     * Removes PositionOrder from proper price ladder based on order side.
      * 
      * @param order removed order
+     * 
+     * @return true if order was in the book
      */
-    private void removePositionOrder(final PositionOrder order) {
+    private boolean removePositionOrder(final BookOrder order) {
         switch (order.getSide()) {
         case BUY:
-            buyOrders.remove(order);
-            break;
+            return buyOrders.remove(order);
         case SELL:
-            sellOrders.remove(order);
-            break;
+            return sellOrders.remove(order);
+        default:
+            return false;
         }
     }
     
+    /**
+     * Checks if order would match with the best order of the opposite side.
+     * 
+     * @param order checked order
+     * 
+     * @return true if order is marketable
+     */
+    private boolean isMarketable(final BookOrder order) {
+        switch (order.getSide()) {
+        case BUY:
+            return !sellOrders.isEmpty() && order.getPrice() >= sellOrders.first().getPrice();
+        case SELL:
+            return !buyOrders.isEmpty() && buyOrders.first().getPrice() >= order.getPrice();
+        default:
+            return true;
+        }
+    }
+
     /**
      * Process transactions based on orders on lists.
      */
     private void processTransactions() {
-        while (buyOrders.size() > 0 && sellOrders.size() > 0) {
-            PositionOrder buy = buyOrders.first();
-            PositionOrder sell = sellOrders.first();
+        while (!buyOrders.isEmpty() && !sellOrders.isEmpty()) {
+            BookOrder buy = buyOrders.first();
+            BookOrder sell = sellOrders.first();
             
-            Transaction t = MessageUtils.tryCreateTransaction(transactionIdGenerator, buy, sell);
+            int amount = MessageUtils.tryExecuteTransaction(transactionLog, buy, sell);
             
-            if (t == null) {
+            if (amount < 0) {
                 break;
             }
             
-            transactionEngine.addExecutedTransaction(t);
-            
-            buyOrders.remove(buy);
-            sellOrders.remove(sell);
+            transactionEngine.publishTransaction(transactionLog, transactionLog.size());
             
-            PositionOrder newBuy = MessageUtils.modifyPositionOrderAmount(buy, t.getAmount());
-            PositionOrder newSell = MessageUtils.modifyPositionOrderAmount(sell, t.getAmount());
-            
-            if (newBuy != null) {
-                buyOrders.add(newBuy);
+            if (buyOrders.fill(buy, amount)) {
+                buyOrders.pollFirst();
+                transactionEngine.evictIndexPositionOrder(buy);
             }
             
-            if (newSell != null) {
-                sellOrders.add(newSell);
+            if (sellOrders.fill(sell, amount)) {
+                sellOrders.pollFirst();
+                transactionEngine.evictIndexPositionOrder(sell);
             }
         }
     }
 
+    /**
+     * Publishes new state of price levels changed since the last call. Changes are dropped if nobody subscribed for depth updates.
+     */
+    private void publishDepthUpdates() {
+        if (!transactionEngine.hasDepthSubscribers()) {
+            buyOrders.clearChanges();
+            sellOrders.clearChanges();
+            return;
+        }
+
+        for (DepthUpdate update : buyOrders.drainChanges(productName)) {
+            transactionEngine.publishDepthUpdate(levelKey(update), update);
+        }
+
+        for (DepthUpdate update : sellOrders.drainChanges(productName)) {
+            transactionEngine.publishDepthUpdate(levelKey(update), update);
+        }
+    }
+
+    /**
+     * Returns key identifying price level among levels of all products, updates of the same level are conflated.
+     * 
+     * @param update update of the level
+     * 
+     * @return key of the level
+     */
+    private long levelKey(final DepthUpdate update) {
+        return (long) productId << 33 | (update.getSide() == Side.BUY ? 1L << 32 : 0) | (update.getPrice() & 0xFFFFFFFFL);
+    }
+
     /**
      * Method converts buy and sell entries to order book.
      */
     private void toOrderBook() {
-        List<OrderEntry> buyEntries = toOrderEntries(buyOrders);
-        List<OrderEntry> sellEntries = toOrderEntries(sellOrders);
+        OrderBookSnapshot snapshot = new OrderBookSnapshot(productName, symbols, buyOrders, sellOrders);
 
-        if (buyEntries.isEmpty() && sellEntries.isEmpty()) {
+        if (snapshot.isEmpty()) {
             return;
         }
 
-        orderBook = new OrderBook(getProductName(), buyEntries, sellEntries);
+        orderBook = snapshot.toOrderBook();
     }
 
     /**
-     * Converts collection of PositionOrders to list of OrderEntries.
-     * 
-     * @param orders collection of PositionOrders
-     * 
-     * @return list of OrderEntries
-     */
-    private List<OrderEntry> toOrderEntries(Collection<PositionOrder> orders) {
-        int i = 0;
-        List<OrderEntry> list = new ArrayList<>(orders.size());
-        
-        for (PositionOrder o : orders) {
-            list.add(OrderEntry.builder().id(++i).broker(o.getBroker()).client(o.getClient())
-                .amount(o.getDetails().getAmount()).price(o.getDetails().getPrice()).build());
-        }
-        
-        return list;
+     * Task inserting order into the book with cancellation and modifications folded into it.
+     */
+    private class PendingOrder implements Runnable {
+
+        /** Inserted order */
+        private final BookOrder order;
+
+        /** Modifications of the order in order of arrival */
+        private final List<ModificationOrder> modifications = new ArrayList<>(1);
+
+        /** Is order cancelled after modifications? */
+        private boolean cancelled;
+
+        /**
+         * Constructor.
+         * 
+         * @param order inserted order
+         */
+        private PendingOrder(final BookOrder order) {
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            int i = 0;
+
+            // order which does not match would rest at the back of its level, so modification only replaces its details
+            while (i < modifications.size() && !isMarketable(order)) {
+                ModificationOrder modification = modifications.get(i++);
+
+                order.modify(modification.getDetails(), modification.getTimestamp());
+                foldedMessages++;
+            }
+
+            if (cancelled && i == modifications.size() && !isMarketable(order)) {
+                foldedMessages++;
+
+                return;
+            }
+
+            addPositionOrder(order);
+            processTransactions();
+
+            for (; i < modifications.size(); i++) {
+                if (removePositionOrder(order)) {
+                    order.modify(modifications.get(i).getDetails(), modifications.get(i).getTimestamp());
+                    addPositionOrder(order);
+                    processTransactions();
+                }
+            }
+
+            if (cancelled) {
+                removePositionOrder(order);
+                processTransactions();
+            }
+        }
     }
 }
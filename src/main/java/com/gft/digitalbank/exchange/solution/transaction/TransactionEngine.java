@@ -1,15 +1,24 @@
 package com.gft.digitalbank.exchange.solution.transaction;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.gft.digitalbank.exchange.model.OrderBook;
@@ -19,29 +28,62 @@ import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
 import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
 import com.gft.digitalbank.exchange.model.orders.PositionOrder;
 import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.solution.stream.BlockingPublisher;
+import com.gft.digitalbank.exchange.solution.stream.ConflatingPublisher;
+import com.gft.digitalbank.exchange.solution.stream.Flow;
+import com.gft.digitalbank.exchange.solution.transaction.book.BookOrder;
+import com.gft.digitalbank.exchange.solution.transaction.book.DepthUpdate;
+import com.gft.digitalbank.exchange.solution.util.IntObjectHashMap;
+import com.gft.digitalbank.exchange.solution.util.IntObjectMap;
 import com.gft.digitalbank.exchange.solution.util.MessageUtils;
+import com.gft.digitalbank.exchange.solution.util.SerialExecutor;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
 
 import lombok.extern.log4j.Log4j;
 
 /**
  * Class reperesents transaction engine for all products and brokers.
  * 
+ * Broker, client and product names are encoded into codes of SymbolDictionary when message enters the engine, so routing to product
+ * engines is array indexing and books keep only int codes. Names are restored when OrderBooks and Transactions are built.
+ * 
+ * Executed transactions are also streamed to subscribers of transaction publisher as they happen, and changes of price levels to
+ * subscribers of depth publisher. Publishers are completed when all product engines terminated.
+ * 
  * @author Arkadiusz Cieslak
  */
 @Log4j
 public class TransactionEngine extends Observable implements BrokerMessageListener {
     
-    /** Provided executor */
-    private final Executor executor;
+    /** Factory of serial executors for product engines (by product name) */
+    private final Function<String, Executor> productExecutors;
+
+    /** Map of product transaction engines (identified by product name), it is read also by threads querying order books */
+    private Map<String, ProductTransactionEngine> productEngines = new ConcurrentHashMap<>();
+
+    /** Product transaction engines indexed by product code (used only by thread processing broker messages) */
+    private ProductTransactionEngine[] productEnginesById = new ProductTransactionEngine[16];
+
+    /** Dictionary of broker, client and product codes */
+    private SymbolDictionary symbols = new SymbolDictionary();
 
-    /** List of transactions */
-    private List<Transaction> transactions = new ArrayList<>();
+    /** Publisher of executed transactions */
+    private BlockingPublisher<Transaction> transactionPublisher = new BlockingPublisher<>(BlockingPublisher.DEFAULT_BUFFER_SIZE);
 
-    /** Map of product transaction engines (identified by product name) */
-    private Map<String, ProductTransactionEngine> productEngines = new HashMap<>();
+    /** Publisher of changes of price levels */
+    private ConflatingPublisher<DepthUpdate> depthPublisher = new ConflatingPublisher<>();
 
-    /** Index of position orders (identified by Order id) */
-    private Map<Integer, PositionOrder> positionOrderIdx = new HashMap<>();
+    /** Index of live position orders (identified by Order id) */
+    private final IntObjectMap<BookOrder> positionOrderIdx;
+
+    /** Orders filled by product engines, waiting for removal from index */
+    private final Queue<BookOrder> evictedOrders = new ConcurrentLinkedQueue<>();
+    
+    /** Product engines collecting tasks in current batch of ordered messages */
+    private final List<ProductTransactionEngine> batchEngines = new ArrayList<>();
+
+    /** Is batch of ordered messages in progress? */
+    private boolean inBatch;
     
     /** Set of active destinations */
     private Set<String> activeDestinations = new HashSet<>();
@@ -50,15 +92,131 @@ public class TransactionEngine extends Observable implements BrokerMessageListen
      * Constructor.
      * 
      * @param executor provided executor
+     * @param destinations list of broker destinations
      */
     public TransactionEngine(Executor executor, Collection<String> destinations) {
-        this.executor = executor;
+        this(executor, destinations, new IntObjectHashMap<>());
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param executor provided executor
+     * @param destinations list of broker destinations
+     * @param positionOrderIdx index of position orders, i.e. DenseIntObjectMap when order ids are sequential
+     */
+    public TransactionEngine(Executor executor, Collection<String> destinations, IntObjectMap<BookOrder> positionOrderIdx) {
+        this(serialExecutors(executor), destinations, positionOrderIdx);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param productExecutors factory of serial executors for product engines, i.e. executors of ShardedExecutor
+     * @param destinations list of broker destinations
+     * @param positionOrderIdx index of position orders
+     */
+    public TransactionEngine(Function<String, Executor> productExecutors, Collection<String> destinations,
+            IntObjectMap<BookOrder> positionOrderIdx) {
+        this.productExecutors = productExecutors;
+        this.positionOrderIdx = positionOrderIdx;
         
         if (destinations != null) {
             this.activeDestinations.addAll(destinations);
         }
     }
 
+    /**
+     * Sets dictionary of broker, client and product codes, i.e. dictionary shared with binary message decoders, so symbols are already
+     * canonical. It has to be called before the first message.
+     * 
+     * @param symbols dictionary of symbol codes
+     */
+    public void setSymbolDictionary(final SymbolDictionary symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Returns dictionary of broker, client and product codes.
+     * 
+     * @return dictionary of symbol codes
+     */
+    public SymbolDictionary getSymbolDictionary() {
+        return symbols;
+    }
+
+    /**
+     * Sets publisher of executed transactions, i.e. publisher created before the engine, so subscribers do not miss any transaction. It has
+     * to be called before the first message.
+     * 
+     * @param transactionPublisher publisher of executed transactions
+     */
+    public void setTransactionPublisher(final BlockingPublisher<Transaction> transactionPublisher) {
+        this.transactionPublisher = transactionPublisher;
+    }
+
+    /**
+     * Returns publisher streaming executed transactions. Transactions of single product are published in order of execution, slow
+     * subscriber slows down matching of products, subscriber which does not request transactions within max wait time of the publisher
+     * is dropped.
+     * 
+     * @return publisher of executed transactions
+     */
+    public Flow.Publisher<Transaction> getTransactionPublisher() {
+        return transactionPublisher;
+    }
+
+    /**
+     * Sets publisher of changes of price levels. It has to be called before the first message.
+     * 
+     * @param depthPublisher publisher of changes of price levels
+     */
+    public void setDepthPublisher(final ConflatingPublisher<DepthUpdate> depthPublisher) {
+        this.depthPublisher = depthPublisher;
+    }
+
+    /**
+     * Returns publisher streaming new state of price levels of all products (L2 market data). Updates are published after every task
+     * of product engine, subscriber which does not keep up receives only the latest state of every level.
+     * 
+     * @return publisher of changes of price levels
+     */
+    public Flow.Publisher<DepthUpdate> getDepthPublisher() {
+        return depthPublisher;
+    }
+
+    /**
+     * Checks if anybody subscribed for changes of price levels.
+     * 
+     * @return true if there is any depth subscriber
+     */
+    boolean hasDepthSubscribers() {
+        return depthPublisher.hasSubscribers();
+    }
+
+    /**
+     * Publishes new state of price level. Method is called by product engines.
+     * 
+     * @param levelKey key of the level unique among all products
+     * @param update new state of the level
+     */
+    void publishDepthUpdate(final long levelKey, final DepthUpdate update) {
+        depthPublisher.submit(levelKey, update);
+    }
+
+    /**
+     * Publishes executed transaction to subscribers. Method is called by product engines, transaction is materialized only if there is
+     * any subscriber.
+     * 
+     * @param log transaction log of the product
+     * @param transactionId id of executed transaction
+     */
+    void publishTransaction(final TransactionLog log, final int transactionId) {
+        if (transactionPublisher.hasSubscribers()) {
+            transactionPublisher.submit(log.get(transactionId - 1));
+        }
+    }
+
     /**
      * Creates and returns solution result based on transactions and messages.
      * 
@@ -67,43 +225,120 @@ public class TransactionEngine extends Observable implements BrokerMessageListen
     public SolutionResult createSolutionResult() {
         return SolutionResult.builder()
             .orderBooks(createOrderBooks())
-            .transactions(transactions)
+            .transactions(createTransactions())
             .build();
     }
 
+    /**
+     * Returns transactions of all products. Every product engine appends to its own log, so logs are only concatenated here, in order of
+     * product names, without copying. It has to be called after product engines terminated.
+     * 
+     * @return view of transactions of all products
+     */
+    public Collection<Transaction> createTransactions() {
+        List<TransactionLog> logs = productEngines.values()
+                .stream()
+                .sorted(Comparator.comparing(ProductTransactionEngine::getProductName))
+                .map(ProductTransactionEngine::getTransactionLog)
+                .collect(Collectors.toList());
+
+        return new AbstractCollection<Transaction>() {
+
+            @Override
+            public Iterator<Transaction> iterator() {
+                return logs.stream().flatMap(TransactionLog::stream).iterator();
+            }
+
+            @Override
+            public int size() {
+                return logs.stream().mapToInt(TransactionLog::size).sum();
+            }
+        };
+    }
+
+    /**
+     * Returns names of products traded so far.
+     * 
+     * @return unmodifiable view of product names
+     */
+    public Set<String> getProductNames() {
+        return Collections.unmodifiableSet(productEngines.keySet());
+    }
+
+    /**
+     * Returns consistent snapshot of product order book. Method can be called in any thread at any moment, snapshot reflects all messages
+     * processed by product engine before the query.
+     * 
+     * @param productName name of product
+     * 
+     * @return future completed with OrderBook of the product (empty if product was not traded)
+     */
+    public CompletableFuture<OrderBook> getOrderBookSnapshot(final String productName) {
+        ProductTransactionEngine pte = productEngines.get(productName);
+
+        if (pte == null) {
+            return CompletableFuture.completedFuture(new OrderBook(productName, Collections.emptyList(), Collections.emptyList()));
+        }
+
+        return pte.onOrderBookSnapshot();
+    }
+
+    /**
+     * Returns snapshots of order books of all products. Every book is consistent on its own, books of different products are taken
+     * independently.
+     * 
+     * @return future completed with OrderBooks of all products
+     */
+    public CompletableFuture<List<OrderBook>> getOrderBookSnapshots() {
+        List<CompletableFuture<OrderBook>> snapshots = productEngines.values()
+                .stream()
+                .map(ProductTransactionEngine::onOrderBookSnapshot)
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(snapshots.toArray(new CompletableFuture<?>[snapshots.size()]))
+                .thenApply(v -> snapshots.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
     /**
      * Shutdowns engine.
      */
     public void shutdown() {
-        transactions.clear();
         productEngines.clear();
+        Arrays.fill(productEnginesById, null);
         positionOrderIdx.clear();
+        evictedOrders.clear();
     }
 
     /**
-     * Adds executed transaction to internal list.
+     * Schedules removal of fully filled order from index. Method is called by product engines, so it only queues the order and index is
+     * updated in the thread processing broker messages.
      * 
-     * @param transaction executed transaction
+     * @param order fully filled order
      */
-    public void addExecutedTransaction(Transaction transaction) {
-        transactions.add(transaction);
+    public void evictIndexPositionOrder(BookOrder order) {
+        evictedOrders.offer(order);
     }
 
     @Override
     public void onBrokerMessage(PositionOrder message) {
-        ProductTransactionEngine pte = getProductTransactionEngine(message.getProduct());
+        removeEvictedPositionOrders();
 
-        pte.onPositionOrder(message);
+        BookOrder order = new BookOrder(message, symbols);
+        ProductTransactionEngine pte = getProductTransactionEngine(order.getProductId());
 
-        addIndexPositionOrder(message);
+        addIndexPositionOrder(order);
+
+        pte.onPositionOrder(order);
     }
 
     @Override
     public void onBrokerMessage(CancellationOrder message) {
-        PositionOrder order = getIndexPositionOrder(message.getCancelledOrderId());
+        removeEvictedPositionOrders();
+
+        BookOrder order = getIndexPositionOrder(message.getCancelledOrderId());
 
-        if (MessageUtils.sameBroker(order, message)) {
-            ProductTransactionEngine pte = getProductTransactionEngine(order.getProduct());
+        if (MessageUtils.sameBroker(order, symbols.code(message.getBroker()))) {
+            ProductTransactionEngine pte = getProductTransactionEngine(order.getProductId());
 
             pte.onCancelOrder(order);
 
@@ -113,19 +348,37 @@ public class TransactionEngine extends Observable implements BrokerMessageListen
 
     @Override
     public void onBrokerMessage(ModificationOrder message) {
-        PositionOrder order = getIndexPositionOrder(message.getModifiedOrderId());
-        PositionOrder newOrder = MessageUtils.modifyPositionOrderDetails(order, message);
+        removeEvictedPositionOrders();
+
+        BookOrder order = getIndexPositionOrder(message.getModifiedOrderId());
         
-        if (newOrder != null) {
-            ProductTransactionEngine pte = getProductTransactionEngine(order.getProduct());
+        if (MessageUtils.sameBroker(order, symbols.code(message.getBroker()))) {
+            ProductTransactionEngine pte = getProductTransactionEngine(order.getProductId());
     
-            pte.onModifyOrder(order, newOrder);
-            
-            removeIndexPositionOrder(order);
-            addIndexPositionOrder(newOrder);
+            pte.onModifyOrder(order, message);
         }
     }
 
+    /**
+     * Starts batch of ordered messages. Tasks of every product engine touched by the batch are handed over to its executor once, at the
+     * end of the batch, so products are matched in parallel while sequencing thread only orders and routes messages.
+     */
+    @Override
+    public void onBatchStart() {
+        inBatch = true;
+    }
+
+    @Override
+    public void onBatchEnd() {
+        inBatch = false;
+
+        for (ProductTransactionEngine pte : batchEngines) {
+            pte.endBatch();
+        }
+
+        batchEngines.clear();
+    }
+
     @Override
     public void onBrokerMessage(final ShutdownNotification message) {
         activeDestinations.remove(message.getBroker());
@@ -158,6 +411,8 @@ public class TransactionEngine extends Observable implements BrokerMessageListen
     private void waitForTermination(CountDownLatch doneSignal) {
         try {
             doneSignal.await();
+            transactionPublisher.close();
+            depthPublisher.close();
             
             setChanged();
             notifyObservers();
@@ -170,12 +425,41 @@ public class TransactionEngine extends Observable implements BrokerMessageListen
     /**
      * Returns ProductTransactionEngine. If not available than creates one and stores for later use.
      * 
-     * @param productName name of product
+     * @param productId product code
+     * 
+     * @return ProductTransactionEngine identified by product code
+     */
+    private ProductTransactionEngine getProductTransactionEngine(final int productId) {
+        if (productId >= productEnginesById.length) {
+            productEnginesById = Arrays.copyOf(productEnginesById, Integer.highestOneBit(productId) << 1);
+        }
+
+        ProductTransactionEngine pte = productEnginesById[productId];
+
+        if (pte == null) {
+            String productName = symbols.symbol(productId);
+
+            pte = new ProductTransactionEngine(productName, symbols, this, productExecutors.apply(productName));
+            productEnginesById[productId] = pte;
+            productEngines.put(productName, pte);
+        }
+
+        if (inBatch && pte.beginBatch()) {
+            batchEngines.add(pte);
+        }
+
+        return pte;
+    }
+
+    /**
+     * Returns factory which wraps shared executor in new SerialExecutor for every product.
      * 
-     * @return ProductTransactionEngine identified by product name
+     * @param executor shared executor
+     * 
+     * @return factory of serial executors
      */
-    private ProductTransactionEngine getProductTransactionEngine(final String productName) {
-        return productEngines.computeIfAbsent(productName, k -> new ProductTransactionEngine(k, this, executor));
+    private static Function<String, Executor> serialExecutors(final Executor executor) {
+        return productName -> new SerialExecutor(executor);
     }
 
     /**
@@ -183,7 +467,7 @@ public class TransactionEngine extends Observable implements BrokerMessageListen
      * 
      * @param order position order
      */
-    private void addIndexPositionOrder(final PositionOrder order) {
+    private void addIndexPositionOrder(final BookOrder order) {
         positionOrderIdx.put(order.getId(), order);
     }
 
@@ -192,7 +476,7 @@ public class TransactionEngine extends Observable implements BrokerMessageListen
      * 
      * @param order position order
      */
-    private void removeIndexPositionOrder(final PositionOrder order) {
+    private void removeIndexPositionOrder(final BookOrder order) {
         positionOrderIdx.remove(order.getId());
     }
 
@@ -201,11 +485,22 @@ public class TransactionEngine extends Observable implements BrokerMessageListen
      * 
      * @param orderId order id
      * 
-     * @return PositionOrder from index or null if not present
+     * @return BookOrder from index or null if not present
      */
-    private PositionOrder getIndexPositionOrder(final int orderId) {
+    private BookOrder getIndexPositionOrder(final int orderId) {
         return positionOrderIdx.get(orderId);
     }
+
+    /**
+     * Removes from index orders filled by product engines.
+     */
+    private void removeEvictedPositionOrders() {
+        BookOrder order;
+
+        while ((order = evictedOrders.poll()) != null) {
+            removeIndexPositionOrder(order);
+        }
+    }
     
     /**
      * Method creates collection of order books based on transactions.
@@ -0,0 +1,178 @@
+package com.gft.digitalbank.exchange.solution.transaction;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.gft.digitalbank.exchange.model.Transaction;
+import com.gft.digitalbank.exchange.solution.transaction.book.BookOrder;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+
+import lombok.Getter;
+
+/**
+ * Append-only log of transactions of single product. Transactions are stored in columns of primitive values (amount, price and symbol
+ * codes of both sides) split into fixed size chunks, so append neither allocates objects nor copies stored values. Transaction ids are
+ * sequential per product, so id of transaction is its position in the log plus one and it is not stored at all. Transaction objects are
+ * materialized only when the log is read.
+ *
+ * Log has single writer, the product engine owning it. Readers have to access the log after the engine terminated, i.e. after its
+ * shutdown signal, which makes all appended transactions visible.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class TransactionLog implements Iterable<Transaction> {
+
+    /** Number of transactions in chunk (power of 2) */
+    private static final int CHUNK_SIZE = 1024;
+
+    /** Shift of transaction index giving index of chunk */
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+
+    /** Column of amount */
+    private static final int AMOUNT = 0;
+
+    /** Column of price */
+    private static final int PRICE = 1;
+
+    /** Column of code of buying broker */
+    private static final int BROKER_BUY = 2;
+
+    /** Column of code of buying client */
+    private static final int CLIENT_BUY = 3;
+
+    /** Column of code of selling broker */
+    private static final int BROKER_SELL = 4;
+
+    /** Column of code of selling client */
+    private static final int CLIENT_SELL = 5;
+
+    /** Number of columns */
+    private static final int COLUMNS = 6;
+
+    /** Name of the product */
+    @Getter
+    private final String productName;
+
+    /** Dictionary of broker and client codes */
+    private final SymbolDictionary symbols;
+
+    /** Chunks of columns (chunk, column, position in chunk), allocated on demand */
+    private int[][][] chunks = new int[4][][];
+
+    /** Number of transactions */
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param productName name of the product
+     * @param symbols dictionary of broker and client codes
+     */
+    public TransactionLog(final String productName, final SymbolDictionary symbols) {
+        this.productName = productName;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Appends transaction at the end of the log.
+     *
+     * @param amount amount of transaction
+     * @param price price of transaction
+     * @param buyOrder buy order
+     * @param sellOrder sell order
+     *
+     * @return id of transaction
+     */
+    public int append(final int amount, final int price, final BookOrder buyOrder, final BookOrder sellOrder) {
+        int chunk = size >>> CHUNK_SHIFT;
+        int i = size & (CHUNK_SIZE - 1);
+
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk << 1);
+        }
+
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new int[COLUMNS][CHUNK_SIZE];
+        }
+
+        int[][] columns = chunks[chunk];
+
+        columns[AMOUNT][i] = amount;
+        columns[PRICE][i] = price;
+        columns[BROKER_BUY][i] = buyOrder.getBrokerId();
+        columns[CLIENT_BUY][i] = buyOrder.getClientId();
+        columns[BROKER_SELL][i] = sellOrder.getBrokerId();
+        columns[CLIENT_SELL][i] = sellOrder.getClientId();
+
+        return ++size;
+    }
+
+    /**
+     * Materializes transaction at given position.
+     *
+     * @param index position of transaction in the log
+     *
+     * @return transaction
+     */
+    public Transaction get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+
+        int[][] columns = chunks[index >>> CHUNK_SHIFT];
+        int i = index & (CHUNK_SIZE - 1);
+
+        return Transaction.builder().id(index + 1).amount(columns[AMOUNT][i]).price(columns[PRICE][i]).product(productName)
+                .brokerBuy(symbols.symbol(columns[BROKER_BUY][i])).clientBuy(symbols.symbol(columns[CLIENT_BUY][i]))
+                .brokerSell(symbols.symbol(columns[BROKER_SELL][i])).clientSell(symbols.symbol(columns[CLIENT_SELL][i])).build();
+    }
+
+    /**
+     * Returns number of transactions.
+     *
+     * @return number of transactions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns sequential stream of transactions in order of execution, transactions are materialized one by one.
+     *
+     * @return stream of transactions
+     */
+    public Stream<Transaction> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        return new Iterator<Transaction>() {
+
+            /** Number of transactions when iteration started */
+            private final int end = size;
+
+            /** Position of next transaction */
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Transaction next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+
+                return get(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Mutable representation of order resting in the book. Remaining amount of the order is updated in place on every fill, immutable
+ * PositionOrder is materialized only when needed outside of the engine. The same object is kept in order index, so identity fields are
+ * final and can be read in any thread, while price, timestamp and amount are changed only by the product engine owning the order.
+ * 
+ * Order is also a node of intrusive list of its price level, so the order taken from index is a handle which can be unlinked from the
+ * book without any search.
+ * 
+ * Broker, client and product are kept as codes of SymbolDictionary, names are restored only when order leaves the engine.
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Getter
+public class BookOrder {
+
+    /** Order id */
+    private final int id;
+
+    /** Broker code */
+    private final int brokerId;
+
+    /** Client code */
+    private final int clientId;
+
+    /** Product code */
+    private final int productId;
+
+    /** Order side */
+    private final Side side;
+
+    /** Order price */
+    private int price;
+
+    /** Order timestamp */
+    private long timestamp;
+
+    /** Remaining amount of the order */
+    private int amount;
+
+    /** Price level containing the order (null if order is not in the book) */
+    @Getter(AccessLevel.NONE)
+    PriceLevel level;
+
+    /** Previous order in price level */
+    @Getter(AccessLevel.NONE)
+    BookOrder prev;
+
+    /** Next order in price level */
+    @Getter(AccessLevel.NONE)
+    BookOrder next;
+
+    /**
+     * Constructor.
+     *
+     * @param order PositionOrder message
+     * @param symbols dictionary assigning codes to broker, client and product names
+     */
+    public BookOrder(final PositionOrder order, final SymbolDictionary symbols) {
+        this.id = order.getId();
+        this.brokerId = symbols.intern(order.getBroker());
+        this.clientId = symbols.intern(order.getClient());
+        this.productId = symbols.intern(order.getProduct());
+        this.side = order.getSide();
+        this.price = order.getDetails().getPrice();
+        this.timestamp = order.getTimestamp();
+        this.amount = order.getDetails().getAmount();
+    }
+
+    /**
+     * Subtracts filled amount from the remaining amount.
+     *
+     * @param filledAmount filled amount
+     *
+     * @return true if order is fully filled
+     */
+    public boolean fill(final int filledAmount) {
+        amount -= filledAmount;
+
+        return amount <= 0;
+    }
+
+    /**
+     * Checks if order rests in the book.
+     *
+     * @return true if order is linked to price level
+     */
+    public boolean isInBook() {
+        return level != null;
+    }
+
+    /**
+     * Replaces details of the order. Order loses its time priority, so it has to be removed from the book before modification.
+     *
+     * @param details new details of the order
+     * @param timestamp timestamp of the modification
+     */
+    public void modify(final OrderDetails details, final long timestamp) {
+        this.price = details.getPrice();
+        this.amount = details.getAmount();
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Materializes PositionOrder with the remaining amount.
+     *
+     * @param symbols dictionary of broker, client and product codes
+     *
+     * @return PositionOrder with the remaining amount
+     */
+    public PositionOrder toPositionOrder(final SymbolDictionary symbols) {
+        return PositionOrder.builder().id(id).broker(symbols.symbol(brokerId)).client(symbols.symbol(clientId))
+                .product(symbols.symbol(productId)).side(side).timestamp(timestamp)
+                .details(OrderDetails.builder().amount(amount).price(price).build()).build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import com.gft.digitalbank.exchange.model.orders.Side;
+
+import lombok.Getter;
+
+/**
+ * New state of single price level of product book (L2 market data). Level removed from the book has zero quantity and no orders.
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Getter
+public class DepthUpdate {
+
+    /** Name of the product */
+    private final String productName;
+
+    /** Side of the level */
+    private final Side side;
+
+    /** Price of the level */
+    private final int price;
+
+    /** Remaining amount of all orders on the level */
+    private final long quantity;
+
+    /** Number of orders on the level */
+    private final int orderCount;
+
+    /**
+     * Constructor.
+     *
+     * @param productName name of the product
+     * @param side side of the level
+     * @param price price of the level
+     * @param quantity remaining amount of all orders on the level
+     * @param orderCount number of orders on the level
+     */
+    public DepthUpdate(final String productName, final Side side, final int price, final long quantity, final int orderCount) {
+        this.productName = productName;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.orderCount = orderCount;
+    }
+
+    /**
+     * Checks if level was removed from the book.
+     *
+     * @return true if there are no orders on the level
+     */
+    public boolean isRemoved() {
+        return orderCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "DepthUpdate(" + productName + ", " + side + ", " + price + ", " + quantity + ", " + orderCount + ")";
+    }
+}
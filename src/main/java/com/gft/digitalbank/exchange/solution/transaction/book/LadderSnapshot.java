@@ -0,0 +1,81 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gft.digitalbank.exchange.model.OrderEntry;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+
+/**
+ * Immutable copy of orders from one side of the book. Copy is made in columns of primitive values, so capturing it in engine thread is
+ * cheap, and OrderEntries are built later in any other thread.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class LadderSnapshot {
+
+    /** Dictionary of broker and client codes */
+    private final SymbolDictionary symbols;
+
+    /** Broker codes of orders in priority order */
+    private final int[] brokers;
+
+    /** Client codes of orders in priority order */
+    private final int[] clients;
+
+    /** Amounts of orders in priority order */
+    private final int[] amounts;
+
+    /** Prices of orders in priority order */
+    private final int[] prices;
+
+    /**
+     * Constructor. It copies orders of the ladder, so it has to be called in thread owning the ladder.
+     *
+     * @param ladder price ladder
+     * @param symbols dictionary of broker and client codes
+     */
+    public LadderSnapshot(final PriceLadder ladder, final SymbolDictionary symbols) {
+        int size = ladder.size();
+        int i = 0;
+
+        this.symbols = symbols;
+        brokers = new int[size];
+        clients = new int[size];
+        amounts = new int[size];
+        prices = new int[size];
+
+        for (BookOrder o : ladder) {
+            brokers[i] = o.getBrokerId();
+            clients[i] = o.getClientId();
+            amounts[i] = o.getAmount();
+            prices[i] = o.getPrice();
+            i++;
+        }
+    }
+
+    /**
+     * Returns number of orders in snapshot.
+     *
+     * @return number of orders
+     */
+    public int size() {
+        return amounts.length;
+    }
+
+    /**
+     * Converts snapshot to list of OrderEntries.
+     *
+     * @return list of OrderEntries
+     */
+    public List<OrderEntry> toOrderEntries() {
+        List<OrderEntry> list = new ArrayList<>(amounts.length);
+
+        for (int i = 0; i < amounts.length; i++) {
+            list.add(OrderEntry.builder().id(i + 1).broker(symbols.symbol(brokers[i])).client(symbols.symbol(clients[i]))
+                    .amount(amounts[i]).price(prices[i]).build());
+        }
+
+        return list;
+    }
+}
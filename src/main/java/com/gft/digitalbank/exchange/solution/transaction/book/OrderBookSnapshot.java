@@ -0,0 +1,57 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import com.gft.digitalbank.exchange.model.OrderBook;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+
+import lombok.Getter;
+
+/**
+ * Consistent copy of both sides of product book.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class OrderBookSnapshot {
+
+    /** Name of the product */
+    @Getter
+    private final String productName;
+
+    /** Copy of buy orders */
+    private final LadderSnapshot buyOrders;
+
+    /** Copy of sell orders */
+    private final LadderSnapshot sellOrders;
+
+    /**
+     * Constructor. It copies both ladders, so it has to be called in thread owning the ladders.
+     *
+     * @param productName name of the product
+     * @param symbols dictionary of broker and client codes
+     * @param buyOrders price ladder of buy orders
+     * @param sellOrders price ladder of sell orders
+     */
+    public OrderBookSnapshot(final String productName, final SymbolDictionary symbols, final PriceLadder buyOrders,
+            final PriceLadder sellOrders) {
+        this.productName = productName;
+        this.buyOrders = new LadderSnapshot(buyOrders, symbols);
+        this.sellOrders = new LadderSnapshot(sellOrders, symbols);
+    }
+
+    /**
+     * Checks if both sides of the book are empty.
+     *
+     * @return true if there are no orders in the book
+     */
+    public boolean isEmpty() {
+        return buyOrders.size() == 0 && sellOrders.size() == 0;
+    }
+
+    /**
+     * Converts snapshot to OrderBook.
+     *
+     * @return OrderBook
+     */
+    public OrderBook toOrderBook() {
+        return new OrderBook(productName, buyOrders.toOrderEntries(), sellOrders.toOrderEntries());
+    }
+}
@@ -0,0 +1,361 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+
+/**
+ * One side of the order book organized as ladder of price levels. Levels are kept in array sorted by level key, so the best level is
+ * always the last one. Top of the book is accessed in constant time, orders at existing levels are added without any search on the
+ * best level and with binary search on other levels. Arrays are shifted only when level is created or removed, which for real order
+ * flow happens close to the top of the book. Orders are removed through their handles in constant time, level is searched only when it
+ * becomes empty.
+ *
+ * Ladder also records prices of levels changed since the last call of drainChanges, so the engine can publish new state of changed
+ * levels only.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class PriceLadder implements Iterable<BookOrder> {
+
+    /** Initial number of levels */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Side of the book */
+    @Getter
+    private final Side side;
+
+    /** Level keys in ascending order (best level is the last one) */
+    private int[] keys = new int[INITIAL_CAPACITY];
+
+    /** Levels related to keys */
+    private PriceLevel[] levels = new PriceLevel[INITIAL_CAPACITY];
+
+    /** Number of levels */
+    @Getter
+    private int levelCount;
+
+    /** Number of orders on all levels */
+    private int orderCount;
+
+    /** Prices of levels changed since the last drain, may contain duplicates */
+    private int[] changedPrices = new int[INITIAL_CAPACITY];
+
+    /** Number of recorded changes */
+    private int changeCount;
+
+    /**
+     * Constructor.
+     *
+     * @param side side of the book
+     */
+    public PriceLadder(final Side side) {
+        this.side = side;
+    }
+
+    /**
+     * Returns best level of the ladder.
+     *
+     * @return best level or null if ladder is empty
+     */
+    public PriceLevel getBestLevel() {
+        return levelCount > 0 ? levels[levelCount - 1] : null;
+    }
+
+    /**
+     * Returns order with the highest priority.
+     *
+     * @return first order or null if ladder is empty
+     */
+    public BookOrder first() {
+        return levelCount > 0 ? levels[levelCount - 1].first() : null;
+    }
+
+    /**
+     * Adds order at the end of its price level.
+     *
+     * @param order added order
+     */
+    public void add(final BookOrder order) {
+        getOrCreateLevel(order.getPrice()).add(order);
+        orderCount++;
+        markChanged(order.getPrice());
+    }
+
+    /**
+     * Subtracts filled amount from order resting in the ladder. Fully filled order stays in the ladder until it is removed.
+     *
+     * @param order filled order
+     * @param filledAmount filled amount
+     *
+     * @return true if order is fully filled
+     */
+    public boolean fill(final BookOrder order, final int filledAmount) {
+        Preconditions.checkArgument(order.level != null && order.getSide() == side, "Order %s is not in the ladder", order.getId());
+
+        markChanged(order.getPrice());
+
+        return order.level.fill(order, filledAmount);
+    }
+
+    /**
+     * Unlinks order from its price level.
+     *
+     * @param order removed order
+     *
+     * @return true if order was in the ladder and was removed
+     */
+    public boolean remove(final BookOrder order) {
+        PriceLevel level = order.level;
+
+        if (level == null || order.getSide() != side) {
+            return false;
+        }
+
+        level.remove(order);
+        orderCount--;
+        markChanged(level.getPrice());
+
+        if (level.isEmpty()) {
+            removeLevel(indexOf(key(level.getPrice())));
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes and returns order with the highest priority.
+     *
+     * @return removed order or null if ladder is empty
+     */
+    public BookOrder pollFirst() {
+        if (levelCount == 0) {
+            return null;
+        }
+
+        PriceLevel best = levels[levelCount - 1];
+        BookOrder order = best.pollFirst();
+
+        orderCount--;
+        markChanged(best.getPrice());
+
+        if (best.isEmpty()) {
+            removeLevel(levelCount - 1);
+        }
+
+        return order;
+    }
+
+    /**
+     * Returns level with given price.
+     *
+     * @param price price of the level
+     *
+     * @return level or null if there are no orders with the price
+     */
+    public PriceLevel getLevel(final int price) {
+        int idx = indexOf(key(price));
+
+        return idx >= 0 ? levels[idx] : null;
+    }
+
+    /**
+     * Returns current state of levels changed since the last call and forgets the changes. Level changed many times is reported once.
+     *
+     * @param productName name of the product
+     *
+     * @return updates of changed levels in price order
+     */
+    public List<DepthUpdate> drainChanges(final String productName) {
+        if (changeCount == 0) {
+            return Collections.emptyList();
+        }
+
+        Arrays.sort(changedPrices, 0, changeCount);
+
+        List<DepthUpdate> updates = new ArrayList<>(changeCount);
+
+        for (int i = 0; i < changeCount; i++) {
+            int price = changedPrices[i];
+
+            if (i > 0 && changedPrices[i - 1] == price) {
+                continue;
+            }
+
+            PriceLevel level = getLevel(price);
+
+            updates.add(level != null ? new DepthUpdate(productName, side, price, level.getQuantity(), level.size())
+                    : new DepthUpdate(productName, side, price, 0, 0));
+        }
+
+        changeCount = 0;
+
+        return updates;
+    }
+
+    /**
+     * Forgets changes recorded since the last drain.
+     */
+    public void clearChanges() {
+        changeCount = 0;
+    }
+
+    /**
+     * Returns number of orders on all levels.
+     *
+     * @return number of orders
+     */
+    public int size() {
+        return orderCount;
+    }
+
+    /**
+     * Checks if ladder has no orders.
+     *
+     * @return true if ladder is empty
+     */
+    public boolean isEmpty() {
+        return orderCount == 0;
+    }
+
+    /**
+     * Removes all levels.
+     */
+    public void clear() {
+        for (int i = 0; i < levelCount; i++) {
+            levels[i].clear();
+        }
+
+        Arrays.fill(levels, 0, levelCount, null);
+        levelCount = 0;
+        orderCount = 0;
+        changeCount = 0;
+    }
+
+    /**
+     * Returns iterator over orders in priority order (best level first, FIFO inside level).
+     */
+    @Override
+    public Iterator<BookOrder> iterator() {
+        return new Iterator<BookOrder>() {
+            private int levelIdx = levelCount - 1;
+            private Iterator<BookOrder> levelIt = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!levelIt.hasNext() && levelIdx >= 0) {
+                    levelIt = levels[levelIdx--].iterator();
+                }
+
+                return levelIt.hasNext();
+            }
+
+            @Override
+            public BookOrder next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return levelIt.next();
+            }
+        };
+    }
+
+    /**
+     * Records change of level, consecutive changes of the same level are recorded once.
+     *
+     * @param price price of changed level
+     */
+    private void markChanged(final int price) {
+        if (changeCount > 0 && changedPrices[changeCount - 1] == price) {
+            return;
+        }
+
+        if (changeCount == changedPrices.length) {
+            changedPrices = Arrays.copyOf(changedPrices, changeCount * 2);
+        }
+
+        changedPrices[changeCount++] = price;
+    }
+
+    /**
+     * Converts price to level key. Keys grow towards the best price on both sides (bitwise negation reverses order for sell side without
+     * overflow).
+     *
+     * @param price price
+     *
+     * @return level key
+     */
+    private int key(final int price) {
+        return side == Side.BUY ? price : ~price;
+    }
+
+    /**
+     * Finds index of level with given key.
+     *
+     * @param key level key
+     *
+     * @return index of level or (-(insertion point) - 1) if level doesn't exist
+     */
+    private int indexOf(final int key) {
+        if (levelCount > 0 && keys[levelCount - 1] == key) {
+            return levelCount - 1;
+        }
+
+        return Arrays.binarySearch(keys, 0, levelCount, key);
+    }
+
+    /**
+     * Returns level for given price. If not available than creates one.
+     *
+     * @param price price of the level
+     *
+     * @return level for given price
+     */
+    private PriceLevel getOrCreateLevel(final int price) {
+        int key = key(price);
+        int idx = indexOf(key);
+
+        if (idx >= 0) {
+            return levels[idx];
+        }
+
+        idx = -(idx + 1);
+
+        if (levelCount == keys.length) {
+            keys = Arrays.copyOf(keys, levelCount * 2);
+            levels = Arrays.copyOf(levels, levelCount * 2);
+        }
+
+        System.arraycopy(keys, idx, keys, idx + 1, levelCount - idx);
+        System.arraycopy(levels, idx, levels, idx + 1, levelCount - idx);
+
+        PriceLevel level = new PriceLevel(price);
+
+        keys[idx] = key;
+        levels[idx] = level;
+        levelCount++;
+
+        return level;
+    }
+
+    /**
+     * Removes level at given index.
+     *
+     * @param idx index of the level
+     */
+    private void removeLevel(final int idx) {
+        System.arraycopy(keys, idx + 1, keys, idx, levelCount - idx - 1);
+        System.arraycopy(levels, idx + 1, levels, idx, levelCount - idx - 1);
+
+        levels[--levelCount] = null;
+    }
+}
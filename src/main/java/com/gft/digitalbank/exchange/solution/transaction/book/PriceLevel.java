@@ -0,0 +1,190 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Preconditions;
+
+import lombok.Getter;
+
+/**
+ * Single price level of the order book. It keeps orders with the same price in FIFO queue. Orders are delivered to the engine in sequence
+ * order, so order of arrival is also time priority of the orders. Queue is intrusive doubly linked list of BookOrders, so any order can be
+ * unlinked in constant time.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class PriceLevel implements Iterable<BookOrder> {
+
+    /** Price of the level */
+    @Getter
+    private final int price;
+
+    /** First order in the queue */
+    private BookOrder head;
+
+    /** Last order in the queue */
+    private BookOrder tail;
+
+    /** Number of orders in the queue */
+    private int size;
+
+    /** Remaining amount of all orders in the queue */
+    @Getter
+    private long quantity;
+
+    /**
+     * Constructor.
+     *
+     * @param price price of the level
+     */
+    public PriceLevel(int price) {
+        this.price = price;
+    }
+
+    /**
+     * Adds order at the end of the queue.
+     *
+     * @param order added order
+     */
+    public void add(final BookOrder order) {
+        order.level = this;
+        order.prev = tail;
+        order.next = null;
+
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.next = order;
+        }
+
+        tail = order;
+        size++;
+        quantity += order.getAmount();
+    }
+
+    /**
+     * Returns first order in the queue.
+     *
+     * @return first order or null if level is empty
+     */
+    public BookOrder first() {
+        return head;
+    }
+
+    /**
+     * Removes and returns first order in the queue.
+     *
+     * @return first order or null if level is empty
+     */
+    public BookOrder pollFirst() {
+        BookOrder order = head;
+
+        if (order != null) {
+            remove(order);
+        }
+
+        return order;
+    }
+
+    /**
+     * Unlinks order from the queue.
+     *
+     * @param order removed order
+     *
+     * @return true if order was linked to this level and was removed
+     */
+    public boolean remove(final BookOrder order) {
+        if (order.level != this) {
+            return false;
+        }
+
+        if (order.prev == null) {
+            head = order.next;
+        } else {
+            order.prev.next = order.next;
+        }
+
+        if (order.next == null) {
+            tail = order.prev;
+        } else {
+            order.next.prev = order.prev;
+        }
+
+        order.level = null;
+        order.prev = null;
+        order.next = null;
+        size--;
+        quantity -= order.getAmount();
+
+        return true;
+    }
+
+    /**
+     * Subtracts filled amount from order on the level.
+     *
+     * @param order filled order linked to this level
+     * @param filledAmount filled amount
+     *
+     * @return true if order is fully filled
+     */
+    public boolean fill(final BookOrder order, final int filledAmount) {
+        Preconditions.checkArgument(order.level == this, "Order %s is not on level %s", order.getId(), price);
+
+        quantity -= filledAmount;
+
+        return order.fill(filledAmount);
+    }
+
+    /**
+     * Unlinks all orders from the queue.
+     */
+    public void clear() {
+        while (head != null) {
+            remove(head);
+        }
+    }
+
+    /**
+     * Returns number of orders on the level.
+     *
+     * @return number of orders
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if level has no orders.
+     *
+     * @return true if level is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<BookOrder> iterator() {
+        return new Iterator<BookOrder>() {
+            private BookOrder nextOrder = head;
+
+            @Override
+            public boolean hasNext() {
+                return nextOrder != null;
+            }
+
+            @Override
+            public BookOrder next() {
+                if (nextOrder == null) {
+                    throw new NoSuchElementException();
+                }
+
+                BookOrder order = nextOrder;
+
+                nextOrder = order.next;
+
+                return order;
+            }
+        };
+    }
+}
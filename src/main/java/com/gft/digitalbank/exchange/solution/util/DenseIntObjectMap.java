@@ -0,0 +1,114 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Direct address implementation of IntObjectMap for dense, non negative keys (i.e. sequential order ids). Value is stored in page
+ * identified by high bits of the key at offset identified by low bits of the key, so lookup is plain array indexing without hashing and
+ * probing. Page is allocated on first put and released when its last value is removed, so memory is proportional to range of live
+ * keys, not to the highest key ever seen.
+ *
+ * @author Arkadiusz Cieslak
+ *
+ * @param <V> type of values
+ */
+public class DenseIntObjectMap<V> implements IntObjectMap<V> {
+
+    /** Number of key bits used for offset in page */
+    private static final int PAGE_BITS = 12;
+
+    /** Number of values in page */
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /** Mask used for computing offset in page */
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /** Directory of pages */
+    private Object[][] pages = new Object[16][];
+
+    /** Number of values in every page */
+    private int[] pageCounts = new int[16];
+
+    /** Number of values */
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(int key) {
+        int p = key >>> PAGE_BITS;
+
+        if (p >= pages.length || pages[p] == null) {
+            return null;
+        }
+
+        return (V) pages[p][key & PAGE_MASK];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(int key, V value) {
+        Preconditions.checkArgument(key >= 0, "Negative key");
+        Preconditions.checkNotNull(value, "Value is null");
+
+        int p = key >>> PAGE_BITS;
+
+        if (p >= pages.length) {
+            int length = Math.max(pages.length * 2, p + 1);
+
+            pages = Arrays.copyOf(pages, length);
+            pageCounts = Arrays.copyOf(pageCounts, length);
+        }
+
+        if (pages[p] == null) {
+            pages[p] = new Object[PAGE_SIZE];
+        }
+
+        V previous = (V) pages[p][key & PAGE_MASK];
+
+        pages[p][key & PAGE_MASK] = value;
+
+        if (previous == null) {
+            pageCounts[p]++;
+            size++;
+        }
+
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(int key) {
+        int p = key >>> PAGE_BITS;
+
+        if (p >= pages.length || pages[p] == null) {
+            return null;
+        }
+
+        V removed = (V) pages[p][key & PAGE_MASK];
+
+        if (removed != null) {
+            pages[p][key & PAGE_MASK] = null;
+            size--;
+
+            if (--pageCounts[p] == 0) {
+                pages[p] = null;
+            }
+        }
+
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(pages, null);
+        Arrays.fill(pageCounts, 0);
+        size = 0;
+    }
+}
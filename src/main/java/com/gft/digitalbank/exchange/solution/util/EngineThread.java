@@ -0,0 +1,105 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Dedicated thread executing tasks one by one in order of submission. Thread drains its queue in tight loop: when queue is empty it spins,
+ * then yields and finally parks until next submission. All tasks run in the same thread, so data owned by the thread stays in cache of
+ * the core it is scheduled on.
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Log4j
+public class EngineThread extends Thread implements Executor {
+
+    /** Number of empty polls before thread starts yielding */
+    private static final int SPIN_LIMIT = 1000;
+
+    /** Number of empty polls before thread parks */
+    private static final int YIELD_LIMIT = 1100;
+
+    /** Queue of tasks to execute */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /** Flag of running thread */
+    private volatile boolean running = true;
+
+    /** Flag of thread parked on empty queue */
+    private volatile boolean parked;
+
+    /**
+     * Constructor.
+     *
+     * @param name name of the thread
+     */
+    public EngineThread(String name) {
+        super(name);
+        setDaemon(true);
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("Engine thread " + getName() + " is shut down");
+        }
+
+        tasks.offer(task);
+
+        if (parked) {
+            LockSupport.unpark(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+
+        while (running) {
+            Runnable task = tasks.poll();
+
+            if (task != null) {
+                runTask(task);
+                idle = 0;
+            } else if (++idle < SPIN_LIMIT) {
+                continue;
+            } else if (idle < YIELD_LIMIT) {
+                Thread.yield();
+            } else {
+                parked = true;
+
+                if (running && tasks.isEmpty()) {
+                    LockSupport.park(this);
+                }
+
+                parked = false;
+            }
+        }
+    }
+
+    /**
+     * Stops the thread. Tasks waiting in queue are not executed.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * Runs task, failure of single task does not stop the thread.
+     *
+     * @param task executed task
+     */
+    private void runTask(final Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Error in engine thread " + getName() + ": ", e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Open addressing implementation of IntObjectMap. Keys are stored in primitive array (no boxing), collisions are resolved by linear
+ * probing and removal shifts following entries back, so table never contains tombstones. Capacity is always power of two and table is
+ * doubled when it is half full.
+ *
+ * @author Arkadiusz Cieslak
+ *
+ * @param <V> type of values
+ */
+public class IntObjectHashMap<V> implements IntObjectMap<V> {
+
+    /** Default initial capacity */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /** Maximal capacity of the table */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /** Table of keys */
+    private int[] keys;
+
+    /** Table of values (null means free slot) */
+    private Object[] values;
+
+    /** Mask used for computing slot index */
+    private int mask;
+
+    /** Number of values */
+    private int size;
+
+    /** Size above which table is resized */
+    private int threshold;
+
+    /**
+     * Default constructor.
+     */
+    public IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize expected number of values
+     */
+    public IntObjectHashMap(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "Expected size is negative");
+
+        allocate(tableSizeFor(expectedSize * 2));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(int key, V value) {
+        Preconditions.checkNotNull(value, "Value is null");
+
+        int i = slot(key);
+
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+
+                values[i] = value;
+
+                return previous;
+            }
+        }
+
+        keys[i] = key;
+        values[i] = value;
+
+        if (++size > threshold) {
+            resize();
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V removed = (V) values[i];
+
+                shiftBack(i);
+                size--;
+
+                return removed;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Closes gap after removed entry by moving back entries from the same probe sequence.
+     *
+     * @param gap index of removed entry
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+
+        while (true) {
+            i = (i + 1) & mask;
+
+            if (values[i] == null) {
+                break;
+            }
+
+            int home = slot(keys[i]);
+
+            // entry can be moved only if its home slot is not in cyclic range (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+
+        values[gap] = null;
+    }
+
+    /**
+     * Doubles table size and rehashes all entries.
+     */
+    private void resize() {
+        Preconditions.checkState(keys.length < MAX_CAPACITY, "IntObjectHashMap is full");
+
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        allocate(keys.length * 2);
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j]);
+
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Allocates new tables.
+     *
+     * @param capacity capacity of tables (power of two)
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = capacity / 2;
+    }
+
+    /**
+     * Returns home slot of the key. Keys are mixed, so sequential ids are spread over the whole table.
+     *
+     * @param key key
+     *
+     * @return home slot of the key
+     */
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns power of two capacity not lower than given size.
+     *
+     * @param size requested size
+     *
+     * @return table capacity
+     */
+    private static int tableSizeFor(int size) {
+        if (size >= MAX_CAPACITY || size < 0) {
+            return MAX_CAPACITY;
+        }
+
+        return Math.max(2, Integer.highestOneBit(Math.max(size - 1, 1)) << 1);
+    }
+}
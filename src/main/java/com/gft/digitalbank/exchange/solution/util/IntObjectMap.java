@@ -0,0 +1,51 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+/**
+ * Map of objects identified by primitive int keys. Implementations are not thread safe.
+ *
+ * @author Arkadiusz Cieslak
+ *
+ * @param <V> type of values
+ */
+public interface IntObjectMap<V> {
+
+    /**
+     * Returns value identified by key.
+     *
+     * @param key key
+     *
+     * @return value or null if not present
+     */
+    public V get(int key);
+
+    /**
+     * Puts value identified by key.
+     *
+     * @param key key
+     * @param value value (not null)
+     *
+     * @return previous value or null if not present
+     */
+    public V put(int key, V value);
+
+    /**
+     * Removes value identified by key.
+     *
+     * @param key key
+     *
+     * @return removed value or null if not present
+     */
+    public V remove(int key);
+
+    /**
+     * Returns number of values in map.
+     *
+     * @return number of values
+     */
+    public int size();
+
+    /**
+     * Removes all values.
+     */
+    public void clear();
+}
@@ -1,12 +1,8 @@
 package com.gft.digitalbank.exchange.solution.util;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
-import com.gft.digitalbank.exchange.model.OrderDetails;
-import com.gft.digitalbank.exchange.model.Transaction;
 import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
-import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
-import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.solution.transaction.TransactionLog;
+import com.gft.digitalbank.exchange.solution.transaction.book.BookOrder;
 
 /**
  * Class contains utils methods for messages.
@@ -42,76 +38,44 @@ public final class MessageUtils {
     }
 
     /**
-     * Method tries to create transaction based on buy and sell order.
+     * Method checks if order in the book belongs to the broker.
      * 
-     * @param idGenerator transaction id generator
-     * @param buyOrder buy order
-     * @param sellOrder sell order
+     * @param order order in the book
+     * @param brokerId broker code
      * 
-     * @return new transaction or null if buy and sell orders didn't match for transaction
+     * @return true if order != null && order.brokerId != NO_SYMBOL && order.brokerId == brokerId
      */
-    public static Transaction tryCreateTransaction(AtomicInteger idGenerator, PositionOrder buyOrder, PositionOrder sellOrder) {
-        if (buyOrder == null || sellOrder == null) {
-            return null;
-        }
-
-        OrderDetails buyDetails = buyOrder.getDetails();
-        OrderDetails sellDetails = sellOrder.getDetails();
-
-        if (buyDetails == null || sellDetails == null) {
-            return null;
-        }
-
-        if (buyDetails.getPrice() < sellDetails.getPrice()) {
-            return null;
+    public static boolean sameBroker(BookOrder order, int brokerId) {
+        if (order == null || order.getBrokerId() == SymbolDictionary.NO_SYMBOL) {
+            return false;
         }
 
-        int price = buyOrder.getTimestamp() <= sellOrder.getTimestamp() ? buyDetails.getPrice() : sellDetails.getPrice();
-        int amount = Integer.min(buyDetails.getAmount(), sellDetails.getAmount());
-
-        return Transaction.builder().id(idGenerator.incrementAndGet())
-                .amount(amount).brokerBuy(buyOrder.getBroker()).brokerSell(sellOrder.getBroker()).clientBuy(buyOrder.getClient())
-                .clientSell(sellOrder.getClient()).price(price).product(buyOrder.getProduct()).build();
+        return order.getBrokerId() == brokerId;
     }
 
     /**
-     * Returns new PositionOrder based on order object with new details.
+     * Method tries to execute transaction between buy and sell order and records it in transaction log. Orders are not changed.
      * 
-     * @param order order as base for new PositionOrder object
-     * @param newDetails order new details
+     * @param log transaction log of the product
+     * @param buyOrder buy order
+     * @param sellOrder sell order
      * 
-     * @return new order object with new details
+     * @return amount of executed transaction or -1 if buy and sell orders didn't match for transaction
      */
-    public static PositionOrder modifyPositionOrderDetails(final PositionOrder order, final ModificationOrder modificationOrder) {
-        if (order == null || !MessageUtils.sameBroker(order, modificationOrder)) {
-            return null;
+    public static int tryExecuteTransaction(TransactionLog log, BookOrder buyOrder, BookOrder sellOrder) {
+        if (buyOrder == null || sellOrder == null) {
+            return -1;
         }
 
-        return PositionOrder.builder().id(order.getId()).broker(order.getBroker()).client(order.getClient()).product(order.getProduct())
-                .side(order.getSide()).timestamp(modificationOrder.getTimestamp()).details(modificationOrder.getDetails()).build();
-    }
-
-    /**
-     * Method subtracts given amount from order and returns new PositionOrder if amount > 0.
-     * 
-     * @param order order to modify
-     * @param subtractAmount amount to subtract
-     * 
-     * @return new PositionOrder (if amount after subtraction id greater than 0) or null (if amount after subtraction is 0 or less).
-     */
-    public static PositionOrder modifyPositionOrderAmount(PositionOrder order, int subtractAmount) {
-        if (order == null || order.getDetails() == null) {
-            return null;
+        if (buyOrder.getPrice() < sellOrder.getPrice()) {
+            return -1;
         }
 
-        if (order.getDetails().getAmount() <= subtractAmount) {
-            return null;
-        }
+        int price = buyOrder.getTimestamp() <= sellOrder.getTimestamp() ? buyOrder.getPrice() : sellOrder.getPrice();
+        int amount = Integer.min(buyOrder.getAmount(), sellOrder.getAmount());
 
-        return PositionOrder.builder().id(order.getId()).broker(order.getBroker()).client(order.getClient()).product(order.getProduct())
-                .side(order.getSide()).timestamp(order.getTimestamp()).details(OrderDetails.builder()
-                        .amount(order.getDetails().getAmount() - subtractAmount).price(order.getDetails().getPrice()).build())
-                .build();
+        log.append(amount, price, buyOrder, sellOrder);
 
+        return amount;
     }
 }
@@ -0,0 +1,89 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unbounded linked queue for many producers and single consumer. Producer appends node with single atomic exchange of tail, so offer
+ * never retries. Methods poll and isEmpty can be called only by the consumer.
+ *
+ * @param <E> type of elements
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class MpscQueue<E> {
+
+    /** Last node, updated by producers */
+    private final AtomicReference<Node<E>> tail;
+
+    /** Stub node preceding first element, updated by consumer */
+    private Node<E> head;
+
+    /**
+     * Constructor.
+     */
+    public MpscQueue() {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Adds element at the end of the queue.
+     *
+     * @param element added element, not null
+     */
+    public void offer(final E element) {
+        Node<E> node = new Node<>(element);
+
+        tail.getAndSet(node).next = node;
+    }
+
+    /**
+     * Removes first element of the queue. Element being just added by producer may be not visible yet.
+     *
+     * @return first element or null if queue is empty
+     */
+    public E poll() {
+        Node<E> next = head.next;
+
+        if (next == null) {
+            return null;
+        }
+
+        E element = next.element;
+
+        next.element = null;
+        head = next;
+
+        return element;
+    }
+
+    /**
+     * Checks if queue has no visible elements.
+     *
+     * @return true if queue is empty
+     */
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    /**
+     * Node of the queue.
+     */
+    private static class Node<E> {
+
+        /** Element */
+        private E element;
+
+        /** Next node */
+        private volatile Node<E> next;
+
+        /**
+         * Constructor.
+         *
+         * @param element element
+         */
+        private Node(E element) {
+            this.element = element;
+        }
+    }
+}
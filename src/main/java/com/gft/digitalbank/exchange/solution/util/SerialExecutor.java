@@ -1,55 +1,98 @@
 package com.gft.digitalbank.exchange.solution.util;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Preconditions;
 
 /**
- * Class implements Executor interface. It serializes execution of many tasks.
- * 
+ * Class implements Executor interface. It serializes execution of many tasks. Tasks are queued in lock-free queue and drained by single
+ * task submitted to wrapped executor, which runs up to batchSize tasks before it gives pool thread back. Atomic flag guarantees that at
+ * most one drain is scheduled at a time.
+ *
  * @author Arkadiusz Cieslak
  */
 public class SerialExecutor implements Executor {
+
+    /** Default number of tasks run by single drain */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
     /** Queue of task to execute */
-    private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    private final MpscQueue<Runnable> tasks = new MpscQueue<>();
 
     /** Real executor which this class wraps */
     private final Executor executor;
 
-    /** Active task */
-    private Runnable activeTask;
+    /** Maximal number of tasks run by single drain */
+    private final int batchSize;
+
+    /** Is drain scheduled or running? */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** Drain task submitted to wrapped executor */
+    private final Runnable drainTask = this::drain;
 
     /**
      * Constructor.
-     * 
+     *
      * @param executor executor which this class wraps
      */
     public SerialExecutor(Executor executor) {
+        this(executor, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param executor executor which this class wraps
+     * @param batchSize maximal number of tasks run by single drain
+     */
+    public SerialExecutor(Executor executor, int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "Batch size must be positive: %s", batchSize);
+
         this.executor = executor;
+        this.batchSize = batchSize;
     }
 
     @Override
-    public synchronized void execute(final Runnable r) {
-        tasks.offer(() -> {
+    public void execute(final Runnable r) {
+        tasks.offer(r);
+
+        schedule();
+    }
+
+    /**
+     * Submits drain to wrapped executor if it is not scheduled yet.
+     */
+    private void schedule() {
+        if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
             try {
-                r.run();
-            } finally {
-                scheduleNext();
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                throw e;
             }
-        });
-
-        if (activeTask == null) {
-            scheduleNext();
         }
     }
 
     /**
-     * Execute next task from queue.
+     * Executes batch of tasks from queue and schedules next drain if queue is not empty.
      */
-    private synchronized void scheduleNext() {
-        if ((activeTask = tasks.poll()) != null) {
-            executor.execute(activeTask);
+    private void drain() {
+        try {
+            Runnable task;
+
+            for (int i = 0; i < batchSize && (task = tasks.poll()) != null; i++) {
+                task.run();
+            }
+        } finally {
+            scheduled.set(false);
+
+            // queue is checked after flag is cleared, so task offered concurrently is scheduled either here or by its producer
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
         }
     }
-
 }
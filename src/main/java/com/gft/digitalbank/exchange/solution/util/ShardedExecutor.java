@@ -0,0 +1,64 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.concurrent.Executor;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Fixed set of engine threads. Keys (product names) are hashed onto threads, so all tasks of one key are executed serially by the same
+ * thread, which owns data of the key exclusively.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class ShardedExecutor {
+
+    /** Engine threads */
+    private final EngineThread[] shards;
+
+    /**
+     * Constructor. It starts engine threads.
+     *
+     * @param shardCount number of engine threads
+     */
+    public ShardedExecutor(int shardCount) {
+        Preconditions.checkArgument(shardCount > 0, "Number of shards must be positive: %s", shardCount);
+
+        shards = new EngineThread[shardCount];
+
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new EngineThread("engine-" + i);
+            shards[i].start();
+        }
+    }
+
+    /**
+     * Returns serial executor of the shard owning the key.
+     *
+     * @param key key, i.e. product name
+     *
+     * @return executor of the shard
+     */
+    public Executor shardFor(final String key) {
+        int h = key.hashCode();
+
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
+
+    /**
+     * Returns number of shards.
+     *
+     * @return number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Stops all engine threads.
+     */
+    public void shutdown() {
+        for (EngineThread shard : shards) {
+            shard.shutdown();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Thread-safe dictionary of symbols (broker, client and product names) encoded as dense int codes. Codes are assigned on first intern,
+ * or registered up front when they are shared with external systems, i.e. binary message format. Code 0 stands for null symbol.
+ *
+ * Reading symbol of a code is lock-free array access, interning of known symbol is single hash lookup. New symbols are added under lock.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class SymbolDictionary {
+
+    /** Code of null symbol */
+    public static final int NO_SYMBOL = 0;
+
+    /** Codes identified by symbols */
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+    /** Symbols indexed by code, reference is written after every change, so readers see complete entries */
+    private volatile String[] symbols = new String[64];
+
+    /** Next code assigned by intern (guarded by this) */
+    private int nextCode = 1;
+
+    /**
+     * Returns code of the symbol, new code is assigned if symbol is not known.
+     *
+     * @param symbol symbol
+     *
+     * @return code of the symbol, NO_SYMBOL if symbol is null
+     */
+    public int intern(final String symbol) {
+        if (symbol == null) {
+            return NO_SYMBOL;
+        }
+
+        Integer code = codes.get(symbol);
+
+        return code != null ? code : add(symbol);
+    }
+
+    /**
+     * Returns code of known symbol without adding it.
+     *
+     * @param symbol symbol
+     *
+     * @return code of the symbol, NO_SYMBOL if symbol is null or not known
+     */
+    public int code(final String symbol) {
+        Integer code = symbol != null ? codes.get(symbol) : null;
+
+        return code != null ? code : NO_SYMBOL;
+    }
+
+    /**
+     * Registers symbol with given code.
+     *
+     * @param code code of the symbol, positive
+     * @param symbol symbol
+     *
+     * @throws IllegalArgumentException if code or symbol is already registered with other value
+     */
+    public synchronized void register(final int code, final String symbol) {
+        Preconditions.checkArgument(code > NO_SYMBOL, "Code must be positive: %s", code);
+        Preconditions.checkNotNull(symbol, "Symbol is null");
+
+        Integer known = codes.get(symbol);
+        String[] s = symbols;
+
+        if (known != null || (code < s.length && s[code] != null)) {
+            Preconditions.checkArgument(known != null && known == code, "Symbol %s or code %s already registered", symbol, code);
+            return;
+        }
+
+        put(code, symbol);
+    }
+
+    /**
+     * Returns symbol of the code.
+     *
+     * @param code code of the symbol
+     *
+     * @return symbol, null for NO_SYMBOL
+     *
+     * @throws IllegalArgumentException if code is not known
+     */
+    public String symbol(final int code) {
+        if (code == NO_SYMBOL) {
+            return null;
+        }
+
+        String[] s = symbols;
+        String symbol = code > 0 && code < s.length ? s[code] : null;
+
+        Preconditions.checkArgument(symbol != null, "Unknown symbol code: %s", code);
+
+        return symbol;
+    }
+
+    /**
+     * Returns number of symbols.
+     *
+     * @return number of symbols
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * Adds symbol with the next free code.
+     *
+     * @param symbol symbol
+     *
+     * @return code of the symbol
+     */
+    private synchronized int add(final String symbol) {
+        Integer code = codes.get(symbol);
+
+        if (code != null) {
+            return code;
+        }
+
+        while (nextCode < symbols.length && symbols[nextCode] != null) {
+            nextCode++;
+        }
+
+        put(nextCode, symbol);
+
+        return nextCode++;
+    }
+
+    /**
+     * Stores symbol with code, caller holds the lock.
+     *
+     * @param code code of the symbol
+     * @param symbol symbol
+     */
+    private void put(final int code, final String symbol) {
+        String[] s = code < symbols.length ? symbols : Arrays.copyOf(symbols, Integer.highestOneBit(code) << 1);
+
+        s[code] = symbol;
+        symbols = s;
+        codes.put(symbol, code);
+    }
+}
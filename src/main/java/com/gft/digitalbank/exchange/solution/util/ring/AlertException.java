@@ -0,0 +1,21 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+/**
+ * Exception thrown to consumer waiting on alerted SequenceBarrier. Single instance without stack trace is used, as it only signals halt.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public final class AlertException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Shared instance */
+    public static final AlertException INSTANCE = new AlertException();
+
+    /**
+     * Constructor.
+     */
+    private AlertException() {
+        super("Sequence barrier alerted", null, false, false);
+    }
+}
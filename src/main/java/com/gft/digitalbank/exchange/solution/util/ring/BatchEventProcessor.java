@@ -0,0 +1,80 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j;
+
+/**
+ * Consumer of ring buffer. It waits for entries on its barrier and handles all available entries in one batch, so sequence of the
+ * consumer is published once per batch.
+ *
+ * @param <E> type of entries
+ *
+ * @author Arkadiusz Cieslak
+ */
+@Log4j
+public class BatchEventProcessor<E> implements Runnable {
+
+    /** Ring buffer */
+    private final RingBuffer<E> ringBuffer;
+
+    /** Barrier of the consumer */
+    private final SequenceBarrier barrier;
+
+    /** Handler of entries */
+    private final EventHandler<E> handler;
+
+    /** Sequence of last handled entry */
+    @Getter
+    private final Sequence sequence = new Sequence();
+
+    /** Flag of running processor */
+    private volatile boolean running = true;
+
+    /**
+     * Constructor.
+     *
+     * @param ringBuffer ring buffer
+     * @param barrier barrier of the consumer
+     * @param handler handler of entries
+     */
+    public BatchEventProcessor(final RingBuffer<E> ringBuffer, final SequenceBarrier barrier, final EventHandler<E> handler) {
+        this.ringBuffer = ringBuffer;
+        this.barrier = barrier;
+        this.handler = handler;
+    }
+
+    @Override
+    public void run() {
+        long next = sequence.get() + 1;
+
+        while (true) {
+            try {
+                long available = barrier.waitFor(next);
+
+                while (next <= available) {
+                    handler.onEvent(ringBuffer.get(next), next, next == available);
+                    next++;
+                }
+
+                sequence.set(available);
+            } catch (AlertException e) {
+                if (!running) {
+                    break;
+                }
+            } catch (RuntimeException e) {
+                log.error("Error in handling entry " + next + ": ", e);
+
+                sequence.set(next);
+                next++;
+            }
+        }
+    }
+
+    /**
+     * Stops processor after currently handled entry.
+     */
+    public void halt() {
+        running = false;
+        barrier.alert();
+    }
+}
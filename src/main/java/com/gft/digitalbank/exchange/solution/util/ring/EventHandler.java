@@ -0,0 +1,21 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+/**
+ * Handler of ring buffer entries called by BatchEventProcessor.
+ *
+ * @param <E> type of entries
+ *
+ * @author Arkadiusz Cieslak
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+
+    /**
+     * Handles entry published in ring buffer.
+     *
+     * @param event entry
+     * @param sequence sequence of the entry
+     * @param endOfBatch true if entry is the last one of available batch
+     */
+    public void onEvent(E event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,55 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wait strategy which spins, then yields and finally parks consumer for defined time. Producers never have to signal consumers, parked
+ * consumer checks the sequence again after park time.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class ParkWaitStrategy implements WaitStrategy {
+
+    /** Number of spins before yielding */
+    private final int spinTries;
+
+    /** Number of yields before parking */
+    private final int yieldTries;
+
+    /** Park time in nanoseconds */
+    private final long parkNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param spinTries number of spins before yielding
+     * @param yieldTries number of yields before parking
+     * @param parkNanos park time in nanoseconds
+     */
+    public ParkWaitStrategy(int spinTries, int yieldTries, long parkNanos) {
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public long waitFor(long sequence, SequenceBarrier barrier) {
+        long available;
+        int counter = 0;
+
+        while ((available = barrier.getDependentSequence()) < sequence) {
+            barrier.checkAlert();
+
+            if (counter < spinTries) {
+                counter++;
+            } else if (counter < spinTries + yieldTries) {
+                counter++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        }
+
+        return available;
+    }
+}
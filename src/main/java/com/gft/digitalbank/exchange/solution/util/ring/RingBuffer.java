@@ -0,0 +1,192 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Ring buffer of preallocated entries for many producers. Producer claims sequence, fills entry taken by the sequence and publishes it.
+ * Consumers read published entries through SequenceBarriers, so entries are handed over without locks and without allocation. Producer
+ * waits when it would overwrite entry not processed yet by gating consumers.
+ *
+ * @param <E> type of entries
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class RingBuffer<E> {
+
+    /** Preallocated entries */
+    private final Object[] entries;
+
+    /** Mask of entry index */
+    private final int indexMask;
+
+    /** Shift of sequence giving number of ring round */
+    private final int indexShift;
+
+    /** Round of the sequence published in every entry */
+    private final AtomicIntegerArray availableBuffer;
+
+    /** Strategy of consumer waiting */
+    private final WaitStrategy waitStrategy;
+
+    /** Highest claimed sequence */
+    private final Sequence cursor = new Sequence();
+
+    /** Cached minimal sequence of gating consumers */
+    private final Sequence gatingSequenceCache = new Sequence();
+
+    /** Sequences of last consumers, producers can not overrun them */
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    /**
+     * Constructor.
+     *
+     * @param bufferSize number of entries, power of 2
+     * @param entryFactory factory of preallocated entries
+     * @param waitStrategy strategy of consumer waiting
+     */
+    public RingBuffer(int bufferSize, Supplier<E> entryFactory, WaitStrategy waitStrategy) {
+        Preconditions.checkArgument(bufferSize > 0 && Integer.bitCount(bufferSize) == 1, "Buffer size must be power of 2: %s",
+                bufferSize);
+
+        this.entries = new Object[bufferSize];
+        this.indexMask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.availableBuffer = new AtomicIntegerArray(bufferSize);
+        this.waitStrategy = waitStrategy;
+
+        for (int i = 0; i < bufferSize; i++) {
+            entries[i] = entryFactory.get();
+            availableBuffer.set(i, -1);
+        }
+    }
+
+    /**
+     * Creates barrier for consumer.
+     *
+     * @param dependentSequences sequences of consumers which have to process entries first
+     *
+     * @return new barrier
+     */
+    public SequenceBarrier newBarrier(Sequence... dependentSequences) {
+        return new SequenceBarrier(this, waitStrategy, dependentSequences);
+    }
+
+    /**
+     * Adds sequences of consumers which can not be overrun by producers.
+     *
+     * @param sequences consumer sequences
+     */
+    public synchronized void addGatingSequences(Sequence... sequences) {
+        Sequence[] updated = Arrays.copyOf(gatingSequences, gatingSequences.length + sequences.length);
+
+        System.arraycopy(sequences, 0, updated, gatingSequences.length, sequences.length);
+
+        gatingSequences = updated;
+    }
+
+    /**
+     * Claims next sequence. Method waits while ring is full.
+     *
+     * @return claimed sequence
+     */
+    public long next() {
+        long current;
+        long next;
+
+        do {
+            current = cursor.get();
+            next = current + 1;
+
+            long wrapPoint = next - entries.length;
+            long cachedGatingSequence = gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+                long gatingSequence = Sequence.getMinimum(gatingSequences, current);
+
+                if (wrapPoint > gatingSequence) {
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+
+                gatingSequenceCache.set(gatingSequence);
+            } else if (cursor.compareAndSet(current, next)) {
+                break;
+            }
+        } while (true);
+
+        return next;
+    }
+
+    /**
+     * Returns entry of the sequence.
+     *
+     * @param sequence sequence
+     *
+     * @return entry
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & indexMask];
+    }
+
+    /**
+     * Publishes entry of claimed sequence to consumers.
+     *
+     * @param sequence claimed sequence
+     */
+    public void publish(long sequence) {
+        availableBuffer.lazySet((int) sequence & indexMask, (int) (sequence >>> indexShift));
+    }
+
+    /**
+     * Checks if entry of the sequence is published.
+     *
+     * @param sequence sequence
+     *
+     * @return true if entry is published
+     */
+    public boolean isAvailable(long sequence) {
+        return availableBuffer.get((int) sequence & indexMask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * Returns highest sequence published without gaps.
+     *
+     * @param lowerBound first checked sequence
+     * @param availableSequence highest claimed sequence
+     *
+     * @return highest published sequence, lowerBound - 1 if lowerBound is not published
+     */
+    public long getHighestPublishedSequence(long lowerBound, long availableSequence) {
+        for (long sequence = lowerBound; sequence <= availableSequence; sequence++) {
+            if (!isAvailable(sequence)) {
+                return sequence - 1;
+            }
+        }
+
+        return availableSequence;
+    }
+
+    /**
+     * Returns highest claimed sequence.
+     *
+     * @return highest claimed sequence
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Returns number of entries.
+     *
+     * @return number of entries
+     */
+    public int getBufferSize() {
+        return entries.length;
+    }
+}
@@ -0,0 +1,91 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Serial executor backed by ring buffer. Tasks are executed one by one in order of submission by single dedicated thread, they are handed
+ * over in preallocated entries, so submission takes no lock and allocates no queue node.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class RingExecutor implements Executor {
+
+    /** Ring buffer of tasks */
+    private final RingBuffer<TaskEvent> ringBuffer;
+
+    /** Consumer executing tasks */
+    private final BatchEventProcessor<TaskEvent> processor;
+
+    /** Thread of the consumer */
+    private final Thread thread;
+
+    /** Flag of running executor */
+    private volatile boolean running = true;
+
+    /**
+     * Constructor.
+     *
+     * @param name name of executor thread
+     * @param bufferSize size of ring buffer, power of 2
+     * @param waitStrategy strategy of waiting for tasks
+     */
+    public RingExecutor(String name, int bufferSize, WaitStrategy waitStrategy) {
+        ringBuffer = new RingBuffer<>(bufferSize, TaskEvent::new, waitStrategy);
+        processor = new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), RingExecutor::runTask);
+        ringBuffer.addGatingSequences(processor.getSequence());
+
+        thread = new Thread(processor, name);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts executor thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("Executor " + thread.getName() + " is shut down");
+        }
+
+        long sequence = ringBuffer.next();
+
+        ringBuffer.get(sequence).task = task;
+        ringBuffer.publish(sequence);
+    }
+
+    /**
+     * Stops executor thread. Tasks waiting in ring are not executed.
+     */
+    public void shutdown() {
+        running = false;
+        processor.halt();
+    }
+
+    /**
+     * Runs task from the entry and releases reference to it.
+     *
+     * @param event entry
+     * @param sequence sequence of the entry
+     * @param endOfBatch true if entry is the last one of available batch
+     */
+    private static void runTask(TaskEvent event, long sequence, boolean endOfBatch) {
+        Runnable task = event.task;
+
+        event.task = null;
+        task.run();
+    }
+
+    /**
+     * Entry of ring buffer holding task.
+     */
+    private static class TaskEvent {
+
+        /** Submitted task */
+        private Runnable task;
+    }
+}
@@ -0,0 +1,88 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sequence number of ring buffer cursor or consumer. Value is kept in the middle of array padded by unused values, so two sequences
+ * updated by different threads never share cache line.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class Sequence {
+
+    /** Initial value of the sequence, before first entry */
+    public static final long INITIAL_VALUE = -1L;
+
+    /** Index of the value in padded array */
+    private static final int VALUE_INDEX = 7;
+
+    /** Padded array holding the value */
+    private final AtomicLongArray paddedValue = new AtomicLongArray(15);
+
+    /**
+     * Constructor.
+     *
+     * @param initialValue initial value of the sequence
+     */
+    public Sequence(long initialValue) {
+        paddedValue.lazySet(VALUE_INDEX, initialValue);
+    }
+
+    /**
+     * Constructor, sequence starts at INITIAL_VALUE.
+     */
+    public Sequence() {
+        this(INITIAL_VALUE);
+    }
+
+    /**
+     * Returns current value.
+     *
+     * @return value of the sequence
+     */
+    public long get() {
+        return paddedValue.get(VALUE_INDEX);
+    }
+
+    /**
+     * Sets value with ordered store, which is enough to publish values written before by the same thread.
+     *
+     * @param value new value
+     */
+    public void set(long value) {
+        paddedValue.lazySet(VALUE_INDEX, value);
+    }
+
+    /**
+     * Sets value atomically if current value is equal to expected one.
+     *
+     * @param expected expected value
+     * @param value new value
+     *
+     * @return true if value was set
+     */
+    public boolean compareAndSet(long expected, long value) {
+        return paddedValue.compareAndSet(VALUE_INDEX, expected, value);
+    }
+
+    /**
+     * Returns minimal value of sequences.
+     *
+     * @param sequences sequences
+     * @param minimum value returned when there are no sequences
+     *
+     * @return minimal value
+     */
+    public static long getMinimum(final Sequence[] sequences, long minimum) {
+        for (Sequence s : sequences) {
+            minimum = Math.min(minimum, s.get());
+        }
+
+        return minimum;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
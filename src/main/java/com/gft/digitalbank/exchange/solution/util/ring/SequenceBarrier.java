@@ -0,0 +1,96 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+/**
+ * Barrier of ring buffer consumer. Consumer can process entries published in the ring and already processed by all consumers it depends
+ * on.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class SequenceBarrier {
+
+    /** Ring buffer */
+    private final RingBuffer<?> ringBuffer;
+
+    /** Strategy of waiting for entries */
+    private final WaitStrategy waitStrategy;
+
+    /** Sequences of consumers which have to process entry first */
+    private final Sequence[] dependentSequences;
+
+    /** Flag of alerted barrier */
+    private volatile boolean alerted;
+
+    /**
+     * Constructor.
+     *
+     * @param ringBuffer ring buffer
+     * @param waitStrategy strategy of waiting for entries
+     * @param dependentSequences sequences of consumers which have to process entry first
+     */
+    SequenceBarrier(final RingBuffer<?> ringBuffer, final WaitStrategy waitStrategy, final Sequence[] dependentSequences) {
+        this.ringBuffer = ringBuffer;
+        this.waitStrategy = waitStrategy;
+        this.dependentSequences = dependentSequences;
+    }
+
+    /**
+     * Waits until given sequence is available.
+     *
+     * @param sequence awaited sequence
+     *
+     * @return highest available sequence, it can be lower than awaited one if entries are still being published
+     *
+     * @throws AlertException if barrier was alerted
+     */
+    public long waitFor(long sequence) {
+        checkAlert();
+
+        long available = waitStrategy.waitFor(sequence, this);
+
+        if (dependentSequences.length > 0) {
+            return available;
+        }
+
+        return ringBuffer.getHighestPublishedSequence(sequence, available);
+    }
+
+    /**
+     * Returns sequence the consumer depends on: cursor of the ring or minimal sequence of preceding consumers.
+     *
+     * @return sequence the consumer depends on
+     */
+    public long getDependentSequence() {
+        if (dependentSequences.length == 0) {
+            return ringBuffer.getCursor();
+        }
+
+        return Sequence.getMinimum(dependentSequences, Long.MAX_VALUE);
+    }
+
+    /**
+     * Alerts consumer waiting on the barrier.
+     */
+    public void alert() {
+        alerted = true;
+    }
+
+    /**
+     * Checks if barrier was alerted.
+     *
+     * @return true if barrier was alerted
+     */
+    public boolean isAlerted() {
+        return alerted;
+    }
+
+    /**
+     * Throws AlertException if barrier was alerted.
+     *
+     * @throws AlertException if barrier was alerted
+     */
+    public void checkAlert() {
+        if (alerted) {
+            throw AlertException.INSTANCE;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+/**
+ * Strategy of consumer waiting for entries of ring buffer. Strategies trade CPU usage for latency.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public interface WaitStrategy {
+
+    /**
+     * Waits until given sequence is available for the consumer.
+     *
+     * @param sequence awaited sequence
+     * @param barrier barrier of the consumer
+     *
+     * @return highest sequence available for the consumer, it can be greater than awaited one
+     *
+     * @throws AlertException if barrier was alerted while waiting
+     */
+    public long waitFor(long sequence, SequenceBarrier barrier);
+
+    /**
+     * Busy spin strategy, lowest latency, but it occupies whole core.
+     */
+    public static final WaitStrategy BUSY_SPIN = (sequence, barrier) -> {
+        long available;
+
+        while ((available = barrier.getDependentSequence()) < sequence) {
+            barrier.checkAlert();
+        }
+
+        return available;
+    };
+
+    /**
+     * Strategy which spins for a while and then yields the core to other threads.
+     */
+    public static final WaitStrategy YIELD = (sequence, barrier) -> {
+        long available;
+        int counter = 100;
+
+        while ((available = barrier.getDependentSequence()) < sequence) {
+            barrier.checkAlert();
+
+            if (counter > 0) {
+                counter--;
+            } else {
+                Thread.yield();
+            }
+        }
+
+        return available;
+    };
+
+    /**
+     * Strategy which spins, yields and finally parks consumer for short time, lowest CPU usage at cost of latency.
+     */
+    public static final WaitStrategy PARK = new ParkWaitStrategy(100, 100, 1000);
+}
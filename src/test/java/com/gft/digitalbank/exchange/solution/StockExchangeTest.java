@@ -1,5 +1,6 @@
 package com.gft.digitalbank.exchange.solution;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -13,13 +14,27 @@ import javax.jms.Session;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import com.gft.digitalbank.exchange.listener.ProcessingListener;
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.SolutionResult;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.message.BatchConsumption;
+import com.gft.digitalbank.exchange.solution.journal.MessageJournal;
+import com.gft.digitalbank.exchange.solution.journal.SyncPolicy;
+import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+import com.gft.digitalbank.exchange.solution.transaction.GapPolicy;
+import com.gft.digitalbank.exchange.solution.transaction.MessageOrderAssuranceBuffer;
 
 /**
  * Unit tests for class StockExchange.
@@ -28,6 +43,9 @@ import com.gft.digitalbank.exchange.listener.ProcessingListener;
  */
 public class StockExchangeTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private StockExchange stockExchange;
 
     private ExecutorService executor = Executors.newCachedThreadPool();
@@ -81,4 +99,59 @@ public class StockExchangeTest {
         Mockito.verify(processingListener).processingDone(Matchers.any());
     }
 
+    @Test
+    public void testGapChecker() throws Exception {
+        StockExchange exchange = new StockExchange();
+
+        exchange.register(processingListener);
+        exchange.setConnectionFactory(connectionFactory);
+        exchange.setDestinations(Arrays.asList("d1"));
+        exchange.setExecutor(Executors.newCachedThreadPool());
+        exchange.setGapPolicy(GapPolicy.SKIP, 20);
+        exchange.start();
+
+        MessageOrderAssuranceBuffer buffer = exchange.getOrderAssuranceBuffer();
+
+        buffer.onBrokerMessage(PositionOrder.builder().id(2).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(2)
+                .details(OrderDetails.builder().amount(1).price(1).build()).build());
+
+        for (int i = 0; i < 500 && buffer.getExpectedOrderId() != 3; i++) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(buffer.getExpectedOrderId(), 3);
+        Assert.assertEquals(buffer.getSkippedMessages(), 1);
+
+        exchange.update(null, null);
+    }
+
+    @Test
+    public void testCompletedJournal() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        MessageJournal journal = new MessageJournal(Mockito.mock(BrokerMessageListener.class), directory, MessageJournal.MIN_SEGMENT_SIZE,
+                SyncPolicy.NONE);
+
+        journal.onBrokerMessage(PositionOrder.builder().id(1).broker("d1").client("c1").product("p1").side(Side.BUY).timestamp(1)
+                .details(OrderDetails.builder().amount(1).price(1).build()).build());
+        journal.onBrokerMessage(ShutdownNotification.builder().id(2).broker("d1").timestamp(2).build());
+        journal.close();
+
+        StockExchange exchange = new StockExchange();
+
+        Mockito.when(connection.createSession(false, Session.CLIENT_ACKNOWLEDGE)).thenReturn(session);
+
+        exchange.register(processingListener);
+        exchange.setConnectionFactory(connectionFactory);
+        exchange.setDestinations(Arrays.asList("d1"));
+        exchange.setExecutor(Executors.newCachedThreadPool());
+        exchange.setBatchConsumption(new BatchConsumption(Session.CLIENT_ACKNOWLEDGE, 4, 0));
+        exchange.setJournal(directory, SyncPolicy.NONE);
+        exchange.start();
+
+        ArgumentCaptor<SolutionResult> result = ArgumentCaptor.forClass(SolutionResult.class);
+
+        Mockito.verify(processingListener, Mockito.timeout(5000)).processingDone(result.capture());
+        Assert.assertEquals(result.getValue().getOrderBooks().size(), 1);
+    }
+
 }
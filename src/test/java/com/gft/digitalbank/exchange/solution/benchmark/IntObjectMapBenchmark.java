@@ -0,0 +1,125 @@
+package com.gft.digitalbank.exchange.solution.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gft.digitalbank.exchange.solution.util.DenseIntObjectMap;
+import com.gft.digitalbank.exchange.solution.util.IntObjectHashMap;
+import com.gft.digitalbank.exchange.solution.util.IntObjectMap;
+
+/**
+ * Benchmark of order index implementations. Map holds window of live orders with sequential ids; every operation adds new order,
+ * looks up one of live orders (as cancellation does) and removes the oldest one, so number of live orders stays constant.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark=IntObjectMapBenchmark
+ *
+ * @author Arkadiusz Cieslak
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class IntObjectMapBenchmark {
+
+    /** Number of live orders */
+    @Param({ "1000000", "10000000" })
+    private int liveOrders;
+
+    /** Tested implementation */
+    @Param({ "HashMap", "IntObjectHashMap", "DenseIntObjectMap" })
+    private String implementation;
+
+    private IntObjectMap<Object> map;
+
+    private final Object order = new Object();
+
+    private int oldestId;
+
+    private int nextId;
+
+    private int lookupSeed = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = createMap();
+
+        for (nextId = 1; nextId <= liveOrders; nextId++) {
+            map.put(nextId, order);
+        }
+
+        oldestId = 1;
+    }
+
+    @Benchmark
+    public Object addLookupRemove() {
+        map.put(nextId++, order);
+
+        lookupSeed = lookupSeed * 1103515245 + 12345;
+
+        Object found = map.get(oldestId + ((lookupSeed >>> 1) % liveOrders));
+
+        map.remove(oldestId++);
+
+        return found;
+    }
+
+    private IntObjectMap<Object> createMap() {
+        switch (implementation) {
+        case "IntObjectHashMap":
+            return new IntObjectHashMap<>(liveOrders);
+        case "DenseIntObjectMap":
+            return new DenseIntObjectMap<>();
+        default:
+            return new BoxedMap<>();
+        }
+    }
+
+    /**
+     * Adapter of java.util.HashMap used before as order index.
+     */
+    private static class BoxedMap<V> implements IntObjectMap<V> {
+
+        private final Map<Integer, V> map = new HashMap<>();
+
+        @Override
+        public V get(int key) {
+            return map.get(key);
+        }
+
+        @Override
+        public V put(int key, V value) {
+            return map.put(key, value);
+        }
+
+        @Override
+        public V remove(int key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.gft.digitalbank.exchange.solution.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.message.codec.JsonMessageDecoder;
+import com.gft.digitalbank.exchange.solution.message.codec.MessageFields;
+import com.google.gson.Gson;
+
+/**
+ * Benchmark of decoding PositionOrder from JSON with reflective binding, streaming decoder and streaming decoder in flyweight mode.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark=JsonDecoderBenchmark
+ *
+ * @author Arkadiusz Cieslak
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonDecoderBenchmark {
+
+    private final Gson gson = new Gson();
+
+    private final JsonMessageDecoder decoder = new JsonMessageDecoder();
+
+    private final MessageFields fields = new MessageFields();
+
+    private final String json = gson.toJson(PositionOrder.builder().id(123456).broker("broker-1").client("client-42").product("SCL")
+            .side(Side.BUY).timestamp(1466000000123L).details(OrderDetails.builder().amount(250).price(10150).build()).build());
+
+    @Benchmark
+    public PositionOrder gson() {
+        return gson.fromJson(json, PositionOrder.class);
+    }
+
+    @Benchmark
+    public PositionOrder decoder() {
+        return decoder.decode(json, PositionOrder.class);
+    }
+
+    @Benchmark
+    public MessageFields flyweight() {
+        return decoder.decode(json, fields);
+    }
+}
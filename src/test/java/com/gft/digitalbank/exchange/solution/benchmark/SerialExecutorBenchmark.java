@@ -0,0 +1,138 @@
+package com.gft.digitalbank.exchange.solution.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gft.digitalbank.exchange.solution.util.SerialExecutor;
+
+/**
+ * Benchmark of serial executors. Producers submit tasks concurrently to one serial executor wrapping fixed pool, every invocation waits
+ * until all submitted tasks are executed.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark=SerialExecutorBenchmark
+ *
+ * @author Arkadiusz Cieslak
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SerialExecutorBenchmark {
+
+    /** Number of tasks submitted in every invocation */
+    private static final int TASKS = 1 << 16;
+
+    /** Number of producer threads */
+    @Param({ "1", "4", "16" })
+    private int producers;
+
+    /** Tested implementation */
+    @Param({ "SerialExecutor", "SynchronizedSerialExecutor" })
+    private String implementation;
+
+    private ExecutorService pool;
+
+    private ExecutorService producerPool;
+
+    private Executor executor;
+
+    private final AtomicReference<CountDownLatch> doneSignal = new AtomicReference<>();
+
+    private final Runnable task = () -> doneSignal.get().countDown();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        producerPool = Executors.newFixedThreadPool(producers);
+        executor = "SerialExecutor".equals(implementation) ? new SerialExecutor(pool) : new SynchronizedSerialExecutor(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+        producerPool.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void submit() throws InterruptedException {
+        CountDownLatch submitted = new CountDownLatch(producers);
+        CountDownLatch executed = new CountDownLatch(TASKS);
+        int tasksPerProducer = TASKS / producers;
+
+        doneSignal.set(executed);
+
+        for (int p = 0; p < producers; p++) {
+            producerPool.execute(() -> {
+                for (int i = 0; i < tasksPerProducer; i++) {
+                    executor.execute(task);
+                }
+
+                submitted.countDown();
+            });
+        }
+
+        submitted.await();
+        executed.await();
+    }
+
+    /**
+     * Previous implementation of SerialExecutor, guarded by monitor and resubmitting after every task.
+     */
+    private static class SynchronizedSerialExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        private final Executor executor;
+
+        private Runnable activeTask;
+
+        private SynchronizedSerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(final Runnable r) {
+            tasks.offer(() -> {
+                try {
+                    r.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+
+            if (activeTask == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            if ((activeTask = tasks.poll()) != null) {
+                executor.execute(activeTask);
+            }
+        }
+    }
+}
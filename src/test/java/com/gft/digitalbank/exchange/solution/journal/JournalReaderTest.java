@@ -0,0 +1,274 @@
+package com.gft.digitalbank.exchange.solution.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.Transaction;
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.SimpleExecutor;
+import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+import com.gft.digitalbank.exchange.solution.transaction.TransactionEngine;
+
+/**
+ * Unit tests for class JournalReader.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class JournalReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplayMessageTypes() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<BrokerMessage> messages = Arrays.asList(
+                order(1, "b1", Side.SELL, 10, 5),
+                CancellationOrder.builder().id(2).broker("b1").cancelledOrderId(1).timestamp(2).build(),
+                ModificationOrder.builder().id(3).broker("b2").modifiedOrderId(1).timestamp(3)
+                        .details(OrderDetails.builder().amount(20).price(7).build()).build(),
+                ShutdownNotification.builder().id(4).broker("b1").timestamp(4).build());
+
+        journal(directory, messages);
+
+        List<BrokerMessage> replayed = new ArrayList<>();
+        JournalReader reader = new JournalReader(directory);
+
+        reader.replay(new RecordingListener(replayed));
+
+        Assert.assertEquals(replayed, messages.subList(0, 3));
+        Assert.assertEquals(reader.getReplayedMessages(), 3);
+        Assert.assertEquals(reader.getLastMessageId(), 3);
+        Assert.assertEquals(new ArrayList<>(reader.getShutdownNotifications()), messages.subList(3, 4));
+    }
+
+    @Test
+    public void testReplayBatches() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        PositionOrder order1 = order(1, "b1", Side.BUY, 1, 1);
+        PositionOrder order2 = order(2, "b1", Side.BUY, 1, 1);
+        PositionOrder order3 = order(3, "b1", Side.BUY, 1, 1);
+        ShutdownNotification shutdown = ShutdownNotification.builder().id(4).broker("b1").timestamp(4).build();
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+
+        journal(directory, Arrays.asList(order1, order2, order3, shutdown));
+
+        new JournalReader(directory, 2).replay(listener);
+
+        InOrder inOrder = Mockito.inOrder(listener);
+
+        inOrder.verify(listener).onBatchStart();
+        inOrder.verify(listener).onBrokerMessage(order1);
+        inOrder.verify(listener).onBrokerMessage(order2);
+        inOrder.verify(listener).onBatchEnd();
+        inOrder.verify(listener).onBatchStart();
+        inOrder.verify(listener).onBrokerMessage(order3);
+        inOrder.verify(listener).onBatchEnd();
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testShutdownNotReplayed() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        TransactionEngine engine = new TransactionEngine(new SimpleExecutor(), Arrays.asList("b1", "b2"));
+        ShutdownNotification shutdown1 = ShutdownNotification.builder().id(2).broker("b1").timestamp(2).build();
+        ShutdownNotification shutdown2 = ShutdownNotification.builder().id(3).broker("b2").timestamp(3).build();
+        ShutdownNotification again = ShutdownNotification.builder().id(2).broker("b1").timestamp(4).build();
+
+        journal(directory, Arrays.asList(order(1, "b1", Side.BUY, 1, 1), shutdown1, shutdown2, again));
+
+        JournalReader reader = new JournalReader(directory);
+        List<Object> finished = new ArrayList<>();
+
+        engine.addObserver((o, arg) -> finished.add(arg));
+        reader.replay(engine);
+
+        Assert.assertTrue(finished.isEmpty());
+        Assert.assertEquals(new ArrayList<>(reader.getShutdownNotifications()), Arrays.asList(shutdown2, again));
+        Assert.assertEquals(engine.getOrderBookSnapshots().join().size(), 1);
+    }
+
+    @Test
+    public void testRebuildTransactionEngine() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        TransactionEngine engine = new TransactionEngine(new SimpleExecutor(), Arrays.asList("d1"));
+        MessageJournal journal = new MessageJournal(engine, directory, MessageJournal.MIN_SEGMENT_SIZE, SyncPolicy.BATCH);
+
+        journal.onBatchStart();
+        journal.onBrokerMessage(order(1, "b1", Side.SELL, 10, 100));
+        journal.onBrokerMessage(order(2, "b2", Side.SELL, 5, 101));
+        journal.onBrokerMessage(order(3, "b3", Side.BUY, 12, 101));
+        journal.onBrokerMessage(ModificationOrder.builder().id(4).broker("b2").modifiedOrderId(2).timestamp(4)
+                .details(OrderDetails.builder().amount(4).price(102).build()).build());
+        journal.onBatchEnd();
+        journal.onBrokerMessage(order(5, "b1", Side.BUY, 3, 99));
+        journal.close();
+
+        TransactionEngine rebuilt = new TransactionEngine(new SimpleExecutor(), Arrays.asList("d1"));
+
+        new JournalReader(directory).replay(rebuilt);
+
+        List<Transaction> transactions = new ArrayList<>(rebuilt.createTransactions());
+
+        Assert.assertEquals(transactions, new ArrayList<>(engine.createTransactions()));
+        Assert.assertEquals(transactions.size(), 2);
+        Assert.assertEquals(rebuilt.getOrderBookSnapshot("p1").join(), engine.getOrderBookSnapshot("p1").join());
+    }
+
+    @Test
+    public void testRecordNotCompleted() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        journal(directory, Arrays.asList(order(1, "b1", Side.BUY, 1, 1), order(2, "b1", Side.BUY, 1, 1)));
+
+        Path segment = MessageJournal.listSegments(directory).get(0);
+        int lastRecord = 3 * MessageJournal.SYMBOL_HEADER_LENGTH + "b1".length() + "c1".length() + "p1".length()
+                + MessageJournal.MESSAGE_RECORD_LENGTH;
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { MessageJournal.END_RECORD }), lastRecord);
+        }
+
+        List<BrokerMessage> replayed = new ArrayList<>();
+        JournalReader reader = new JournalReader(directory);
+
+        reader.replay(new RecordingListener(replayed));
+
+        Assert.assertEquals(replayed, Arrays.asList(order(1, "b1", Side.BUY, 1, 1)));
+        Assert.assertEquals(reader.getLastMessageId(), 1);
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        journal(directory, Arrays.asList(order(1, "b1", Side.BUY, 1, 1), order(2, "b1", Side.BUY, 1, 1)));
+
+        Path segment = MessageJournal.listSegments(directory).get(0);
+        int lastRecord = 3 * MessageJournal.SYMBOL_HEADER_LENGTH + "b1".length() + "c1".length() + "p1".length()
+                + MessageJournal.MESSAGE_RECORD_LENGTH;
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0x7F, 0x7F, 0x7F, 0x7F }), lastRecord + MessageJournal.RECORD_HEADER_LENGTH);
+        }
+
+        journal(directory, Arrays.asList(order(3, "b2", Side.BUY, 1, 1)));
+
+        List<BrokerMessage> replayed = new ArrayList<>();
+        JournalReader reader = new JournalReader(directory);
+
+        reader.replay(new RecordingListener(replayed));
+
+        Assert.assertEquals(replayed, Arrays.asList(order(1, "b1", Side.BUY, 1, 1), order(3, "b2", Side.BUY, 1, 1)));
+        Assert.assertEquals(reader.getLastMessageId(), 3);
+    }
+
+    @Test
+    public void testGarbageAfterRecords() throws IOException {
+        Path directory = folder.getRoot().toPath();
+
+        journal(directory, Arrays.asList(order(1, "b1", Side.BUY, 1, 1)));
+
+        Path segment = MessageJournal.listSegments(directory).get(0);
+        int end = 3 * MessageJournal.SYMBOL_HEADER_LENGTH + "b1".length() + "c1".length() + "p1".length()
+                + MessageJournal.MESSAGE_RECORD_LENGTH;
+
+        byte[] garbage = new byte[MessageJournal.MESSAGE_RECORD_LENGTH];
+
+        Arrays.fill(garbage, (byte) 1);
+        garbage[0] = MessageJournal.MESSAGE_RECORD;
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(garbage), end);
+        }
+
+        List<BrokerMessage> replayed = new ArrayList<>();
+
+        new JournalReader(directory).replay(new RecordingListener(replayed));
+
+        Assert.assertEquals(replayed, Arrays.asList(order(1, "b1", Side.BUY, 1, 1)));
+    }
+
+    @Test
+    public void testMissingDirectory() throws IOException {
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+
+        Assert.assertEquals(new JournalReader(folder.getRoot().toPath().resolve("missing")).replay(listener), 0);
+        Mockito.verifyZeroInteractions(listener);
+    }
+
+    private static void journal(Path directory, List<BrokerMessage> messages) throws IOException {
+        MessageJournal journal = new MessageJournal(Mockito.mock(BrokerMessageListener.class), directory, MessageJournal.MIN_SEGMENT_SIZE,
+                SyncPolicy.NONE);
+
+        for (BrokerMessage message : messages) {
+            if (message instanceof PositionOrder) {
+                journal.onBrokerMessage((PositionOrder) message);
+            } else if (message instanceof CancellationOrder) {
+                journal.onBrokerMessage((CancellationOrder) message);
+            } else if (message instanceof ModificationOrder) {
+                journal.onBrokerMessage((ModificationOrder) message);
+            } else {
+                journal.onBrokerMessage((ShutdownNotification) message);
+            }
+        }
+
+        journal.close();
+    }
+
+    private static PositionOrder order(int id, String broker, Side side, int amount, int price) {
+        return PositionOrder.builder().id(id).broker(broker).client("c1").product("p1").side(side).timestamp(id)
+                .details(OrderDetails.builder().amount(amount).price(price).build()).build();
+    }
+
+    /**
+     * Listener recording received messages.
+     */
+    private static class RecordingListener implements BrokerMessageListener {
+
+        private final List<BrokerMessage> messages;
+
+        private RecordingListener(List<BrokerMessage> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void onBrokerMessage(PositionOrder message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void onBrokerMessage(CancellationOrder message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void onBrokerMessage(ModificationOrder message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void onBrokerMessage(ShutdownNotification message) {
+            messages.add(message);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.gft.digitalbank.exchange.solution.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+
+/**
+ * Unit tests for class MessageJournal.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class MessageJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testForwardMessages() throws IOException {
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageJournal journal = new MessageJournal(listener, folder.getRoot().toPath(), MessageJournal.MIN_SEGMENT_SIZE,
+                SyncPolicy.BATCH);
+        PositionOrder order = order(1, "b1", "p1");
+        CancellationOrder cancel = CancellationOrder.builder().id(2).broker("b1").cancelledOrderId(1).timestamp(2).build();
+        ShutdownNotification shutdown = ShutdownNotification.builder().id(3).broker("b1").timestamp(3).build();
+
+        journal.onBatchStart();
+        journal.onBrokerMessage(order);
+        journal.onBrokerMessage(cancel);
+        journal.onBatchEnd();
+        journal.onBrokerMessage(shutdown);
+        journal.close();
+
+        InOrder inOrder = Mockito.inOrder(listener);
+
+        inOrder.verify(listener).onBatchStart();
+        inOrder.verify(listener).onBrokerMessage(order);
+        inOrder.verify(listener).onBrokerMessage(cancel);
+        inOrder.verify(listener).onBatchEnd();
+        inOrder.verify(listener).onBrokerMessage(shutdown);
+        Assert.assertEquals(journal.getAppendedMessages(), 3);
+        Assert.assertEquals(MessageJournal.listSegments(folder.getRoot().toPath()).size(), 1);
+    }
+
+    @Test
+    public void testSegmentRolling() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        MessageJournal journal = new MessageJournal(Mockito.mock(BrokerMessageListener.class), directory, MessageJournal.MIN_SEGMENT_SIZE,
+                SyncPolicy.NONE);
+        int count = 2 * MessageJournal.MIN_SEGMENT_SIZE / MessageJournal.MESSAGE_RECORD_LENGTH;
+
+        for (int i = 1; i <= count; i++) {
+            journal.onBrokerMessage(order(i, "b" + i % 3, "p" + i % 5));
+        }
+
+        journal.close();
+
+        List<BrokerMessage> replayed = replay(directory);
+
+        Assert.assertEquals(MessageJournal.listSegments(directory).size(), 3);
+        Assert.assertEquals(replayed.size(), count);
+
+        for (int i = 1; i <= count; i++) {
+            Assert.assertEquals(replayed.get(i - 1), order(i, "b" + i % 3, "p" + i % 5));
+        }
+    }
+
+    @Test
+    public void testContinueExistingJournal() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        MessageJournal journal = new MessageJournal(Mockito.mock(BrokerMessageListener.class), directory, MessageJournal.MIN_SEGMENT_SIZE,
+                SyncPolicy.MESSAGE);
+
+        journal.onBrokerMessage(order(1, "b1", "p1"));
+        journal.close();
+
+        journal = new MessageJournal(Mockito.mock(BrokerMessageListener.class), directory, MessageJournal.MIN_SEGMENT_SIZE,
+                SyncPolicy.MESSAGE);
+
+        ModificationOrder modification = ModificationOrder.builder().id(2).broker("b2").modifiedOrderId(1).timestamp(2)
+                .details(OrderDetails.builder().amount(3).price(4).build()).build();
+
+        journal.onBrokerMessage(modification);
+        journal.close();
+
+        List<BrokerMessage> replayed = replay(directory);
+
+        Assert.assertEquals(MessageJournal.listSegments(directory).size(), 2);
+        Assert.assertEquals(replayed.size(), 2);
+        Assert.assertEquals(replayed.get(0), order(1, "b1", "p1"));
+        Assert.assertEquals(replayed.get(1), modification);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAppendAfterClose() throws IOException {
+        MessageJournal journal = new MessageJournal(Mockito.mock(BrokerMessageListener.class), folder.getRoot().toPath(),
+                MessageJournal.MIN_SEGMENT_SIZE, SyncPolicy.NONE);
+
+        journal.close();
+        journal.onBrokerMessage(order(1, "b1", "p1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSegmentSize() throws IOException {
+        new MessageJournal(Mockito.mock(BrokerMessageListener.class), folder.getRoot().toPath(), MessageJournal.MIN_SEGMENT_SIZE - 1,
+                SyncPolicy.NONE);
+    }
+
+    private static List<BrokerMessage> replay(Path directory) throws IOException {
+        List<BrokerMessage> messages = new ArrayList<>();
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+
+        Mockito.doAnswer(invocation -> messages.add((BrokerMessage) invocation.getArguments()[0])).when(listener)
+                .onBrokerMessage(Mockito.any(PositionOrder.class));
+        Mockito.doAnswer(invocation -> messages.add((BrokerMessage) invocation.getArguments()[0])).when(listener)
+                .onBrokerMessage(Mockito.any(ModificationOrder.class));
+
+        new JournalReader(directory).replay(listener);
+
+        return messages;
+    }
+
+    private static PositionOrder order(int id, String broker, String product) {
+        return PositionOrder.builder().id(id).broker(broker).client("c1").product(product).side(Side.BUY).timestamp(id)
+                .details(OrderDetails.builder().amount(id).price(id % 100).build()).build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.gft.digitalbank.exchange.solution.message;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
+
+/**
+ * Unit tests for class AcknowledgeTracker.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class AcknowledgeTrackerTest {
+
+    private final AtomicInteger journalProgress = new AtomicInteger();
+
+    private AcknowledgeTracker tracker;
+
+    @Mock
+    private BrokerMessageListener listener;
+
+    @Mock
+    private Message last;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        tracker = new AcknowledgeTracker(listener, journalProgress::get);
+    }
+
+    @Test
+    public void testAcknowledgeJournaled() throws JMSException {
+        PositionOrder order = order(2);
+        CancellationOrder cancel = CancellationOrder.builder().id(1).broker("b1").cancelledOrderId(2).timestamp(1).build();
+
+        tracker.onReceived(last, 2);
+        tracker.onBrokerMessage(order);
+        tracker.acknowledge(0);
+
+        Mockito.verify(listener).onBrokerMessage(order);
+        Mockito.verify(last, Mockito.never()).acknowledge();
+
+        tracker.onBrokerMessage(cancel);
+        journalProgress.set(1);
+        tracker.acknowledge(0);
+
+        Mockito.verify(listener).onBrokerMessage(cancel);
+        Mockito.verify(last, Mockito.never()).acknowledge();
+
+        journalProgress.set(2);
+        tracker.acknowledge(0);
+        tracker.acknowledge(0);
+
+        Mockito.verify(last).acknowledge();
+    }
+
+    @Test
+    public void testWaitForJournal() throws Exception {
+        tracker.onReceived(last, 1);
+        tracker.onBrokerMessage(order(1));
+
+        Thread journal = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+            }
+
+            journalProgress.set(1);
+        });
+
+        journal.start();
+        tracker.acknowledge(5000);
+
+        Mockito.verify(last).acknowledge();
+        journal.join();
+    }
+
+    @Test
+    public void testAcknowledgeAll() throws JMSException {
+        ShutdownNotification shutdown = ShutdownNotification.builder().id(3).broker("b1").timestamp(3).build();
+
+        tracker.onReceived(last, 1);
+        tracker.onBrokerMessage(shutdown);
+        tracker.acknowledge(0);
+
+        Mockito.verify(listener).onBrokerMessage(shutdown);
+        Mockito.verify(last, Mockito.never()).acknowledge();
+
+        tracker.acknowledgeAll();
+
+        Mockito.verify(last).acknowledge();
+    }
+
+    private static PositionOrder order(int id) {
+        return PositionOrder.builder().id(id).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(id)
+                .details(OrderDetails.builder().amount(1).price(1).build()).build();
+    }
+}
@@ -1,22 +1,41 @@
 package com.gft.digitalbank.exchange.solution.message;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.Session;
+import javax.jms.TextMessage;
 
+import org.apache.activemq.ActiveMQConnectionFactory;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
 import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
 
 /**
@@ -95,4 +114,267 @@ public class BrokerMessageProcessorTest {
         processor.start();
     }
 
+    @Test
+    public void testBatchedConsumption() throws JMSException {
+        ConnectionFactory factory = new ActiveMQConnectionFactory("vm://batched?broker.persistent=false");
+        Connection connection = factory.createConnection();
+
+        try {
+            connection.start();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("d1");
+            MessageProducer producer = session.createProducer(queue);
+
+            for (int id = 1; id <= 10; id++) {
+                producer.send(message(session, MessageType.ORDER, "{\"id\":" + id + ",\"broker\":\"d1\"}"));
+            }
+
+            producer.send(message(session, MessageType.SHUTDOWN_NOTIFICATION, "{\"id\":11,\"broker\":\"d1\"}"));
+
+            processor.setConnectionFactory(factory);
+            processor.setBatchConsumption(new BatchConsumption(Session.CLIENT_ACKNOWLEDGE, 4, 20));
+            processor.start();
+
+            Mockito.verify(brokerMessageListener, Mockito.timeout(5000)).onBrokerMessage(Matchers.any(ShutdownNotification.class));
+            Mockito.verify(brokerMessageListener, Mockito.times(10)).onBrokerMessage(Matchers.any(PositionOrder.class));
+
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            Assert.assertNull(consumer.receive(200));
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testAcknowledgeJournaled() throws Exception {
+        ConnectionFactory factory = new ActiveMQConnectionFactory("vm://journaled?broker.persistent=false");
+        Connection connection = factory.createConnection();
+        AtomicInteger journalProgress = new AtomicInteger();
+
+        try {
+            connection.start();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("d1");
+            MessageProducer producer = session.createProducer(queue);
+
+            for (int id = 1; id <= 4; id++) {
+                producer.send(message(session, MessageType.ORDER, "{\"id\":" + id + ",\"broker\":\"d1\"}"));
+            }
+
+            processor.setConnectionFactory(factory);
+            processor.setBatchConsumption(new BatchConsumption(Session.CLIENT_ACKNOWLEDGE, 4, 20));
+            processor.setJournalProgress(journalProgress::get);
+            processor.start();
+
+            Mockito.verify(brokerMessageListener, Mockito.timeout(5000).times(4)).onBrokerMessage(Matchers.any(PositionOrder.class));
+            Thread.sleep(300);
+
+            Assert.assertEquals(Collections.list(session.createBrowser(queue).getEnumeration()).size(), 4);
+
+            journalProgress.set(4);
+
+            for (int i = 0; i < 50 && session.createBrowser(queue).getEnumeration().hasMoreElements(); i++) {
+                Thread.sleep(100);
+            }
+
+            Assert.assertFalse(session.createBrowser(queue).getEnumeration().hasMoreElements());
+
+            processor.stop();
+            processor.finish();
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testParallelConsumers() throws Exception {
+        ConnectionFactory factory = new ActiveMQConnectionFactory("vm://parallel?broker.persistent=false");
+        Connection connection = factory.createConnection();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger shutdowns = new AtomicInteger();
+        List<PositionOrder> orders = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch doneSignal = new CountDownLatch(1);
+        int count = 60;
+
+        try {
+            connection.start();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue("d1"));
+
+            for (int id = 1; id <= count; id++) {
+                TextMessage message = message(session, MessageType.ORDER, "{\"id\":" + id + ",\"broker\":\"d1\",\"product\":\"p" + id % 3
+                        + "\"}");
+
+                message.setStringProperty("JMSXGroupID", "p" + id % 3);
+                producer.send(message);
+            }
+
+            producer.send(message(session, MessageType.SHUTDOWN_NOTIFICATION, "{\"id\":" + (count + 1) + ",\"broker\":\"d1\"}"));
+
+            processor.setConnectionFactory(factory);
+            processor.setExecutor(pool);
+            processor.setBrokerMessageListener(new BrokerMessageListener() {
+
+                @Override
+                public void onBrokerMessage(PositionOrder message) {
+                    orders.add(message);
+                }
+
+                @Override
+                public void onBrokerMessage(CancellationOrder message) {
+                }
+
+                @Override
+                public void onBrokerMessage(ModificationOrder message) {
+                }
+
+                @Override
+                public void onBrokerMessage(ShutdownNotification message) {
+                    shutdowns.incrementAndGet();
+                    doneSignal.countDown();
+                }
+            });
+            processor.setBatchConsumption(new BatchConsumption(Session.CLIENT_ACKNOWLEDGE, 8, 5, 3));
+            processor.start();
+
+            Assert.assertTrue(doneSignal.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(orders.size(), count);
+            Assert.assertEquals(shutdowns.get(), 1);
+
+            Map<String, Integer> lastIds = new HashMap<>();
+
+            for (PositionOrder order : orders) {
+                Integer lastId = lastIds.put(order.getProduct(), order.getId());
+
+                Assert.assertTrue(lastId == null || lastId < order.getId());
+            }
+        } finally {
+            connection.close();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedConsumer() throws JMSException {
+        MessageConsumer failing = Mockito.mock(MessageConsumer.class);
+        TextMessage shutdown = Mockito.mock(TextMessage.class);
+
+        Mockito.when(connection.createSession(false, Session.CLIENT_ACKNOWLEDGE)).thenReturn(session);
+        Mockito.when(session.createConsumer(destination)).thenReturn(failing, consumer);
+        Mockito.when(failing.receive(Matchers.anyLong())).thenThrow(new JMSException("connection lost"));
+        Mockito.when(shutdown.getStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME))
+                .thenReturn(MessageType.SHUTDOWN_NOTIFICATION.name());
+        Mockito.when(shutdown.getText()).thenReturn("{\"id\":1,\"broker\":\"d1\"}");
+        Mockito.when(consumer.receive(Matchers.anyLong())).thenReturn(shutdown, (TextMessage) null);
+
+        processor.setBatchConsumption(new BatchConsumption(Session.CLIENT_ACKNOWLEDGE, 4, 0, 2));
+        processor.start();
+
+        Mockito.verify(brokerMessageListener, Mockito.timeout(5000)).onBrokerMessage(Matchers.any(ShutdownNotification.class));
+    }
+
+    @Test
+    public void testMessageAfterEmptyPoll() throws JMSException {
+        MessageConsumer other = Mockito.mock(MessageConsumer.class);
+        TextMessage shutdown = mockMessage(MessageType.SHUTDOWN_NOTIFICATION, "{\"id\":2,\"broker\":\"d1\"}");
+        TextMessage late = mockMessage(MessageType.ORDER, "{\"id\":1,\"broker\":\"d1\"}");
+        CountDownLatch shutdownReceived = new CountDownLatch(1);
+
+        Mockito.when(connection.createSession(false, Session.CLIENT_ACKNOWLEDGE)).thenReturn(session);
+        Mockito.when(session.createConsumer(destination)).thenReturn(consumer, other);
+        Mockito.when(consumer.receive(Matchers.anyLong())).thenAnswer(invocation -> {
+            shutdownReceived.countDown();
+            return shutdown;
+        }).thenReturn(null);
+        Mockito.when(other.receive(Matchers.anyLong())).thenAnswer(invocation -> {
+            shutdownReceived.await(5, TimeUnit.SECONDS);
+            return null;
+        }).thenReturn(late, (TextMessage) null);
+
+        processor.setBatchConsumption(new BatchConsumption(Session.CLIENT_ACKNOWLEDGE, 1, 0, 2));
+        processor.setDrainTimeoutMillis(200);
+        processor.start();
+
+        Mockito.verify(brokerMessageListener, Mockito.timeout(5000)).onBrokerMessage(Matchers.any(ShutdownNotification.class));
+
+        InOrder inOrder = Mockito.inOrder(brokerMessageListener);
+
+        inOrder.verify(brokerMessageListener).onBrokerMessage(Matchers.any(PositionOrder.class));
+        inOrder.verify(brokerMessageListener).onBrokerMessage(Matchers.any(ShutdownNotification.class));
+    }
+
+    @Test
+    public void testDrainedBySequenceProgress() throws JMSException {
+        MessageConsumer other = Mockito.mock(MessageConsumer.class);
+        TextMessage shutdown = mockMessage(MessageType.SHUTDOWN_NOTIFICATION, "{\"id\":5,\"broker\":\"d1\"}");
+        AtomicInteger sequenceProgress = new AtomicInteger(1);
+
+        Mockito.when(connection.createSession(false, Session.CLIENT_ACKNOWLEDGE)).thenReturn(session);
+        Mockito.when(session.createConsumer(destination)).thenReturn(consumer, other);
+        Mockito.when(consumer.receive(Matchers.anyLong())).thenReturn(shutdown, (TextMessage) null);
+
+        processor.setBatchConsumption(new BatchConsumption(Session.CLIENT_ACKNOWLEDGE, 4, 0, 2));
+        processor.setSequenceProgress(sequenceProgress::get);
+        processor.setDrainTimeoutMillis(0);
+        processor.start();
+
+        Mockito.verify(brokerMessageListener, Mockito.after(300).never()).onBrokerMessage(Matchers.any(ShutdownNotification.class));
+
+        sequenceProgress.set(5);
+
+        Mockito.verify(brokerMessageListener, Mockito.timeout(5000)).onBrokerMessage(Matchers.any(ShutdownNotification.class));
+    }
+
+    @Test
+    public void testPauseResume() throws JMSException {
+        processor.start();
+        processor.pause();
+        processor.resume();
+
+        InOrder inOrder = Mockito.inOrder(connection);
+
+        inOrder.verify(connection).start();
+        inOrder.verify(connection).stop();
+        inOrder.verify(connection).start();
+    }
+
+    @Test
+    public void testNoPauseWithManyConsumers() throws JMSException {
+        Mockito.when(connection.createSession(false, Session.CLIENT_ACKNOWLEDGE)).thenReturn(session);
+
+        processor.setBatchConsumption(new BatchConsumption(Session.CLIENT_ACKNOWLEDGE, 4, 0, 2));
+        processor.start();
+        processor.pause();
+        processor.resume();
+        processor.stop();
+
+        Mockito.verify(connection, Mockito.never()).stop();
+        Mockito.verify(connection, Mockito.times(1)).start();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAutoAcknowledgeBatch() {
+        new BatchConsumption(Session.AUTO_ACKNOWLEDGE, 4, 20);
+    }
+
+    private static TextMessage mockMessage(MessageType type, String text) throws JMSException {
+        TextMessage message = Mockito.mock(TextMessage.class);
+
+        Mockito.when(message.getStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME)).thenReturn(type.name());
+        Mockito.when(message.getText()).thenReturn(text);
+
+        return message;
+    }
+
+    private static TextMessage message(Session session, MessageType type, String text) throws JMSException {
+        TextMessage message = session.createTextMessage(text);
+
+        message.setStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME, type.name());
+
+        return message;
+    }
 }
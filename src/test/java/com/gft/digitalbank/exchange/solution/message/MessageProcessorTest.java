@@ -1,23 +1,30 @@
 package com.gft.digitalbank.exchange.solution.message;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Executor;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
 import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
 import javax.jms.Queue;
 import javax.jms.Session;
+import javax.jms.TextMessage;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
+import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
 import com.gft.digitalbank.exchange.solution.transaction.BrokerMessageListener;
 
 /**
@@ -49,6 +56,9 @@ public class MessageProcessorTest {
     @Mock
     private MessageConsumer consumer;
 
+    @Mock
+    private MessageConsumer consumer2;
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -95,4 +105,56 @@ public class MessageProcessorTest {
         processor.start();
     }
 
+    @Test
+    public void testFlowControl() {
+        try {
+            processor.start();
+            processor.pauseBroker("d1");
+            processor.pauseBroker("d2");
+
+            Mockito.verify(connection).stop();
+
+            processor.resumeBroker("d1");
+
+            Mockito.verify(connection, Mockito.times(2)).start();
+        } catch (JMSException e) {
+            Assert.assertTrue("JMSException thrown", false);
+        }
+    }
+
+    @Test
+    public void testParallelDestinations() throws JMSException {
+        List<Runnable> tasks = new ArrayList<>();
+        ArgumentCaptor<MessageListener> listener1 = ArgumentCaptor.forClass(MessageListener.class);
+        ArgumentCaptor<MessageListener> listener2 = ArgumentCaptor.forClass(MessageListener.class);
+
+        Mockito.when(session.createQueue("d2")).thenReturn(destination);
+        Mockito.when(session.createConsumer(destination)).thenReturn(consumer, consumer2);
+
+        processor.setExecutor(tasks::add);
+        processor.setDestinations(Arrays.asList("d1", "d2"));
+        processor.start();
+
+        Mockito.verify(consumer).setMessageListener(listener1.capture());
+        Mockito.verify(consumer2).setMessageListener(listener2.capture());
+
+        listener1.getValue().onMessage(message(1));
+        listener1.getValue().onMessage(message(2));
+        listener2.getValue().onMessage(message(3));
+
+        Assert.assertEquals(tasks.size(), 2);
+
+        tasks.forEach(Runnable::run);
+
+        Mockito.verify(brokerMessageListener, Mockito.times(3)).onBrokerMessage(Matchers.any(PositionOrder.class));
+    }
+
+    private static TextMessage message(int id) throws JMSException {
+        TextMessage message = Mockito.mock(TextMessage.class);
+
+        Mockito.when(message.getStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME)).thenReturn(MessageType.ORDER.name());
+        Mockito.when(message.getText()).thenReturn("{\"id\":" + id + ",\"broker\":\"b1\"}");
+
+        return message;
+    }
 }
@@ -1,7 +1,9 @@
 package com.gft.digitalbank.exchange.solution.message;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.Executor;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.TextMessage;
 
@@ -22,7 +24,12 @@ import com.gft.digitalbank.exchange.model.orders.PositionOrder;
 import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
 import com.gft.digitalbank.exchange.model.orders.Side;
 import com.gft.digitalbank.exchange.solution.SimpleExecutor;
+import com.gft.digitalbank.exchange.solution.message.codec.BinaryMessageCodec;
+import com.gft.digitalbank.exchange.solution.message.codec.JsonMessageDecoder;
+import com.gft.digitalbank.exchange.solution.message.codec.MessageFields;
+import com.gft.digitalbank.exchange.solution.message.codec.MessageFormat;
 import com.gft.digitalbank.exchange.solution.transaction.TransactionEngine;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
 import com.google.gson.Gson;
 
 /**
@@ -96,6 +103,35 @@ public class OrderMessageListenerTest {
         Mockito.verify(processor).stop();
     }
 
+    @Test
+    public void testOnBinaryMessage() throws JMSException {
+        PositionOrder order = PositionOrder.builder().id(101).broker("b1").client("c1").product("p1").side(Side.SELL).timestamp(1)
+                .details(OrderDetails.builder().amount(5).price(3).build()).build();
+        SymbolDictionary dictionary = new SymbolDictionary();
+        ByteBuffer body = ByteBuffer.allocate(BinaryMessageCodec.MESSAGE_LENGTH);
+
+        new BinaryMessageCodec(dictionary).encode(new JsonMessageDecoder().decode(toJsonText(order), new MessageFields()), body);
+
+        Mockito.when(processor.getSymbolDictionary()).thenReturn(dictionary);
+        listener = new OrderMessageListener(transactionEngine, processor, executor);
+
+        BytesMessage message = Mockito.mock(BytesMessage.class);
+
+        Mockito.when(message.getStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME)).thenReturn(MessageType.ORDER.name());
+        Mockito.when(message.getStringProperty(OrderMessageListener.MESSAGE_FORMAT_PROPERTY_NAME)).thenReturn(MessageFormat.BINARY.name());
+        Mockito.when(message.readBytes(Matchers.any(byte[].class))).thenAnswer(invocation -> {
+            byte[] target = (byte[]) invocation.getArguments()[0];
+
+            System.arraycopy(body.array(), 0, target, 0, BinaryMessageCodec.MESSAGE_LENGTH);
+
+            return BinaryMessageCodec.MESSAGE_LENGTH;
+        });
+
+        listener.onMessage(message);
+
+        Mockito.verify(transactionEngine).onBrokerMessage(Mockito.eq(order));
+    }
+
     private void testOnMessage(BrokerMessage order) {
         try {
             TextMessage message = Mockito.mock(TextMessage.class);
@@ -0,0 +1,122 @@
+package com.gft.digitalbank.exchange.solution.message.codec;
+
+import java.nio.ByteBuffer;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+import com.google.gson.Gson;
+
+/**
+ * Unit tests for class BinaryMessageCodec.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class BinaryMessageCodecTest {
+
+    private final SymbolDictionary dictionary = new SymbolDictionary();
+
+    private final BinaryMessageCodec codec = new BinaryMessageCodec(dictionary);
+
+    private final Gson gson = new Gson();
+
+    private final JsonMessageDecoder jsonDecoder = new JsonMessageDecoder();
+
+    @Test
+    public void testRoundTrip() {
+        testRoundTrip(PositionOrder.builder().id(101).broker("b1").client("c1").product("p1").side(Side.SELL).timestamp(12345678901L)
+                .details(OrderDetails.builder().amount(10).price(-5).build()).build());
+        testRoundTrip(CancellationOrder.builder().id(102).broker("b1").cancelledOrderId(101).timestamp(2).build());
+        testRoundTrip(ModificationOrder.builder().id(103).broker("b2").modifiedOrderId(101).timestamp(3)
+                .details(OrderDetails.builder().amount(20).price(7).build()).build());
+        testRoundTrip(ShutdownNotification.builder().id(104).broker("b1").timestamp(4).build());
+
+        Assert.assertEquals(dictionary.size(), 4);
+    }
+
+    @Test
+    public void testDecodeBytesMessage() throws JMSException {
+        PositionOrder order = PositionOrder.builder().id(7).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(1)
+                .details(OrderDetails.builder().amount(1).price(2).build()).build();
+
+        dictionary.register(10, "b1");
+        dictionary.register(20, "c1");
+        dictionary.register(30, "p1");
+
+        byte[] body = encode(order).array();
+
+        Assert.assertEquals(ByteBuffer.wrap(body).getInt(16), 10);
+        Assert.assertEquals(codec.decode(bytesMessage(body), PositionOrder.class), order);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSymbolCode() {
+        ByteBuffer buffer = encode(ShutdownNotification.builder().id(1).broker("b1").build());
+
+        buffer.putInt(16, 99);
+
+        new BinaryMessageCodec(new SymbolDictionary()).decode(buffer, new MessageFields());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() throws JMSException {
+        codec.decode(bytesMessage(new byte[BinaryMessageCodec.MESSAGE_LENGTH + 4]), ShutdownNotification.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidVersion() {
+        ByteBuffer buffer = encode(ShutdownNotification.builder().id(1).broker("b1").build());
+
+        buffer.put(0, (byte) 0);
+
+        codec.decode(buffer, new MessageFields());
+    }
+
+    private void testRoundTrip(BrokerMessage message) {
+        MessageFields fields = codec.decode(encode(message), new MessageFields());
+
+        Assert.assertEquals(fields.toBrokerMessage(message.getClass()), message);
+        Assert.assertEquals(fields.getMessageType(), message.getMessageType());
+    }
+
+    private ByteBuffer encode(BrokerMessage message) {
+        MessageFields fields = jsonDecoder.decode(gson.toJson(message), new MessageFields());
+        ByteBuffer buffer = ByteBuffer.allocate(BinaryMessageCodec.MESSAGE_LENGTH);
+
+        codec.encode(fields, buffer);
+
+        Assert.assertFalse(buffer.hasRemaining());
+
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private BytesMessage bytesMessage(byte[] body) throws JMSException {
+        BytesMessage message = Mockito.mock(BytesMessage.class);
+
+        Mockito.when(message.readBytes(Matchers.any(byte[].class))).thenAnswer(invocation -> {
+            byte[] target = (byte[]) invocation.getArguments()[0];
+            int length = Math.min(target.length, body.length);
+
+            System.arraycopy(body, 0, target, 0, length);
+
+            return length;
+        });
+
+        return message;
+    }
+}
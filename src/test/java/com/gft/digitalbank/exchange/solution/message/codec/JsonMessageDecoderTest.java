@@ -0,0 +1,126 @@
+package com.gft.digitalbank.exchange.solution.message.codec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.google.gson.Gson;
+
+/**
+ * Unit tests for class JsonMessageDecoder.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class JsonMessageDecoderTest {
+
+    private final Gson gson = new Gson();
+
+    private final JsonMessageDecoder decoder = new JsonMessageDecoder();
+
+    @Test
+    public void testDecodeMessages() {
+        testDecode(PositionOrder.builder().id(101).broker("b1").client("c1").product("p1").side(Side.SELL).timestamp(12345678901L)
+                .details(OrderDetails.builder().amount(10).price(-5).build()).build());
+        testDecode(CancellationOrder.builder().id(102).broker("b1").cancelledOrderId(101).timestamp(2).build());
+        testDecode(ModificationOrder.builder().id(103).broker("b1").modifiedOrderId(101).timestamp(3)
+                .details(OrderDetails.builder().amount(20).price(7).build()).build());
+        testDecode(ShutdownNotification.builder().id(104).broker("b1").timestamp(4).build());
+    }
+
+    @Test
+    public void testDecodeFormatting() {
+        String json = " {\n \"unknown\" : [1, {\"a\": \"}\"}, null], \"id\" : \"7\", \"broker\":\"b\\\"1\\u0041\", \"client\": null,"
+                + " \"side\":\"BUY\", \"details\": {\"price\": 3, \"extra\": true, \"amount\": 2}, \"messageType\": \"ORDER\" } ";
+
+        PositionOrder order = decoder.decode(json, PositionOrder.class);
+
+        Assert.assertEquals(order, gson.fromJson(json, PositionOrder.class));
+        Assert.assertEquals(order.getId(), 7);
+        Assert.assertEquals(order.getBroker(), "b\"1A");
+        Assert.assertNull(order.getClient());
+        Assert.assertEquals(order.getDetails(), OrderDetails.builder().amount(2).price(3).build());
+    }
+
+    @Test
+    public void testFlyweight() {
+        MessageFields fields = new MessageFields();
+
+        decoder.decode("{\"messageType\":\"MODIFICATION\",\"id\":5,\"modifiedOrderId\":3,\"details\":{\"amount\":1,\"price\":2}}", fields);
+
+        Assert.assertEquals(fields.getMessageType(), MessageType.MODIFICATION);
+        Assert.assertEquals(fields.getModifiedOrderId(), 3);
+        Assert.assertTrue(fields.isDetails());
+
+        Assert.assertSame(decoder.decode("{\"messageType\":\"CANCEL\",\"id\":6,\"cancelledOrderId\":5}", fields), fields);
+        Assert.assertEquals(fields.getMessageType(), MessageType.CANCEL);
+        Assert.assertEquals(fields.getId(), 6);
+        Assert.assertEquals(fields.getModifiedOrderId(), 0);
+        Assert.assertFalse(fields.isDetails());
+        Assert.assertEquals(fields.toBrokerMessage(), CancellationOrder.builder().id(6).cancelledOrderId(5).build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidJson() {
+        decoder.decode("{\"id\":1,", CancellationOrder.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownConstant() {
+        decoder.decode("{\"side\":\"LONG\"}", PositionOrder.class);
+    }
+
+    @Test
+    public void testEscapedKeys() {
+        String json = "{\"messageT\\u0079pe\":\"ORDER\",\"\\u0069d\":5,"
+            + "\"bro\\u006ber\":\"b1\",\"side\":\"\\u0042UY\",\"details\":{\"\\u0061mount\":2,\"price\":3}}";
+
+        PositionOrder order = decoder.decode(json, PositionOrder.class);
+
+        Assert.assertEquals(order, gson.fromJson(json, PositionOrder.class));
+        Assert.assertEquals(order.getMessageType(), MessageType.ORDER);
+        Assert.assertEquals(order.getId(), 5);
+        Assert.assertEquals(order.getBroker(), "b1");
+        Assert.assertEquals(order.getSide(), Side.BUY);
+        Assert.assertEquals(order.getDetails(), OrderDetails.builder().amount(2).price(3).build());
+    }
+
+    @Test
+    public void testNumberRange() {
+        PositionOrder order = decoder.decode("{\"id\":2147483647,\"timestamp\":9223372036854775807,\"details\":{\"amount\":1,"
+                + "\"price\":-2147483648}}", PositionOrder.class);
+
+        Assert.assertEquals(order.getId(), Integer.MAX_VALUE);
+        Assert.assertEquals(order.getTimestamp(), Long.MAX_VALUE);
+        Assert.assertEquals(order.getDetails().getPrice(), Integer.MIN_VALUE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntOverflow() {
+        decoder.decode("{\"id\":2147483648}", CancellationOrder.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntUnderflow() {
+        decoder.decode("{\"details\":{\"amount\":\"-2147483649\"}}", PositionOrder.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLongOverflow() {
+        decoder.decode("{\"timestamp\":9223372036854775808}", CancellationOrder.class);
+    }
+
+    private void testDecode(BrokerMessage message) {
+        String json = gson.toJson(message);
+        BrokerMessage decoded = decoder.decode(json, message.getClass());
+
+        Assert.assertEquals(decoded, message);
+        Assert.assertEquals(decoded, gson.fromJson(json, message.getClass()));
+    }
+}
@@ -0,0 +1,132 @@
+package com.gft.digitalbank.exchange.solution.pipeline;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.SolutionResult;
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.message.BrokerMessageProcessor;
+import com.gft.digitalbank.exchange.solution.message.OrderMessageListener;
+import com.gft.digitalbank.exchange.solution.transaction.MessageOrderAssuranceBuffer;
+import com.gft.digitalbank.exchange.solution.transaction.TransactionEngine;
+import com.gft.digitalbank.exchange.solution.util.IntObjectHashMap;
+import com.gft.digitalbank.exchange.solution.util.ring.WaitStrategy;
+import com.google.gson.Gson;
+
+/**
+ * Unit tests for class MessagePipeline.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class MessagePipelineTest {
+
+    private MessagePipeline pipeline;
+
+    private TransactionEngine transactionEngine;
+
+    private OrderMessageListener listener;
+
+    private CountDownLatch doneSignal = new CountDownLatch(1);
+
+    @Mock
+    private BrokerMessageProcessor processor;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        createPipeline(new MessagePipeline(64, 2, WaitStrategy.PARK));
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    public void testPipeline() throws Exception {
+        listener.onMessage(message(order(2, "p1", Side.BUY, 10)));
+        listener.onMessage(message(order(1, "p1", Side.SELL, 4)));
+        listener.onMessage(message(order(4, "p2", Side.SELL, 5)));
+        listener.onMessage(message(order(3, "p2", Side.BUY, 5)));
+        listener.onMessage(message(ShutdownNotification.builder().id(5).broker("b1").timestamp(5).build()));
+
+        Assert.assertTrue(doneSignal.await(10, TimeUnit.SECONDS));
+
+        SolutionResult result = transactionEngine.createSolutionResult();
+
+        Assert.assertEquals(result.getTransactions().size(), 2);
+        Assert.assertEquals(result.getOrderBooks().size(), 1);
+        Mockito.verify(processor).stop();
+    }
+
+    @Test
+    public void testParallelDecoders() throws Exception {
+        pipeline.shutdown();
+        createPipeline(new MessagePipeline(16, 3, 2, WaitStrategy.YIELD));
+
+        int count = 200;
+
+        for (int id = 1; id <= count; id++) {
+            listener.onMessage(message(order(id, "p" + (id % 3), id % 2 == 0 ? Side.BUY : Side.SELL, 1)));
+        }
+
+        listener.onMessage(message(ShutdownNotification.builder().id(count + 1).broker("b1").timestamp(count + 1).build()));
+
+        Assert.assertTrue(doneSignal.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(transactionEngine.createSolutionResult().getTransactions().size(), count / 2 - 1);
+    }
+
+    @Test
+    public void testExecute() throws Exception {
+        String[] thread = new String[1];
+        CountDownLatch executed = new CountDownLatch(1);
+
+        pipeline.execute(() -> {
+            thread[0] = Thread.currentThread().getName();
+            executed.countDown();
+        });
+
+        Assert.assertTrue(executed.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(thread[0], "pipeline-sequencer");
+    }
+
+    private void createPipeline(MessagePipeline messagePipeline) {
+        pipeline = messagePipeline;
+        transactionEngine = new TransactionEngine(pipeline::engineFor, Arrays.asList("b1"), new IntObjectHashMap<>());
+        listener = new OrderMessageListener(new MessageOrderAssuranceBuffer(transactionEngine), processor, pipeline);
+
+        transactionEngine.addObserver((o, arg) -> doneSignal.countDown());
+        pipeline.start();
+    }
+
+    private static PositionOrder order(int id, String product, Side side, int amount) {
+        return PositionOrder.builder().id(id).broker("b1").client("c1").product(product).side(side).timestamp(id)
+                .details(OrderDetails.builder().amount(amount).price(100).build()).build();
+    }
+
+    private static TextMessage message(BrokerMessage bm) throws JMSException {
+        TextMessage message = Mockito.mock(TextMessage.class);
+
+        Mockito.when(message.getStringProperty(OrderMessageListener.MESSAGE_TYPE_PROPERTY_NAME)).thenReturn(bm.getMessageType().name());
+        Mockito.when(message.getText()).thenReturn(new Gson().toJson((Object) bm));
+
+        return message;
+    }
+}
@@ -0,0 +1,269 @@
+package com.gft.digitalbank.exchange.solution.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for class BlockingPublisher.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class BlockingPublisherTest {
+
+    @Test
+    public void testDemand() {
+        BlockingPublisher<Integer> publisher = publisher(16);
+        TestSubscriber subscriber = new TestSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+
+        for (int i = 1; i <= 5; i++) {
+            publisher.submit(i);
+        }
+
+        Assert.assertEquals(subscriber.items, Arrays.asList(1, 2));
+
+        publisher.close();
+
+        Assert.assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+
+        Assert.assertEquals(subscriber.items, Arrays.asList(1, 2, 3, 4, 5));
+        Assert.assertTrue(subscriber.completed);
+        Assert.assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        BlockingPublisher<Integer> publisher = publisher(2);
+        TestSubscriber subscriber = new TestSubscriber();
+        AtomicInteger submitted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+
+        publisher.subscribe(subscriber);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= 5; i++) {
+                publisher.submit(i);
+                submitted.incrementAndGet();
+            }
+
+            done.countDown();
+        });
+
+        producer.start();
+
+        Assert.assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(submitted.get(), 2);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(subscriber.items, Arrays.asList(1, 2, 3, 4, 5));
+    }
+
+    @Test
+    public void testCancelReleasesProducer() throws Exception {
+        BlockingPublisher<Integer> publisher = publisher(1);
+        TestSubscriber subscriber = new TestSubscriber();
+        CountDownLatch done = new CountDownLatch(1);
+
+        publisher.subscribe(subscriber);
+
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= 5; i++) {
+                publisher.submit(i);
+            }
+
+            done.countDown();
+        });
+
+        producer.start();
+
+        Assert.assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+
+        subscriber.subscription.cancel();
+
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(subscriber.items.isEmpty());
+        Assert.assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    public void testInvalidRequest() {
+        BlockingPublisher<Integer> publisher = publisher(4);
+        TestSubscriber subscriber = new TestSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        publisher.submit(1);
+
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assert.assertTrue(subscriber.items.isEmpty());
+        Assert.assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    public void testSubscribeAfterClose() {
+        BlockingPublisher<Integer> publisher = publisher(4);
+        TestSubscriber subscriber = new TestSubscriber();
+
+        publisher.close();
+        publisher.subscribe(subscriber);
+
+        Assert.assertNotNull(subscriber.subscription);
+        Assert.assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        BlockingPublisher<Integer> publisher = publisher(8);
+        TestSubscriber subscriber = new TestSubscriber();
+        List<Thread> producers = new ArrayList<>();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        for (int p = 0; p < 4; p++) {
+            int first = p * 10000;
+
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    publisher.submit(first + i);
+                }
+            }));
+        }
+
+        producers.forEach(Thread::start);
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        publisher.close();
+
+        Assert.assertTrue(subscriber.completed);
+        Assert.assertEquals(subscriber.items.size(), 40000);
+
+        int[] last = { -1, 9999, 19999, 29999 };
+
+        for (int item : subscriber.items) {
+            Assert.assertEquals(item, last[item / 10000] + 1);
+            last[item / 10000] = item;
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testSubscriberNotRequesting() {
+        BlockingPublisher<Integer> publisher = new BlockingPublisher<>(Runnable::run, 1, 100);
+        TestSubscriber idle = new TestSubscriber();
+        TestSubscriber active = new TestSubscriber();
+
+        publisher.subscribe(idle);
+        publisher.subscribe(active);
+        active.subscription.request(Long.MAX_VALUE);
+
+        for (int i = 1; i <= 5; i++) {
+            publisher.submit(i);
+        }
+
+        publisher.close();
+
+        Assert.assertTrue(idle.error instanceof IllegalStateException);
+        Assert.assertTrue(idle.items.isEmpty());
+        Assert.assertFalse(idle.completed);
+        Assert.assertEquals(active.items, Arrays.asList(1, 2, 3, 4, 5));
+        Assert.assertTrue(active.completed);
+        Assert.assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    public void testDeliveryInExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        BlockingPublisher<Integer> publisher = new BlockingPublisher<>(executor, 4, 1000);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        try {
+            publisher.subscribe(new TestSubscriber() {
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    threads.add(Thread.currentThread());
+                }
+
+                @Override
+                public void onComplete() {
+                    done.countDown();
+                }
+            });
+
+            for (int i = 1; i <= 10; i++) {
+                publisher.submit(i);
+            }
+
+            publisher.close();
+
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(threads.size(), 10);
+            Assert.assertFalse(threads.contains(Thread.currentThread()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static BlockingPublisher<Integer> publisher(int bufferSize) {
+        return new BlockingPublisher<>(Runnable::run, bufferSize, 5000);
+    }
+
+    /**
+     * Subscriber recording received signals.
+     */
+    private static class TestSubscriber implements Flow.Subscriber<Integer> {
+
+        private final List<Integer> items = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile Flow.Subscription subscription;
+
+        private volatile boolean completed;
+
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.gft.digitalbank.exchange.solution.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for class ConflatingPublisher.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class ConflatingPublisherTest {
+
+    @Test
+    public void testConflation() {
+        ConflatingPublisher<String> publisher = new ConflatingPublisher<>();
+        TestSubscriber subscriber = new TestSubscriber();
+
+        publisher.subscribe(subscriber);
+
+        publisher.submit(1, "a1");
+        publisher.submit(2, "b1");
+        publisher.submit(1, "a2");
+        publisher.submit(3, "c1");
+        publisher.submit(2, "b2");
+
+        Assert.assertTrue(subscriber.items.isEmpty());
+
+        subscriber.subscription.request(2);
+
+        Assert.assertEquals(subscriber.items, Arrays.asList("a2", "b2"));
+
+        publisher.submit(1, "a3");
+        subscriber.subscription.request(5);
+
+        Assert.assertEquals(subscriber.items, Arrays.asList("a2", "b2", "c1", "a3"));
+    }
+
+    @Test
+    public void testFastSubscriberReceivesAll() {
+        ConflatingPublisher<String> publisher = new ConflatingPublisher<>();
+        TestSubscriber subscriber = new TestSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        publisher.submit(1, "a1");
+        publisher.submit(1, "a2");
+
+        Assert.assertEquals(subscriber.items, Arrays.asList("a1", "a2"));
+    }
+
+    @Test
+    public void testSubscribersIndependent() {
+        ConflatingPublisher<String> publisher = new ConflatingPublisher<>();
+        TestSubscriber fast = new TestSubscriber();
+        TestSubscriber slow = new TestSubscriber();
+
+        publisher.subscribe(fast);
+        publisher.subscribe(slow);
+        fast.subscription.request(Long.MAX_VALUE);
+
+        publisher.submit(1, "a1");
+        publisher.submit(1, "a2");
+        publisher.close();
+
+        Assert.assertTrue(fast.completed);
+        Assert.assertFalse(slow.completed);
+
+        slow.subscription.request(1);
+
+        Assert.assertEquals(fast.items, Arrays.asList("a1", "a2"));
+        Assert.assertEquals(slow.items, Arrays.asList("a2"));
+        Assert.assertTrue(slow.completed);
+        Assert.assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    public void testCancel() {
+        ConflatingPublisher<String> publisher = new ConflatingPublisher<>();
+        TestSubscriber subscriber = new TestSubscriber();
+
+        publisher.subscribe(subscriber);
+        publisher.submit(1, "a1");
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+
+        Assert.assertTrue(subscriber.items.isEmpty());
+        Assert.assertFalse(publisher.hasSubscribers());
+    }
+
+    /**
+     * Subscriber recording received signals.
+     */
+    private static class TestSubscriber implements Flow.Subscriber<String> {
+
+        private final List<String> items = new ArrayList<>();
+
+        private Flow.Subscription subscription;
+
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            Assert.fail(throwable.toString());
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package com.gft.digitalbank.exchange.solution.transaction;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -14,9 +24,14 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.BrokerMessage;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
 import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
 import com.gft.digitalbank.exchange.model.orders.Side;
 import com.gft.digitalbank.exchange.solution.SimpleExecutor;
+import com.gft.digitalbank.exchange.solution.util.IntObjectHashMap;
+import com.gft.digitalbank.exchange.solution.util.SerialExecutor;
 
 /**
  * Unit and functional tests for class MessageOrderAssuranceBuffer.
@@ -72,4 +87,348 @@ public class MessageOrderAssuranceBufferTest {
 
         Assert.assertEquals(orders, executedOrders);
     }
+
+    @Test
+    public void testMessagesBeyondWindow() {
+        List<BrokerMessage> orders = new ArrayList<>();
+        final List<BrokerMessage> executedOrders = new ArrayList<>();
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, new SimpleExecutor(), 4);
+
+        Mockito.doAnswer(invocation -> executedOrders.add((BrokerMessage) invocation.getArguments()[0])).when(listener)
+                .onBrokerMessage(Mockito.any(PositionOrder.class));
+        Mockito.doAnswer(invocation -> executedOrders.add((BrokerMessage) invocation.getArguments()[0])).when(listener)
+                .onBrokerMessage(Mockito.any(CancellationOrder.class));
+
+        for (int i = 1; i <= 100; i++) {
+            orders.add(i % 3 == 0 ? CancellationOrder.builder().id(i).broker("b1").cancelledOrderId(i - 1).timestamp(i).build()
+                    : PositionOrder.builder().id(i).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(i)
+                            .details(OrderDetails.builder().amount(1).price(1).build()).build());
+        }
+
+        List<BrokerMessage> shuffeledOrders = new ArrayList<>(orders);
+
+        Collections.shuffle(shuffeledOrders, new Random(1));
+        shuffeledOrders.stream().forEach(o -> onBrokerMessage(buffer, o));
+        onBrokerMessage(buffer, orders.get(0));
+
+        Assert.assertEquals(executedOrders, orders);
+    }
+
+    @Test
+    public void testConcurrentBrokers() throws InterruptedException {
+        final int brokers = 4;
+        final int messages = 20000;
+        final List<Integer> executedIds = new ArrayList<>();
+        CountDownLatch doneSignal = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, pool);
+
+        Mockito.doAnswer(invocation -> executedIds.add(((BrokerMessage) invocation.getArguments()[0]).getId())).when(listener)
+                .onBrokerMessage(Mockito.any(PositionOrder.class));
+        Mockito.doAnswer(invocation -> {
+            doneSignal.countDown();
+            return null;
+        }).when(listener).onBrokerMessage(Mockito.any(ShutdownNotification.class));
+
+        List<Thread> threads = new ArrayList<>();
+
+        for (int b = 0; b < brokers; b++) {
+            final int broker = b;
+            Thread thread = new Thread(() -> {
+                for (int id = broker + 1; id <= messages; id += brokers) {
+                    buffer.onBrokerMessage(PositionOrder.builder().id(id).broker("b" + broker).client("c1").product("p1")
+                            .side(Side.BUY).timestamp(id).details(OrderDetails.builder().amount(1).price(1).build()).build());
+                }
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        buffer.onBrokerMessage(ShutdownNotification.builder().id(messages + 1).broker("b1").timestamp(messages + 1).build());
+
+        Assert.assertTrue(doneSignal.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(executedIds, IntStream.rangeClosed(1, messages).boxed().collect(Collectors.toList()));
+
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentDuplicates() throws InterruptedException {
+        final int producers = 4;
+        final int messages = 5000;
+        final List<Integer> executedIds = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch doneSignal = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, new SerialExecutor(pool), 16);
+
+        Mockito.doAnswer(invocation -> executedIds.add(((BrokerMessage) invocation.getArguments()[0]).getId())).when(listener)
+                .onBrokerMessage(Mockito.any(PositionOrder.class));
+        Mockito.doAnswer(invocation -> {
+            doneSignal.countDown();
+            return null;
+        }).when(listener).onBrokerMessage(Mockito.any(ShutdownNotification.class));
+
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                for (int id = 1; id <= messages; id++) {
+                    buffer.onBrokerMessage(order(id, "b1"));
+                }
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        buffer.onBrokerMessage(ShutdownNotification.builder().id(messages + 1).broker("b1").timestamp(messages + 1).build());
+
+        Assert.assertTrue(doneSignal.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(executedIds, IntStream.rangeClosed(1, messages).boxed().collect(Collectors.toList()));
+
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testDuplicateDuringRelease() {
+        final List<Integer> executedIds = new ArrayList<>();
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, tasks::add, 4);
+
+        Mockito.doAnswer(invocation -> {
+            int id = ((BrokerMessage) invocation.getArguments()[0]).getId();
+
+            if (executedIds.isEmpty()) {
+                // duplicate delivered by other broker while the message is released
+                buffer.onBrokerMessage(order(id, "b2"));
+            }
+
+            return executedIds.add(id);
+        }).when(listener).onBrokerMessage(Mockito.any(PositionOrder.class));
+
+        for (int id = 1; id <= 5; id++) {
+            buffer.onBrokerMessage(order(id, "b1"));
+
+            for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+                task.run();
+            }
+        }
+
+        Assert.assertEquals(executedIds, Arrays.asList(1, 2, 3, 4, 5));
+        Assert.assertEquals(buffer.getBufferedDepth(), 0);
+    }
+
+    private static void onBrokerMessage(MessageOrderAssuranceBuffer buffer, BrokerMessage message) {
+        if (message instanceof PositionOrder) {
+            buffer.onBrokerMessage((PositionOrder) message);
+        } else {
+            buffer.onBrokerMessage((CancellationOrder) message);
+        }
+    }
+
+    @Test
+    public void testFlowControl() {
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        BrokerFlowControl flowControl = Mockito.mock(BrokerFlowControl.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, new SimpleExecutor(), 4);
+
+        buffer.setFlowControl(flowControl);
+
+        buffer.onBrokerMessage(order(3, "b1"));
+        buffer.onBrokerMessage(order(10, "b2"));
+        buffer.onBrokerMessage(order(11, "b2"));
+
+        Mockito.verify(flowControl, Mockito.times(1)).pauseBroker("b2");
+
+        for (int id : new int[] { 1, 2, 4, 5, 6 }) {
+            buffer.onBrokerMessage(order(id, "b1"));
+        }
+
+        Mockito.verify(flowControl, Mockito.never()).resumeBroker(Mockito.anyString());
+
+        buffer.onBrokerMessage(order(7, "b1"));
+        buffer.onBrokerMessage(order(8, "b1"));
+
+        Mockito.verify(flowControl).resumeBroker("b2");
+
+        buffer.onBrokerMessage(order(9, "b1"));
+
+        Mockito.verify(listener, Mockito.times(11)).onBrokerMessage(Mockito.any(PositionOrder.class));
+        Mockito.verify(flowControl, Mockito.times(1)).pauseBroker("b2");
+        Mockito.verify(flowControl, Mockito.never()).pauseBroker("b1");
+    }
+
+    @Test
+    public void testGapMetrics() {
+        long[] time = { 0 };
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, new SimpleExecutor(), 4);
+
+        buffer.setClock(() -> time[0]);
+        buffer.setGapTimeout(10, TimeUnit.MILLISECONDS);
+
+        buffer.onBrokerMessage(order(1, "b1"));
+        buffer.onBrokerMessage(order(3, "b1"));
+
+        Assert.assertEquals(buffer.getBufferedDepth(), 1);
+        Assert.assertEquals(buffer.getExpectedOrderId(), 2);
+
+        time[0] = TimeUnit.MILLISECONDS.toNanos(20);
+        buffer.onBrokerMessage(order(4, "b1"));
+
+        Assert.assertEquals(buffer.getGapOpenMillis(), 20);
+        Assert.assertEquals(buffer.getBufferedDepth(), 2);
+        Assert.assertFalse(buffer.isFailed());
+
+        time[0] = TimeUnit.MILLISECONDS.toNanos(30);
+        buffer.onBrokerMessage(order(2, "b1"));
+
+        Assert.assertEquals(buffer.getGapOpenMillis(), 0);
+        Assert.assertEquals(buffer.getMaxGapMillis(), 30);
+        Assert.assertEquals(buffer.getBufferedDepth(), 0);
+        Assert.assertEquals(buffer.getExpectedOrderId(), 5);
+        Mockito.verify(listener, Mockito.times(4)).onBrokerMessage(Mockito.any(PositionOrder.class));
+    }
+
+    @Test
+    public void testGapSkip() {
+        final List<Integer> executedIds = new ArrayList<>();
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, new SimpleExecutor(), 4);
+
+        Mockito.doAnswer(invocation -> executedIds.add(((BrokerMessage) invocation.getArguments()[0]).getId())).when(listener)
+                .onBrokerMessage(Mockito.any(PositionOrder.class));
+
+        buffer.setGapPolicy(GapPolicy.SKIP);
+        buffer.setGapTimeout(0, TimeUnit.MILLISECONDS);
+
+        buffer.onBrokerMessage(order(1, "b1"));
+        buffer.onBrokerMessage(order(4, "b1"));
+        buffer.onBrokerMessage(order(2, "b1"));
+        buffer.onBrokerMessage(order(5, "b1"));
+
+        Assert.assertEquals(executedIds, Arrays.asList(1, 4, 5));
+        Assert.assertEquals(buffer.getSkippedMessages(), 2);
+        Assert.assertEquals(buffer.getBufferedDepth(), 0);
+    }
+
+    @Test(timeout = 5000)
+    public void testGapSkipDuplicate() {
+        long[] time = { 0 };
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, new SimpleExecutor(), 16);
+
+        buffer.setClock(() -> time[0]);
+        buffer.setGapPolicy(GapPolicy.SKIP);
+        buffer.setGapTimeout(10, TimeUnit.MILLISECONDS);
+
+        buffer.onBrokerMessage(order(2, "b1"));
+        buffer.onBrokerMessage(order(2, "b1"));
+        buffer.onBrokerMessage(order(1, "b1"));
+
+        time[0] = TimeUnit.MILLISECONDS.toNanos(20);
+        buffer.checkGap();
+
+        Assert.assertEquals(buffer.getBufferedDepth(), 0);
+        Assert.assertEquals(buffer.getIgnoredMessages(), 1);
+        Assert.assertEquals(buffer.getSkippedMessages(), 0);
+        Assert.assertEquals(buffer.getExpectedOrderId(), 3);
+        Mockito.verify(listener, Mockito.times(2)).onBrokerMessage(Mockito.any(PositionOrder.class));
+    }
+
+    @Test
+    public void testGapFail() {
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, new SimpleExecutor(), 4);
+
+        buffer.setGapPolicy(GapPolicy.FAIL);
+        buffer.setGapTimeout(0, TimeUnit.MILLISECONDS);
+
+        buffer.onBrokerMessage(order(1, "b1"));
+
+        try {
+            buffer.onBrokerMessage(order(3, "b1"));
+            Assert.fail("MessageGapException expected");
+        } catch (MessageGapException e) {
+        }
+
+        Assert.assertTrue(buffer.isFailed());
+
+        try {
+            buffer.onBrokerMessage(order(2, "b1"));
+            Assert.fail("MessageGapException expected");
+        } catch (MessageGapException e) {
+        }
+
+        Mockito.verify(listener, Mockito.times(1)).onBrokerMessage(Mockito.any(PositionOrder.class));
+    }
+
+    @Test
+    public void testExpectedOrderId() {
+        final List<Integer> executedIds = new ArrayList<>();
+        BrokerMessageListener listener = Mockito.mock(BrokerMessageListener.class);
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(listener, new SimpleExecutor(), 4);
+
+        Mockito.doAnswer(invocation -> executedIds.add(((BrokerMessage) invocation.getArguments()[0]).getId())).when(listener)
+                .onBrokerMessage(Mockito.any(PositionOrder.class));
+
+        buffer.setExpectedOrderId(3);
+
+        buffer.onBrokerMessage(order(2, "b1"));
+        buffer.onBrokerMessage(order(4, "b1"));
+        buffer.onBrokerMessage(order(3, "b1"));
+
+        Assert.assertEquals(executedIds, Arrays.asList(3, 4));
+        Assert.assertEquals(buffer.getExpectedOrderId(), 5);
+    }
+
+    @Test
+    public void testMaxBatchSize() {
+        AtomicInteger submissions = new AtomicInteger();
+        List<Integer> submissionsAtLastMessage = new ArrayList<>();
+        TransactionEngine engine = Mockito.spy(new TransactionEngine(product -> r -> {
+            submissions.incrementAndGet();
+            r.run();
+        }, Arrays.asList("d1"), new IntObjectHashMap<>()));
+        MessageOrderAssuranceBuffer buffer = new MessageOrderAssuranceBuffer(engine, new SimpleExecutor(), 16);
+
+        Mockito.doAnswer(invocation -> {
+            if (((PositionOrder) invocation.getArguments()[0]).getId() == 10) {
+                submissionsAtLastMessage.add(submissions.get());
+            }
+
+            return invocation.callRealMethod();
+        }).when(engine).onBrokerMessage(Mockito.any(PositionOrder.class));
+
+        buffer.setMaxBatchSize(4);
+
+        for (int id = 2; id <= 10; id++) {
+            buffer.onBrokerMessage(order(id, "b1"));
+        }
+
+        buffer.onBrokerMessage(order(1, "b1"));
+
+        // two full batches were handed over to product engine before the release loop reached the last message
+        Assert.assertEquals(submissionsAtLastMessage, Arrays.asList(2));
+        Assert.assertEquals(submissions.get(), 3);
+    }
+
+    private static PositionOrder order(int id, String broker) {
+        return PositionOrder.builder().id(id).broker(broker).client("c1").product("p1").side(Side.BUY).timestamp(id)
+                .details(OrderDetails.builder().amount(1).price(1).build()).build();
+    }
+
 }
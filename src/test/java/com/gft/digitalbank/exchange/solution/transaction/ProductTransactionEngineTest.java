@@ -9,11 +9,17 @@ import org.junit.Test;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
 
+import com.gft.digitalbank.exchange.model.OrderBook;
 import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.Transaction;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
 import com.gft.digitalbank.exchange.model.orders.PositionOrder;
 import com.gft.digitalbank.exchange.model.orders.Side;
 import com.gft.digitalbank.exchange.solution.SimpleExecutor;
+import com.gft.digitalbank.exchange.solution.transaction.book.BookOrder;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
 
 /**
  * Unit tests for class ProductTransactionEngine.
@@ -22,6 +28,8 @@ import com.gft.digitalbank.exchange.solution.SimpleExecutor;
  */
 public class ProductTransactionEngineTest {
 
+    private static final SymbolDictionary SYMBOLS = new SymbolDictionary();
+
     private ProductTransactionEngine productTransactionEngine;
 
     private Executor executor = Mockito.spy(new SimpleExecutor());
@@ -31,9 +39,11 @@ public class ProductTransactionEngineTest {
 
     @Before
     public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
         final String productName = "p1";
 
-        productTransactionEngine = Mockito.spy(new ProductTransactionEngine(productName, transactionEngine, executor));
+        productTransactionEngine = Mockito.spy(new ProductTransactionEngine(productName, SYMBOLS, transactionEngine, executor));
     }
 
     @Test
@@ -41,7 +51,7 @@ public class ProductTransactionEngineTest {
         PositionOrder order = PositionOrder.builder().id(1).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(1)
                 .details(OrderDetails.builder().amount(1).price(1).build()).build();
 
-        productTransactionEngine.onPositionOrder(order);
+        productTransactionEngine.onPositionOrder(new BookOrder(order, SYMBOLS));
 
         Mockito.verify(executor, Mockito.atLeastOnce()).execute(Matchers.any());
     }
@@ -51,19 +61,19 @@ public class ProductTransactionEngineTest {
         PositionOrder order = PositionOrder.builder().id(1).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(1)
                 .details(OrderDetails.builder().amount(1).price(1).build()).build();
 
-        productTransactionEngine.onCancelOrder(order);
+        productTransactionEngine.onCancelOrder(new BookOrder(order, SYMBOLS));
 
         Mockito.verify(executor, Mockito.atLeastOnce()).execute(Matchers.any());
     }
 
     @Test
     public void testOnModifyOrder() {
-        PositionOrder oldOrder = PositionOrder.builder().id(1).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(1)
+        PositionOrder order = PositionOrder.builder().id(1).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(1)
                 .details(OrderDetails.builder().amount(1).price(1).build()).build();
-        PositionOrder newOrder = PositionOrder.builder().id(1).broker("b1").client("c1").product("p1").side(Side.BUY).timestamp(1)
+        ModificationOrder modification = ModificationOrder.builder().id(2).broker("b1").modifiedOrderId(1).timestamp(2)
                 .details(OrderDetails.builder().amount(10).price(1).build()).build();
 
-        productTransactionEngine.onModifyOrder(oldOrder, newOrder);
+        productTransactionEngine.onModifyOrder(new BookOrder(order, SYMBOLS), modification);
 
         Mockito.verify(executor, Mockito.atLeastOnce()).execute(Matchers.any());
     }
@@ -77,4 +87,171 @@ public class ProductTransactionEngineTest {
         Mockito.verify(executor, Mockito.atLeastOnce()).execute(Matchers.any());
         Assert.assertEquals(doneSignal.getCount(), 0);
     }
+
+    @Test
+    public void testMatching() {
+        TransactionEngine engine = Mockito.mock(TransactionEngine.class);
+        ProductTransactionEngine pte = new ProductTransactionEngine("p1", SYMBOLS, engine, executor);
+        TransactionLog transactions = pte.getTransactionLog();
+
+        BookOrder sell1 = order(1, "b1", Side.SELL, 1, 10, 100);
+        BookOrder sell2 = order(2, "b2", Side.SELL, 2, 10, 90);
+        BookOrder sell3 = order(3, "b3", Side.SELL, 3, 10, 90);
+        BookOrder buy4 = order(4, "b4", Side.BUY, 4, 25, 100);
+
+        pte.onPositionOrder(sell1);
+        pte.onPositionOrder(sell2);
+        pte.onPositionOrder(sell3);
+        pte.onPositionOrder(buy4);
+        pte.onPositionOrder(order(5, "b5", Side.BUY, 5, 5, 80));
+        pte.onShutdown(new CountDownLatch(1));
+
+        Mockito.verify(engine).evictIndexPositionOrder(sell2);
+        Mockito.verify(engine).evictIndexPositionOrder(sell3);
+        Mockito.verify(engine).evictIndexPositionOrder(buy4);
+        Mockito.verify(engine, Mockito.never()).evictIndexPositionOrder(sell1);
+
+        Assert.assertEquals(transactions.size(), 3);
+        Assert.assertEquals(transactions.get(0), Transaction.builder().id(1).amount(10).price(90).product("p1").brokerBuy("b4")
+                .brokerSell("b2").clientBuy("c4").clientSell("c2").build());
+        Assert.assertEquals(transactions.get(1), Transaction.builder().id(2).amount(10).price(90).product("p1").brokerBuy("b4")
+                .brokerSell("b3").clientBuy("c4").clientSell("c3").build());
+        Assert.assertEquals(transactions.get(2), Transaction.builder().id(3).amount(5).price(100).product("p1").brokerBuy("b4")
+                .brokerSell("b1").clientBuy("c4").clientSell("c1").build());
+
+        OrderBook orderBook = pte.getOrderBook();
+
+        Assert.assertEquals(orderBook.getBuyEntries().size(), 1);
+        Assert.assertEquals(orderBook.getBuyEntries().get(0).getBroker(), "b5");
+        Assert.assertEquals(orderBook.getSellEntries().size(), 1);
+        Assert.assertEquals(orderBook.getSellEntries().get(0).getBroker(), "b1");
+        Assert.assertEquals(orderBook.getSellEntries().get(0).getAmount(), 5);
+    }
+
+    @Test
+    public void testCancelAndModifyPartiallyFilledOrder() {
+        TransactionEngine engine = Mockito.mock(TransactionEngine.class);
+        ProductTransactionEngine pte = new ProductTransactionEngine("p1", SYMBOLS, engine, executor);
+        BookOrder sell = order(1, "b1", Side.SELL, 1, 10, 100);
+        BookOrder buy = order(2, "b2", Side.BUY, 2, 10, 90);
+
+        pte.onPositionOrder(sell);
+        pte.onPositionOrder(buy);
+        pte.onPositionOrder(order(3, "b3", Side.BUY, 3, 4, 100));
+        pte.onModifyOrder(buy, modification(4, "b2", 2, 20, 95));
+        pte.onCancelOrder(sell);
+        pte.onShutdown(new CountDownLatch(1));
+
+        OrderBook orderBook = pte.getOrderBook();
+
+        Assert.assertEquals(orderBook.getSellEntries().size(), 0);
+        Assert.assertEquals(orderBook.getBuyEntries().size(), 1);
+        Assert.assertEquals(orderBook.getBuyEntries().get(0).getAmount(), 20);
+        Assert.assertEquals(orderBook.getBuyEntries().get(0).getPrice(), 95);
+    }
+
+    @Test
+    public void testModifyFilledOrder() {
+        TransactionEngine engine = Mockito.mock(TransactionEngine.class);
+        ProductTransactionEngine pte = new ProductTransactionEngine("p1", SYMBOLS, engine, executor);
+        BookOrder sell = order(1, "b1", Side.SELL, 1, 10, 100);
+
+        pte.onPositionOrder(sell);
+        pte.onPositionOrder(order(2, "b2", Side.BUY, 2, 10, 100));
+        pte.onModifyOrder(sell, modification(3, "b1", 1, 5, 100));
+        pte.onShutdown(new CountDownLatch(1));
+
+        Assert.assertNull(pte.getOrderBook());
+    }
+
+    @Test
+    public void testOrderBookSnapshot() throws Exception {
+        TransactionEngine engine = Mockito.mock(TransactionEngine.class);
+        ProductTransactionEngine pte = new ProductTransactionEngine("p1", SYMBOLS, engine, executor);
+
+        pte.onPositionOrder(order(1, "b1", Side.SELL, 1, 10, 100));
+        pte.onPositionOrder(order(2, "b2", Side.BUY, 2, 4, 100));
+        pte.onPositionOrder(order(3, "b3", Side.BUY, 3, 5, 90));
+
+        OrderBook orderBook = pte.onOrderBookSnapshot().get();
+
+        Assert.assertEquals(orderBook.getProduct(), "p1");
+        Assert.assertEquals(orderBook.getSellEntries().size(), 1);
+        Assert.assertEquals(orderBook.getSellEntries().get(0).getAmount(), 6);
+        Assert.assertEquals(orderBook.getBuyEntries().size(), 1);
+        Assert.assertEquals(orderBook.getBuyEntries().get(0).getId(), 1);
+        Assert.assertEquals(orderBook.getBuyEntries().get(0).getBroker(), "b3");
+        Assert.assertNull(pte.getOrderBook());
+
+        pte.onPositionOrder(order(4, "b4", Side.BUY, 4, 6, 100));
+
+        orderBook = pte.onOrderBookSnapshot().get();
+
+        Assert.assertEquals(orderBook.getSellEntries().size(), 0);
+        Assert.assertEquals(orderBook.getBuyEntries().size(), 1);
+    }
+
+    @Test
+    public void testFoldedCancelAndModify() {
+        TransactionEngine engine = Mockito.mock(TransactionEngine.class);
+        ProductTransactionEngine pte = new ProductTransactionEngine("p1", SYMBOLS, engine, executor);
+        TransactionLog transactions = pte.getTransactionLog();
+        BookOrder buy2 = order(2, "b2", Side.BUY, 2, 10, 90);
+        BookOrder buy4 = order(4, "b4", Side.BUY, 4, 10, 90);
+
+        pte.onPositionOrder(order(1, "b1", Side.SELL, 1, 10, 100));
+        pte.beginBatch();
+        pte.onPositionOrder(buy2);
+        pte.onCancelOrder(buy2);
+        pte.onPositionOrder(buy4);
+        pte.onModifyOrder(buy4, modification(5, "b4", 4, 4, 95));
+        pte.onModifyOrder(buy4, modification(6, "b4", 4, 4, 100));
+        pte.onModifyOrder(buy4, modification(7, "b4", 4, 8, 100));
+        pte.endBatch();
+        pte.onShutdown(new CountDownLatch(1));
+
+        Assert.assertEquals(pte.getFoldedMessages(), 3);
+        Assert.assertEquals(transactions.size(), 1);
+        Assert.assertEquals(transactions.get(0).getAmount(), 4);
+        Assert.assertEquals(transactions.get(0).getPrice(), 100);
+        Mockito.verify(engine).evictIndexPositionOrder(buy4);
+
+        OrderBook orderBook = pte.getOrderBook();
+
+        Assert.assertEquals(orderBook.getSellEntries().size(), 1);
+        Assert.assertEquals(orderBook.getSellEntries().get(0).getAmount(), 6);
+        Assert.assertEquals(orderBook.getBuyEntries().size(), 0);
+    }
+
+    @Test
+    public void testMarketableOrderNotFolded() {
+        TransactionEngine engine = Mockito.mock(TransactionEngine.class);
+        ProductTransactionEngine pte = new ProductTransactionEngine("p1", SYMBOLS, engine, executor);
+        BookOrder buy2 = order(2, "b2", Side.BUY, 2, 4, 100);
+        BookOrder buy3 = order(3, "b3", Side.BUY, 3, 4, 90);
+
+        pte.onPositionOrder(order(1, "b1", Side.SELL, 1, 10, 100));
+        pte.beginBatch();
+        pte.onPositionOrder(buy2);
+        pte.onCancelOrder(buy2);
+        pte.onPositionOrder(buy3);
+        pte.onPositionOrder(order(4, "b4", Side.SELL, 4, 4, 90));
+        pte.onCancelOrder(buy3);
+        pte.endBatch();
+        pte.onShutdown(new CountDownLatch(1));
+
+        Assert.assertEquals(pte.getFoldedMessages(), 0);
+        Assert.assertEquals(pte.getTransactionLog().size(), 2);
+        Assert.assertEquals(pte.getOrderBook().getSellEntries().get(0).getAmount(), 6);
+    }
+
+    private static BookOrder order(int id, String broker, Side side, long timestamp, int amount, int price) {
+        return new BookOrder(PositionOrder.builder().id(id).broker(broker).client(broker.replace('b', 'c')).product("p1").side(side)
+                .timestamp(timestamp).details(OrderDetails.builder().amount(amount).price(price).build()).build(), SYMBOLS);
+    }
+
+    private static ModificationOrder modification(int id, String broker, int modifiedOrderId, int amount, int price) {
+        return ModificationOrder.builder().id(id).broker(broker).modifiedOrderId(modifiedOrderId).timestamp(id)
+                .details(OrderDetails.builder().amount(amount).price(price).build()).build();
+    }
 }
@@ -1,15 +1,40 @@
 package com.gft.digitalbank.exchange.solution.transaction;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.gft.digitalbank.exchange.model.OrderBook;
+import com.gft.digitalbank.exchange.model.OrderDetails;
 import com.gft.digitalbank.exchange.model.SolutionResult;
 import com.gft.digitalbank.exchange.model.Transaction;
+import com.gft.digitalbank.exchange.model.orders.CancellationOrder;
+import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.ShutdownNotification;
+import com.gft.digitalbank.exchange.model.orders.Side;
 import com.gft.digitalbank.exchange.solution.SimpleExecutor;
+import com.gft.digitalbank.exchange.solution.stream.BlockingPublisher;
+import com.gft.digitalbank.exchange.solution.stream.Flow;
+import com.gft.digitalbank.exchange.solution.transaction.book.BookOrder;
+import com.gft.digitalbank.exchange.solution.transaction.book.DepthUpdate;
+import com.gft.digitalbank.exchange.solution.util.IntObjectHashMap;
+import com.gft.digitalbank.exchange.solution.util.IntObjectMap;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
 
 /**
  * Unit tests for class TransactionEngine.
@@ -30,7 +55,10 @@ public class TransactionEngineTest {
                 .clientSell("c2").build();
         transactionEngine = new TransactionEngine(executor, Arrays.asList("d1"));
 
-        transactionEngine.addExecutedTransaction(transaction);
+        transactionEngine.onBrokerMessage(PositionOrder.builder().id(1).broker("b2").client("c2").product("p1").side(Side.SELL)
+                .timestamp(1).details(OrderDetails.builder().amount(1).price(1).build()).build());
+        transactionEngine.onBrokerMessage(PositionOrder.builder().id(2).broker("b1").client("c1").product("p1").side(Side.BUY)
+                .timestamp(2).details(OrderDetails.builder().amount(1).price(1).build()).build());
     }
 
     @Test
@@ -57,4 +85,274 @@ public class TransactionEngineTest {
         Assert.assertNotNull(result.getTransactions());
         Assert.assertEquals(result.getTransactions().size(), 0);
     }
+
+    @Test
+    public void testFilledOrdersEviction() {
+        IntObjectMap<BookOrder> index = new IntObjectHashMap<>();
+        TransactionEngine engine = new TransactionEngine(executor, Arrays.asList("d1"), index);
+
+        engine.onBrokerMessage(order(1, Side.SELL, 10));
+        engine.onBrokerMessage(order(2, Side.BUY, 4));
+        engine.onBrokerMessage(order(3, Side.BUY, 5));
+
+        Assert.assertEquals(index.size(), 2);
+        Assert.assertEquals(index.get(1).getAmount(), 1);
+
+        engine.onBrokerMessage(CancellationOrder.builder().id(4).broker("b1").cancelledOrderId(2).timestamp(4).build());
+
+        Assert.assertEquals(index.size(), 1);
+
+        engine.onBrokerMessage(CancellationOrder.builder().id(5).broker("b1").cancelledOrderId(1).timestamp(5).build());
+
+        Assert.assertEquals(index.size(), 0);
+    }
+
+    @Test
+    public void testModifyFilledOrder() {
+        TransactionEngine engine = new TransactionEngine(executor, Arrays.asList("d1"));
+
+        engine.onBrokerMessage(order(1, Side.SELL, 10));
+        engine.onBrokerMessage(order(2, Side.BUY, 10));
+        engine.onBrokerMessage(ModificationOrder.builder().id(3).broker("b1").modifiedOrderId(1).timestamp(3)
+                .details(OrderDetails.builder().amount(10).price(200).build()).build());
+        engine.onBrokerMessage(order(4, Side.BUY, 10));
+
+        Assert.assertEquals(engine.createSolutionResult().getTransactions().size(), 1);
+    }
+
+    @Test
+    public void testOrderBookSnapshots() throws Exception {
+        TransactionEngine engine = new TransactionEngine(executor, Arrays.asList("d1"));
+
+        engine.onBrokerMessage(order(1, Side.SELL, 10));
+        engine.onBrokerMessage(order(2, Side.BUY, 4));
+
+        OrderBook orderBook = engine.getOrderBookSnapshot("p1").get();
+
+        Assert.assertEquals(orderBook.getSellEntries().size(), 1);
+        Assert.assertEquals(orderBook.getSellEntries().get(0).getAmount(), 6);
+        Assert.assertEquals(orderBook.getBuyEntries().size(), 0);
+        Assert.assertEquals(engine.getOrderBookSnapshot("p2").get().getSellEntries().size(), 0);
+        Assert.assertEquals(engine.getProductNames(), Collections.singleton("p1"));
+        Assert.assertEquals(engine.getOrderBookSnapshots().get(), Arrays.asList(orderBook));
+    }
+
+    @Test
+    public void testBatchedHandOff() {
+        Map<String, AtomicInteger> submissions = new ConcurrentHashMap<>();
+        TransactionEngine engine = new TransactionEngine(product -> r -> {
+            submissions.computeIfAbsent(product, k -> new AtomicInteger()).incrementAndGet();
+            executor.execute(r);
+        }, Arrays.asList("d1"), new IntObjectHashMap<>());
+
+        engine.onBatchStart();
+        engine.onBrokerMessage(order(1, "p1", Side.SELL, 10));
+        engine.onBrokerMessage(order(2, "p2", Side.SELL, 10));
+        engine.onBrokerMessage(order(3, "p1", Side.BUY, 4));
+        engine.onBrokerMessage(CancellationOrder.builder().id(4).broker("b1").cancelledOrderId(1).timestamp(4).build());
+        engine.onBrokerMessage(order(5, "p2", Side.BUY, 10));
+
+        Assert.assertTrue(submissions.isEmpty());
+        Assert.assertEquals(engine.createSolutionResult().getTransactions().size(), 0);
+
+        engine.onBatchEnd();
+
+        Assert.assertEquals(submissions.get("p1").get(), 1);
+        Assert.assertEquals(submissions.get("p2").get(), 1);
+        Assert.assertEquals(engine.createSolutionResult().getTransactions().size(), 2);
+        Assert.assertTrue(engine.createSolutionResult().getOrderBooks().isEmpty());
+
+        engine.onBrokerMessage(order(6, "p1", Side.SELL, 10));
+
+        Assert.assertEquals(submissions.get("p1").get(), 2);
+    }
+
+    @Test
+    public void testSymbolDictionary() throws Exception {
+        SymbolDictionary symbols = new SymbolDictionary();
+        TransactionEngine engine = new TransactionEngine(executor, Arrays.asList("d1"));
+
+        symbols.register(7, "p2");
+        engine.setSymbolDictionary(symbols);
+
+        engine.onBrokerMessage(order(1, "p2", Side.SELL, 10));
+        engine.onBrokerMessage(order(2, "p1", Side.SELL, 10));
+        engine.onBrokerMessage(CancellationOrder.builder().id(3).broker("b2").cancelledOrderId(1).timestamp(3).build());
+        engine.onBrokerMessage(PositionOrder.builder().id(4).broker("b2").client("c2").product("p2").side(Side.BUY).timestamp(4)
+                .details(OrderDetails.builder().amount(4).price(100).build()).build());
+
+        Transaction t = engine.createSolutionResult().getTransactions().iterator().next();
+
+        Assert.assertEquals(t.getProduct(), "p2");
+        Assert.assertEquals(t.getBrokerBuy(), "b2");
+        Assert.assertEquals(t.getClientSell(), "c1");
+        Assert.assertEquals(engine.getOrderBookSnapshot("p2").get().getSellEntries().get(0).getAmount(), 6);
+        Assert.assertEquals(engine.getProductNames(), new HashSet<>(Arrays.asList("p1", "p2")));
+        Assert.assertEquals(symbols.code("p2"), 7);
+    }
+
+    @Test
+    public void testTransactionsOfAllProducts() {
+        TransactionEngine engine = new TransactionEngine(executor, Arrays.asList("d1"));
+
+        for (int i = 0; i < 3000; i += 2) {
+            String product = "p" + (i % 3);
+
+            engine.onBrokerMessage(order(i + 1, product, Side.SELL, 10));
+            engine.onBrokerMessage(order(i + 2, product, Side.BUY, 10));
+        }
+
+        Collection<Transaction> transactions = engine.createTransactions();
+
+        Assert.assertEquals(transactions.size(), 1500);
+        Assert.assertEquals(transactions.stream().map(Transaction::getProduct).distinct().collect(Collectors.toList()),
+                Arrays.asList("p0", "p1", "p2"));
+        Assert.assertEquals(transactions.stream().filter(t -> t.getProduct().equals("p1")).mapToInt(Transaction::getId).max().getAsInt(),
+                500);
+        Assert.assertEquals(engine.createSolutionResult().getTransactions().size(), 1500);
+    }
+
+    @Test
+    public void testTransactionPublisher() {
+        TransactionEngine engine = new TransactionEngine(executor, Arrays.asList("d1"));
+        List<Transaction> published = new ArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        engine.setTransactionPublisher(new BlockingPublisher<>(executor, 16, 1000));
+        engine.getTransactionPublisher().subscribe(new Flow.Subscriber<Transaction>() {
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Transaction item) {
+                published.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assert.fail(throwable.toString());
+            }
+
+            @Override
+            public void onComplete() {
+                completed.set(true);
+            }
+        });
+
+        engine.onBrokerMessage(order(1, Side.SELL, 10));
+        engine.onBrokerMessage(order(2, Side.BUY, 4));
+
+        Assert.assertEquals(published.size(), 1);
+        Assert.assertEquals(published.get(0).getAmount(), 4);
+
+        engine.onBrokerMessage(order(3, Side.BUY, 4));
+        engine.onBrokerMessage(ShutdownNotification.builder().id(4).broker("d1").timestamp(4).build());
+
+        Assert.assertTrue(completed.get());
+        Assert.assertEquals(published, new ArrayList<>(engine.createTransactions()));
+    }
+
+    @Test(timeout = 5000)
+    public void testSubscriberNotRequesting() {
+        TransactionEngine engine = new TransactionEngine(executor, Arrays.asList("d1"));
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicBoolean finished = new AtomicBoolean();
+
+        engine.setTransactionPublisher(new BlockingPublisher<>(executor, 1, 100));
+        engine.addObserver((o, arg) -> finished.set(true));
+        engine.getTransactionPublisher().subscribe(new Flow.Subscriber<Transaction>() {
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+
+            @Override
+            public void onNext(Transaction item) {
+                Assert.fail("Item not requested");
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        engine.onBrokerMessage(order(1, Side.SELL, 10));
+
+        for (int id = 2; id <= 5; id++) {
+            engine.onBrokerMessage(order(id, Side.BUY, 2));
+        }
+
+        engine.onBrokerMessage(ShutdownNotification.builder().id(6).broker("d1").timestamp(6).build());
+
+        Assert.assertTrue(finished.get());
+        Assert.assertTrue(error.get() instanceof IllegalStateException);
+        Assert.assertEquals(engine.createSolutionResult().getTransactions().size(), 4);
+    }
+
+    @Test
+    public void testDepthPublisher() {
+        TransactionEngine engine = new TransactionEngine(executor, Arrays.asList("d1"));
+        List<DepthUpdate> updates = new ArrayList<>();
+
+        engine.getDepthPublisher().subscribe(new Flow.Subscriber<DepthUpdate>() {
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(DepthUpdate item) {
+                updates.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assert.fail(throwable.toString());
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        engine.onBrokerMessage(order(1, Side.SELL, 10));
+
+        Assert.assertEquals(updates.size(), 1);
+        Assert.assertEquals(updates.get(0).getQuantity(), 10);
+        Assert.assertEquals(updates.get(0).getSide(), Side.SELL);
+
+        engine.onBatchStart();
+        engine.onBrokerMessage(order(2, Side.BUY, 4));
+        engine.onBrokerMessage(order(3, Side.SELL, 5));
+        engine.onBrokerMessage(order(4, "p2", Side.BUY, 1));
+        engine.onBatchEnd();
+
+        Assert.assertEquals(updates.size(), 4);
+        Assert.assertEquals(updates.get(1).getSide(), Side.BUY);
+        Assert.assertTrue(updates.get(1).isRemoved());
+        Assert.assertEquals(updates.get(2).getProductName(), "p1");
+        Assert.assertEquals(updates.get(2).getSide(), Side.SELL);
+        Assert.assertEquals(updates.get(2).getPrice(), 100);
+        Assert.assertEquals(updates.get(2).getQuantity(), 11);
+        Assert.assertEquals(updates.get(2).getOrderCount(), 2);
+        Assert.assertEquals(updates.get(3).getProductName(), "p2");
+    }
+
+    private static PositionOrder order(int id, Side side, int amount) {
+        return order(id, "p1", side, amount);
+    }
+
+    private static PositionOrder order(int id, String product, Side side, int amount) {
+        return PositionOrder.builder().id(id).broker("b1").client("c1").product(product).side(side).timestamp(id)
+                .details(OrderDetails.builder().amount(amount).price(100).build()).build();
+    }
 }
@@ -0,0 +1,76 @@
+package com.gft.digitalbank.exchange.solution.transaction;
+
+import java.util.Iterator;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.Transaction;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.transaction.book.BookOrder;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+
+/**
+ * Unit tests for class TransactionLog.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class TransactionLogTest {
+
+    private final SymbolDictionary symbols = new SymbolDictionary();
+
+    private final TransactionLog log = new TransactionLog("p1", symbols);
+
+    private final BookOrder buy = order(1, "b1", Side.BUY);
+
+    private final BookOrder sell = order(2, "b2", Side.SELL);
+
+    @Test
+    public void testAppend() {
+        for (int i = 1; i <= 10000; i++) {
+            Assert.assertEquals(log.append(i, 100 + i, buy, sell), i);
+        }
+
+        Assert.assertEquals(log.size(), 10000);
+        Assert.assertEquals(log.get(0), Transaction.builder().id(1).amount(1).price(101).product("p1").brokerBuy("b1").clientBuy("c1")
+                .brokerSell("b2").clientSell("c2").build());
+        Assert.assertEquals(log.get(1024).getId(), 1025);
+        Assert.assertEquals(log.get(1024).getAmount(), 1025);
+        Assert.assertEquals(log.get(9999).getPrice(), 10100);
+        Assert.assertEquals(log.stream().map(Transaction::getId).collect(Collectors.toList()).get(5000), Integer.valueOf(5001));
+
+        int id = 0;
+
+        for (Transaction t : log) {
+            Assert.assertEquals(t.getId(), ++id);
+        }
+
+        Assert.assertEquals(id, 10000);
+    }
+
+    @Test
+    public void testIteratorEndFixed() {
+        log.append(1, 1, buy, sell);
+
+        Iterator<Transaction> iterator = log.iterator();
+
+        log.append(2, 1, buy, sell);
+
+        Assert.assertEquals(iterator.next().getAmount(), 1);
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        log.append(1, 1, buy, sell);
+        log.get(1);
+    }
+
+    private BookOrder order(int id, String broker, Side side) {
+        return new BookOrder(PositionOrder.builder().id(id).broker(broker).client(broker.replace('b', 'c')).product("p1").side(side)
+                .timestamp(id).details(OrderDetails.builder().amount(10).price(100).build()).build(), symbols);
+    }
+}
@@ -0,0 +1,90 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.MessageType;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+
+/**
+ * Unit tests for class BookOrder.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class BookOrderTest {
+
+    private PositionOrder order;
+
+    private SymbolDictionary symbols;
+
+    @Before
+    public void setUp() {
+        symbols = new SymbolDictionary();
+        order = PositionOrder.builder().id(1).broker("B1").client("C1").product("P").side(Side.BUY).timestamp(1)
+                .details(OrderDetails.builder().amount(10).price(100).build()).build();
+    }
+
+    @Test
+    public void testFill() {
+        BookOrder bookOrder = new BookOrder(order, symbols);
+
+        Assert.assertFalse(bookOrder.fill(1));
+        Assert.assertEquals(bookOrder.getAmount(), 9);
+        Assert.assertTrue(bookOrder.fill(9));
+        Assert.assertEquals(bookOrder.getAmount(), 0);
+    }
+
+    @Test
+    public void testToPositionOrder() {
+        BookOrder bookOrder = new BookOrder(order, symbols);
+
+        Assert.assertEquals(bookOrder.toPositionOrder(symbols), order);
+
+        bookOrder.fill(1);
+
+        PositionOrder mo = bookOrder.toPositionOrder(symbols);
+
+        Assert.assertEquals(mo.getId(), 1);
+        Assert.assertEquals(mo.getBroker(), "B1");
+        Assert.assertEquals(mo.getClient(), "C1");
+        Assert.assertEquals(mo.getProduct(), "P");
+        Assert.assertEquals(mo.getMessageType(), MessageType.ORDER);
+        Assert.assertEquals(mo.getTimestamp(), 1);
+        Assert.assertEquals(mo.getSide(), Side.BUY);
+        Assert.assertEquals(mo.getDetails().getAmount(), 9);
+        Assert.assertEquals(mo.getDetails().getPrice(), 100);
+    }
+
+    @Test
+    public void testSymbolCodes() {
+        BookOrder bookOrder = new BookOrder(order, symbols);
+        BookOrder other = new BookOrder(PositionOrder.builder().id(2).broker(new String("B1")).client("C2").product("P").side(Side.SELL)
+                .timestamp(2).details(OrderDetails.builder().amount(1).price(1).build()).build(), symbols);
+
+        Assert.assertEquals(other.getBrokerId(), bookOrder.getBrokerId());
+        Assert.assertEquals(other.getProductId(), bookOrder.getProductId());
+        Assert.assertNotEquals(other.getClientId(), bookOrder.getClientId());
+        Assert.assertEquals(symbols.size(), 4);
+    }
+
+    @Test
+    public void testModify() {
+        BookOrder bookOrder = new BookOrder(order, symbols);
+
+        bookOrder.fill(5);
+        bookOrder.modify(OrderDetails.builder().amount(11).price(110).build(), 5);
+
+        Assert.assertEquals(bookOrder.getId(), 1);
+        Assert.assertEquals(symbols.symbol(bookOrder.getBrokerId()), "B1");
+        Assert.assertEquals(symbols.symbol(bookOrder.getClientId()), "C1");
+        Assert.assertEquals(symbols.symbol(bookOrder.getProductId()), "P");
+        Assert.assertEquals(bookOrder.getSide(), Side.BUY);
+        Assert.assertEquals(bookOrder.getTimestamp(), 5);
+        Assert.assertEquals(bookOrder.getAmount(), 11);
+        Assert.assertEquals(bookOrder.getPrice(), 110);
+    }
+}
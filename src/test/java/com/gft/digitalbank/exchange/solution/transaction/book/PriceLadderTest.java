@@ -0,0 +1,191 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+
+/**
+ * Unit tests for class PriceLadder.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class PriceLadderTest {
+
+    private static final SymbolDictionary SYMBOLS = new SymbolDictionary();
+
+    @Test
+    public void testBuyPriority() {
+        PriceLadder ladder = new PriceLadder(Side.BUY);
+        BookOrder o1 = order(1, Side.BUY, 100);
+        BookOrder o2 = order(2, Side.BUY, 120);
+        BookOrder o3 = order(3, Side.BUY, 90);
+        BookOrder o4 = order(4, Side.BUY, 120);
+
+        Arrays.asList(o1, o2, o3, o4).forEach(ladder::add);
+
+        Assert.assertEquals(ladder.size(), 4);
+        Assert.assertEquals(ladder.getLevelCount(), 3);
+        Assert.assertEquals(ladder.getBestLevel().getPrice(), 120);
+        Assert.assertEquals(toList(ladder), Arrays.asList(o2, o4, o1, o3));
+    }
+
+    @Test
+    public void testSellPriority() {
+        PriceLadder ladder = new PriceLadder(Side.SELL);
+        BookOrder o1 = order(1, Side.SELL, 100);
+        BookOrder o2 = order(2, Side.SELL, 120);
+        BookOrder o3 = order(3, Side.SELL, 90);
+        BookOrder o4 = order(4, Side.SELL, 90);
+        BookOrder o5 = order(5, Side.SELL, Integer.MIN_VALUE);
+        BookOrder o6 = order(6, Side.SELL, Integer.MAX_VALUE);
+
+        Arrays.asList(o1, o2, o3, o4, o5, o6).forEach(ladder::add);
+
+        Assert.assertEquals(ladder.first(), o5);
+        Assert.assertEquals(toList(ladder), Arrays.asList(o5, o3, o4, o1, o2, o6));
+    }
+
+    @Test
+    public void testPollAndRemove() {
+        PriceLadder ladder = new PriceLadder(Side.SELL);
+        BookOrder o1 = order(1, Side.SELL, 100);
+        BookOrder o2 = order(2, Side.SELL, 110);
+        BookOrder o3 = order(3, Side.SELL, 110);
+
+        Arrays.asList(o1, o2, o3).forEach(ladder::add);
+
+        Assert.assertEquals(ladder.pollFirst(), o1);
+        Assert.assertEquals(ladder.getLevelCount(), 1);
+        Assert.assertTrue(ladder.remove(o3));
+        Assert.assertFalse(o3.isInBook());
+        Assert.assertFalse(ladder.remove(o3));
+        Assert.assertFalse(ladder.remove(order(7, Side.SELL, 130)));
+        Assert.assertEquals(ladder.pollFirst(), o2);
+        Assert.assertTrue(ladder.isEmpty());
+        Assert.assertEquals(ladder.getLevelCount(), 0);
+        Assert.assertNull(ladder.pollFirst());
+        Assert.assertNull(ladder.first());
+    }
+
+    @Test
+    public void testManyLevels() {
+        PriceLadder ladder = new PriceLadder(Side.BUY);
+
+        for (int i = 0; i < 1000; i++) {
+            ladder.add(order(i, Side.BUY, (i * 7919) % 1000));
+        }
+
+        Assert.assertEquals(ladder.getLevelCount(), 1000);
+
+        int previous = Integer.MAX_VALUE;
+
+        while (!ladder.isEmpty()) {
+            int price = ladder.pollFirst().getPrice();
+
+            Assert.assertTrue(price < previous);
+            previous = price;
+        }
+    }
+
+    @Test
+    public void testRemoveFromOtherSide() {
+        PriceLadder buyLadder = new PriceLadder(Side.BUY);
+        PriceLadder sellLadder = new PriceLadder(Side.SELL);
+        BookOrder o1 = order(1, Side.BUY, 100);
+
+        buyLadder.add(o1);
+
+        Assert.assertFalse(sellLadder.remove(o1));
+        Assert.assertTrue(o1.isInBook());
+        Assert.assertTrue(buyLadder.remove(o1));
+        Assert.assertTrue(buyLadder.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        PriceLadder ladder = new PriceLadder(Side.BUY);
+        BookOrder o1 = order(1, Side.BUY, 100);
+        BookOrder o2 = order(2, Side.BUY, 110);
+
+        ladder.add(o1);
+        ladder.add(o2);
+        ladder.clear();
+
+        Assert.assertTrue(ladder.isEmpty());
+        Assert.assertFalse(o1.isInBook());
+        Assert.assertFalse(o2.isInBook());
+        Assert.assertNull(ladder.first());
+    }
+
+    @Test
+    public void testDrainChanges() {
+        PriceLadder ladder = new PriceLadder(Side.BUY);
+        BookOrder o1 = order(1, Side.BUY, 100);
+        BookOrder o2 = order(2, Side.BUY, 90);
+        BookOrder o3 = order(3, Side.BUY, 100);
+
+        Arrays.asList(o1, o2, o3).forEach(ladder::add);
+
+        List<DepthUpdate> updates = ladder.drainChanges("P");
+
+        Assert.assertEquals(updates.size(), 2);
+        assertUpdate(updates.get(0), 90, 10, 1);
+        assertUpdate(updates.get(1), 100, 20, 2);
+        Assert.assertTrue(ladder.drainChanges("P").isEmpty());
+
+        ladder.fill(o1, 4);
+        ladder.add(order(4, Side.BUY, 80));
+        ladder.fill(o1, 6);
+        ladder.pollFirst();
+        ladder.remove(o2);
+
+        updates = ladder.drainChanges("P");
+
+        Assert.assertEquals(updates.size(), 3);
+        assertUpdate(updates.get(0), 80, 10, 1);
+        assertUpdate(updates.get(1), 90, 0, 0);
+        Assert.assertTrue(updates.get(1).isRemoved());
+        assertUpdate(updates.get(2), 100, 10, 1);
+        Assert.assertEquals(updates.get(2).getProductName(), "P");
+        Assert.assertEquals(updates.get(2).getSide(), Side.BUY);
+
+        ladder.add(order(5, Side.BUY, 70));
+        ladder.clearChanges();
+
+        Assert.assertTrue(ladder.drainChanges("P").isEmpty());
+        Assert.assertEquals(ladder.getLevel(70).getQuantity(), 10);
+        Assert.assertNull(ladder.getLevel(90));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFillOrderNotInLadder() {
+        new PriceLadder(Side.BUY).fill(order(1, Side.BUY, 100), 1);
+    }
+
+    private static void assertUpdate(DepthUpdate update, int price, long quantity, int orderCount) {
+        Assert.assertEquals(update.getPrice(), price);
+        Assert.assertEquals(update.getQuantity(), quantity);
+        Assert.assertEquals(update.getOrderCount(), orderCount);
+    }
+
+    private static BookOrder order(int id, Side side, int price) {
+        return new BookOrder(PositionOrder.builder().id(id).broker("B").client("C").product("P").side(side).timestamp(id)
+                .details(OrderDetails.builder().amount(10).price(price).build()).build(), SYMBOLS);
+    }
+
+    private static List<BookOrder> toList(PriceLadder ladder) {
+        List<BookOrder> list = new ArrayList<>();
+
+        ladder.forEach(list::add);
+
+        return list;
+    }
+}
@@ -0,0 +1,96 @@
+package com.gft.digitalbank.exchange.solution.transaction.book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gft.digitalbank.exchange.model.OrderDetails;
+import com.gft.digitalbank.exchange.model.orders.PositionOrder;
+import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.util.SymbolDictionary;
+
+/**
+ * Unit tests for class PriceLevel.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class PriceLevelTest {
+
+    private static final SymbolDictionary SYMBOLS = new SymbolDictionary();
+
+    private PriceLevel level;
+
+    private BookOrder o1;
+    private BookOrder o2;
+    private BookOrder o3;
+
+    @Before
+    public void setUp() {
+        level = new PriceLevel(100);
+
+        o1 = new BookOrder(PositionOrder.builder().id(1).broker("B1").client("C1").product("P").side(Side.BUY).timestamp(1)
+                .details(OrderDetails.builder().amount(10).price(100).build()).build(), SYMBOLS);
+        o2 = new BookOrder(PositionOrder.builder().id(2).broker("B2").client("C2").product("P").side(Side.BUY).timestamp(2)
+                .details(OrderDetails.builder().amount(20).price(100).build()).build(), SYMBOLS);
+        o3 = new BookOrder(PositionOrder.builder().id(3).broker("B3").client("C3").product("P").side(Side.BUY).timestamp(3)
+                .details(OrderDetails.builder().amount(30).price(100).build()).build(), SYMBOLS);
+
+        level.add(o1);
+        level.add(o2);
+        level.add(o3);
+    }
+
+    @Test
+    public void testFifoOrder() {
+        Assert.assertEquals(level.getPrice(), 100);
+        Assert.assertEquals(level.size(), 3);
+        Assert.assertEquals(level.pollFirst(), o1);
+        Assert.assertEquals(level.pollFirst(), o2);
+        Assert.assertEquals(level.pollFirst(), o3);
+        Assert.assertTrue(level.isEmpty());
+        Assert.assertNull(level.first());
+    }
+
+    @Test
+    public void testQuantity() {
+        Assert.assertEquals(level.getQuantity(), 60);
+        Assert.assertFalse(level.fill(o1, 4));
+        Assert.assertEquals(level.getQuantity(), 56);
+        Assert.assertTrue(level.remove(o2));
+        Assert.assertEquals(level.getQuantity(), 36);
+        Assert.assertTrue(level.fill(o1, 6));
+        Assert.assertEquals(level.pollFirst(), o1);
+        Assert.assertEquals(level.getQuantity(), 30);
+    }
+
+    @Test
+    public void testRemove() {
+        Assert.assertTrue(level.remove(o2));
+        Assert.assertFalse(level.remove(o2));
+        Assert.assertEquals(level.size(), 2);
+        Assert.assertTrue(level.remove(o3));
+        Assert.assertEquals(level.first(), o1);
+        Assert.assertTrue(level.remove(o1));
+        Assert.assertTrue(level.isEmpty());
+        Assert.assertNull(level.first());
+
+        level.add(o2);
+
+        Assert.assertEquals(level.first(), o2);
+        Assert.assertEquals(level.size(), 1);
+    }
+
+    @Test
+    public void testIterator() {
+        List<BookOrder> orders = new ArrayList<>();
+
+        level.remove(o2);
+        level.forEach(orders::add);
+
+        Assert.assertEquals(orders, Arrays.asList(o1, o3));
+    }
+}
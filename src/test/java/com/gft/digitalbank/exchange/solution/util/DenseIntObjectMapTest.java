@@ -0,0 +1,77 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for class DenseIntObjectMap.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class DenseIntObjectMapTest {
+
+    private IntObjectMap<String> map;
+
+    @Before
+    public void setUp() {
+        map = new DenseIntObjectMap<>();
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        Assert.assertNull(map.put(1, "a"));
+        Assert.assertNull(map.put(4097, "b"));
+        Assert.assertEquals(map.put(1, "c"), "a");
+        Assert.assertEquals(map.size(), 2);
+        Assert.assertEquals(map.get(1), "c");
+        Assert.assertEquals(map.get(4097), "b");
+        Assert.assertNull(map.get(2));
+        Assert.assertNull(map.get(-1));
+        Assert.assertEquals(map.remove(1), "c");
+        Assert.assertNull(map.remove(1));
+        Assert.assertNull(map.get(1));
+        Assert.assertEquals(map.size(), 1);
+
+        map.clear();
+
+        Assert.assertEquals(map.size(), 0);
+        Assert.assertNull(map.get(4097));
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(17);
+
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(50000);
+
+            switch (random.nextInt(3)) {
+            case 0:
+                Assert.assertEquals(map.put(key, "v" + i), expected.put(key, "v" + i));
+                break;
+            case 1:
+                Assert.assertEquals(map.remove(key), expected.remove(key));
+                break;
+            default:
+                Assert.assertEquals(map.get(key), expected.get(key));
+            }
+
+            Assert.assertEquals(map.size(), expected.size());
+        }
+
+        for (Map.Entry<Integer, String> e : expected.entrySet()) {
+            Assert.assertEquals(map.get(e.getKey()), e.getValue());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeKey() {
+        map.put(-1, "a");
+    }
+}
@@ -1,17 +1,15 @@
 package com.gft.digitalbank.exchange.solution.util;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.gft.digitalbank.exchange.model.OrderDetails;
 import com.gft.digitalbank.exchange.model.Transaction;
-import com.gft.digitalbank.exchange.model.orders.MessageType;
-import com.gft.digitalbank.exchange.model.orders.ModificationOrder;
 import com.gft.digitalbank.exchange.model.orders.PositionOrder;
 import com.gft.digitalbank.exchange.model.orders.Side;
+import com.gft.digitalbank.exchange.solution.transaction.TransactionLog;
+import com.gft.digitalbank.exchange.solution.transaction.book.BookOrder;
 
 /**
  * Unit tests for class MessageUtils.
@@ -23,9 +21,11 @@ public class MessageUtilsTest {
     private PositionOrder o2;
     private PositionOrder o3;
     private PositionOrder o4;
+    private SymbolDictionary symbols;
 
     @Before
     public void setUp() {
+        symbols = new SymbolDictionary();
         o1 = PositionOrder.builder().id(1).broker("B1").client("C1").product("P").side(Side.BUY).timestamp(1)
                 .details(OrderDetails.builder().amount(10).price(100).build()).build();
         o2 = PositionOrder.builder().id(2).broker("B2").client("C2").product("P").side(Side.SELL).timestamp(2)
@@ -45,16 +45,26 @@ public class MessageUtilsTest {
         Assert.assertFalse(MessageUtils.sameBroker(o1, o2));
         Assert.assertFalse(MessageUtils.sameBroker(o1, o3));
         Assert.assertFalse(MessageUtils.sameBroker(o1, o4));
+        Assert.assertTrue(MessageUtils.sameBroker(new BookOrder(o1, symbols), symbols.code("B1")));
+        Assert.assertFalse(MessageUtils.sameBroker(new BookOrder(o1, symbols), symbols.intern("B2")));
+        Assert.assertFalse(MessageUtils.sameBroker(new BookOrder(o1, symbols), symbols.code("unknown")));
+        Assert.assertFalse(MessageUtils.sameBroker((BookOrder) null, symbols.code("B1")));
     }
 
     @Test
-    public void testTryCreateTransaction() {
-        AtomicInteger atomicInt = new AtomicInteger(0);
-        Transaction t1 = MessageUtils.tryCreateTransaction(atomicInt, o1, o2);
-        Transaction t2 = MessageUtils.tryCreateTransaction(atomicInt, o1, o3);
-        Transaction t3 = MessageUtils.tryCreateTransaction(atomicInt, o1, o4);
+    public void testTryExecuteTransaction() {
+        TransactionLog log = new TransactionLog("P", symbols);
+        BookOrder b1 = new BookOrder(o1, symbols);
+
+        Assert.assertEquals(MessageUtils.tryExecuteTransaction(log, b1, new BookOrder(o2, symbols)), 10);
+        Assert.assertEquals(MessageUtils.tryExecuteTransaction(log, b1, new BookOrder(o3, symbols)), -1);
+        Assert.assertEquals(MessageUtils.tryExecuteTransaction(log, b1, new BookOrder(o4, symbols)), 10);
+        Assert.assertEquals(MessageUtils.tryExecuteTransaction(log, b1, null), -1);
+        Assert.assertEquals(log.size(), 2);
+
+        Transaction t1 = log.get(0);
+        Transaction t3 = log.get(1);
 
-        Assert.assertNotNull(t1);
         Assert.assertEquals(t1.getId(), 1);
         Assert.assertEquals(t1.getBrokerBuy(), "B1");
         Assert.assertEquals(t1.getBrokerSell(), "B2");
@@ -64,8 +74,6 @@ public class MessageUtilsTest {
         Assert.assertEquals(t1.getAmount(), 10);
         Assert.assertEquals(t1.getPrice(), 100);
 
-        Assert.assertNull(t2);
-
         Assert.assertEquals(t3.getId(), 2);
         Assert.assertEquals(t3.getBrokerBuy(), "B1");
         Assert.assertEquals(t3.getBrokerSell(), "B4");
@@ -75,38 +83,4 @@ public class MessageUtilsTest {
         Assert.assertEquals(t3.getAmount(), 10);
         Assert.assertEquals(t3.getPrice(), 100);
     }
-
-    @Test
-    public void testModifyPositionOrderDetails() {
-        PositionOrder mo = MessageUtils.modifyPositionOrderDetails(o1,
-                ModificationOrder.builder().id(5).modifiedOrderId(1).timestamp(5).broker("B1")
-                        .details(OrderDetails.builder().amount(11).price(110).build()).build());
-
-        Assert.assertNotEquals(o1, mo);
-        Assert.assertEquals(mo.getId(), 1);
-        Assert.assertEquals(mo.getBroker(), "B1");
-        Assert.assertEquals(mo.getClient(), "C1");
-        Assert.assertEquals(mo.getProduct(), "P");
-        Assert.assertEquals(mo.getMessageType(), MessageType.ORDER);
-        Assert.assertEquals(mo.getTimestamp(), 5);
-        Assert.assertEquals(mo.getSide(), Side.BUY);
-        Assert.assertEquals(mo.getDetails().getAmount(), 11);
-        Assert.assertEquals(mo.getDetails().getPrice(), 110);
-    }
-
-    @Test
-    public void testModifyPositionOrderAmount() {
-        PositionOrder mo = MessageUtils.modifyPositionOrderAmount(o1, 1);
-
-        Assert.assertNotEquals(o1, mo);
-        Assert.assertEquals(mo.getId(), 1);
-        Assert.assertEquals(mo.getBroker(), "B1");
-        Assert.assertEquals(mo.getClient(), "C1");
-        Assert.assertEquals(mo.getProduct(), "P");
-        Assert.assertEquals(mo.getMessageType(), MessageType.ORDER);
-        Assert.assertEquals(mo.getTimestamp(), 1);
-        Assert.assertEquals(mo.getSide(), Side.BUY);
-        Assert.assertEquals(mo.getDetails().getAmount(), 9);
-        Assert.assertEquals(mo.getDetails().getPrice(), 100);
-    }
 }
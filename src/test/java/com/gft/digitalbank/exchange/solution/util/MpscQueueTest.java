@@ -0,0 +1,73 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for class MpscQueue.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class MpscQueueTest {
+
+    @Test
+    public void testOfferPoll() {
+        MpscQueue<Integer> queue = new MpscQueue<>();
+
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+
+        queue.offer(1);
+        queue.offer(2);
+
+        Assert.assertFalse(queue.isEmpty());
+        Assert.assertEquals(queue.poll(), Integer.valueOf(1));
+        Assert.assertEquals(queue.poll(), Integer.valueOf(2));
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void testManyProducers() throws InterruptedException {
+        final int producers = 4;
+        final int elements = 100000;
+        MpscQueue<Long> queue = new MpscQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        long[] lastValues = new long[producers];
+        int received = 0;
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(() -> {
+                for (long i = 1; i <= elements; i++) {
+                    queue.offer(i * producers + producer);
+                }
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        while (received < producers * elements) {
+            Long value = queue.poll();
+
+            if (value != null) {
+                int producer = (int) (value % producers);
+
+                Assert.assertEquals(value / producers, lastValues[producer] + 1);
+
+                lastValues[producer] = value / producers;
+                received++;
+            }
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertTrue(queue.isEmpty());
+    }
+}
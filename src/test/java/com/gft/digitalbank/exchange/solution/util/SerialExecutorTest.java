@@ -1,15 +1,20 @@
 package com.gft.digitalbank.exchange.solution.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.IntStream;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
 
+import com.gft.digitalbank.exchange.solution.SimpleExecutor;
 
 /**
  * Unit tests for class SerialExecutor.
@@ -44,4 +49,59 @@ public class SerialExecutorTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void testBatchedDrain() {
+        List<Runnable> drains = new ArrayList<>();
+        Executor executor = new SerialExecutor(drains::add, 2);
+        List<Integer> result = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            final int value = i;
+
+            executor.execute(() -> result.add(value));
+        }
+
+        Assert.assertEquals(drains.size(), 1);
+
+        for (int i = 0; i < drains.size(); i++) {
+            drains.get(i).run();
+        }
+
+        Assert.assertEquals(drains.size(), 3);
+        Assert.assertEquals(result, Arrays.asList(0, 1, 2, 3, 4));
+    }
+
+    @Test
+    public void testNestedExecution() {
+        Executor executor = new SerialExecutor(new SimpleExecutor());
+        List<Integer> result = new ArrayList<>();
+
+        executor.execute(() -> {
+            executor.execute(() -> result.add(2));
+            result.add(1);
+        });
+
+        Assert.assertEquals(result, Arrays.asList(1, 2));
+    }
+
+    @Test
+    public void testRejectedExecution() {
+        Executor rejecting = Mockito.mock(Executor.class);
+        Executor executor = new SerialExecutor(rejecting);
+
+        Mockito.doThrow(new RejectedExecutionException()).doNothing().when(rejecting).execute(Matchers.any());
+
+        try {
+            executor.execute(() -> {
+            });
+            Assert.fail("RejectedExecutionException expected");
+        } catch (RejectedExecutionException e) {
+        }
+
+        executor.execute(() -> {
+        });
+
+        Mockito.verify(rejecting, Mockito.times(2)).execute(Matchers.any());
+    }
 }
@@ -0,0 +1,85 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for class ShardedExecutor.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class ShardedExecutorTest {
+
+    private ShardedExecutor shardedExecutor;
+
+    @Before
+    public void setUp() {
+        shardedExecutor = new ShardedExecutor(4);
+    }
+
+    @After
+    public void tearDown() {
+        shardedExecutor.shutdown();
+    }
+
+    @Test
+    public void testShardFor() {
+        Assert.assertEquals(shardedExecutor.getShardCount(), 4);
+        Assert.assertSame(shardedExecutor.shardFor("p1"), shardedExecutor.shardFor("p1"));
+        Assert.assertTrue(shardedExecutor.shardFor("p1") instanceof EngineThread);
+    }
+
+    @Test
+    public void testSerialExecution() throws InterruptedException {
+        Executor executor = shardedExecutor.shardFor("p1");
+        final int[] expected = IntStream.rangeClosed(1, 100000).toArray();
+        final List<Integer> result = new ArrayList<>(expected.length);
+        final List<Thread> threads = new ArrayList<>();
+        CountDownLatch stopSignal = new CountDownLatch(expected.length);
+
+        for (int i : expected) {
+            executor.execute(() -> {
+                result.add(i);
+                threads.add(Thread.currentThread());
+                stopSignal.countDown();
+            });
+        }
+
+        Assert.assertTrue(stopSignal.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(result.get(i).intValue(), expected[i]);
+            Assert.assertSame(threads.get(i), executor);
+        }
+    }
+
+    @Test
+    public void testFailedTask() throws InterruptedException {
+        Executor executor = shardedExecutor.shardFor("p1");
+        CountDownLatch stopSignal = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            throw new IllegalStateException();
+        });
+        executor.execute(stopSignal::countDown);
+
+        Assert.assertTrue(stopSignal.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testShutdown() {
+        shardedExecutor.shutdown();
+        shardedExecutor.shardFor("p1").execute(() -> {
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.gft.digitalbank.exchange.solution.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for class SymbolDictionary.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class SymbolDictionaryTest {
+
+    private final SymbolDictionary dictionary = new SymbolDictionary();
+
+    @Test
+    public void testIntern() {
+        int a = dictionary.intern("a");
+        int b = dictionary.intern("b");
+
+        Assert.assertNotEquals(a, SymbolDictionary.NO_SYMBOL);
+        Assert.assertNotEquals(a, b);
+        Assert.assertEquals(dictionary.intern("a"), a);
+        Assert.assertEquals(dictionary.intern(null), SymbolDictionary.NO_SYMBOL);
+        Assert.assertEquals(dictionary.symbol(b), "b");
+        Assert.assertNull(dictionary.symbol(SymbolDictionary.NO_SYMBOL));
+        Assert.assertEquals(dictionary.size(), 2);
+    }
+
+    @Test
+    public void testRegister() {
+        dictionary.register(1, "a");
+        dictionary.register(1000, "z");
+        dictionary.register(1, "a");
+
+        Assert.assertEquals(dictionary.intern("a"), 1);
+        Assert.assertEquals(dictionary.intern("z"), 1000);
+        Assert.assertEquals(dictionary.intern("b"), 2);
+        Assert.assertEquals(dictionary.symbol(1000), "z");
+    }
+
+    @Test
+    public void testGrow() {
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(dictionary.intern("s" + i), i + 1);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(dictionary.symbol(i + 1), "s" + i);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterConflict() {
+        dictionary.register(1, "a");
+        dictionary.register(1, "b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownCode() {
+        dictionary.symbol(5);
+    }
+}
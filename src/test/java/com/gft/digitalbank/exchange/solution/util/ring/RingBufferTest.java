@@ -0,0 +1,123 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for class RingBuffer.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class RingBufferTest {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int EVENTS_PER_PRODUCER = 50000;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new RingBuffer<>(10, LongEvent::new, WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void testPublish() {
+        RingBuffer<LongEvent> ringBuffer = new RingBuffer<>(4, LongEvent::new, WaitStrategy.BUSY_SPIN);
+        long sequence = ringBuffer.next();
+
+        Assert.assertEquals(sequence, 0);
+        Assert.assertFalse(ringBuffer.isAvailable(sequence));
+        Assert.assertEquals(ringBuffer.getHighestPublishedSequence(0, ringBuffer.getCursor()), -1);
+
+        ringBuffer.get(sequence).value = 5;
+        ringBuffer.publish(sequence);
+
+        Assert.assertTrue(ringBuffer.isAvailable(sequence));
+        Assert.assertEquals(ringBuffer.getHighestPublishedSequence(0, ringBuffer.getCursor()), 0);
+        Assert.assertSame(ringBuffer.get(sequence), ringBuffer.get(sequence + 4));
+    }
+
+    @Test
+    public void testBusySpinPipeline() throws InterruptedException {
+        testPipeline(WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void testYieldPipeline() throws InterruptedException {
+        testPipeline(WaitStrategy.YIELD);
+    }
+
+    @Test
+    public void testParkPipeline() throws InterruptedException {
+        testPipeline(WaitStrategy.PARK);
+    }
+
+    /**
+     * Many producers publish into small ring, first consumer doubles values and second one checks that every producer's values come in
+     * order and are already doubled.
+     */
+    private void testPipeline(WaitStrategy waitStrategy) throws InterruptedException {
+        RingBuffer<LongEvent> ringBuffer = new RingBuffer<>(64, LongEvent::new, waitStrategy);
+        CountDownLatch doneSignal = new CountDownLatch(PRODUCERS * EVENTS_PER_PRODUCER);
+        long[] lastValues = new long[PRODUCERS];
+        List<String> errors = new ArrayList<>();
+
+        BatchEventProcessor<LongEvent> first = new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(),
+                (event, sequence, endOfBatch) -> event.value *= 2);
+        BatchEventProcessor<LongEvent> second = new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(first.getSequence()),
+                (event, sequence, endOfBatch) -> {
+                    long original = event.value / 2;
+                    int producer = (int) (original % PRODUCERS);
+                    long value = original / PRODUCERS;
+
+                    if (event.value % 2 != 0 || value != lastValues[producer] + 1) {
+                        errors.add("Producer " + producer + ": " + value + " after " + lastValues[producer]);
+                    }
+
+                    lastValues[producer] = value;
+                    doneSignal.countDown();
+                });
+
+        ringBuffer.addGatingSequences(second.getSequence());
+
+        Thread firstThread = new Thread(first);
+        Thread secondThread = new Thread(second);
+
+        firstThread.start();
+        secondThread.start();
+
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+
+            new Thread(() -> {
+                for (long i = 1; i <= EVENTS_PER_PRODUCER; i++) {
+                    long sequence = ringBuffer.next();
+
+                    ringBuffer.get(sequence).value = i * PRODUCERS + producer;
+                    ringBuffer.publish(sequence);
+                }
+            }).start();
+        }
+
+        Assert.assertTrue(doneSignal.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(errors, new ArrayList<>());
+
+        first.halt();
+        second.halt();
+        firstThread.join(1000);
+        secondThread.join(1000);
+
+        Assert.assertFalse(firstThread.isAlive());
+        Assert.assertFalse(secondThread.isAlive());
+        Assert.assertEquals(second.getSequence().get(), PRODUCERS * EVENTS_PER_PRODUCER - 1);
+    }
+
+    private static class LongEvent {
+
+        private long value;
+    }
+}
@@ -0,0 +1,73 @@
+package com.gft.digitalbank.exchange.solution.util.ring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for class RingExecutor.
+ *
+ * @author Arkadiusz Cieslak
+ */
+public class RingExecutorTest {
+
+    private RingExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new RingExecutor("test", 256, WaitStrategy.PARK);
+        executor.start();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSerialExecution() throws InterruptedException {
+        final int[] expected = IntStream.rangeClosed(1, 100000).toArray();
+        final List<Integer> result = new ArrayList<>(expected.length);
+        CountDownLatch stopSignal = new CountDownLatch(expected.length);
+
+        for (int i : expected) {
+            executor.execute(() -> {
+                result.add(i);
+                stopSignal.countDown();
+            });
+        }
+
+        Assert.assertTrue(stopSignal.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(result.get(i).intValue(), expected[i]);
+        }
+    }
+
+    @Test
+    public void testFailedTask() throws InterruptedException {
+        CountDownLatch stopSignal = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            throw new IllegalStateException();
+        });
+        executor.execute(stopSignal::countDown);
+
+        Assert.assertTrue(stopSignal.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testShutdown() {
+        executor.shutdown();
+        executor.execute(() -> {
+        });
+    }
+}